@@ -0,0 +1,47 @@
+package sudoku;
+
+/**
+ * A SudokuEngine which picks an engine by the size of each grid, backtracking for grids up to 16x16 and
+ * SAT for 25x25 and larger.
+ * 
+ * The backtracking engine is the fastest on small grids, but its run time on large ones is heavy tailed:
+ * 25x25 grids with 40% of a solution as clues can take from under a second to well over 30 seconds, which
+ * the SAT engine solves in well under a second. Both engines are thread safe, so one of each is shared
+ * by every caller
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class AutomaticEngine implements SudokuEngine
+{
+	final static int SAT_GRID_SIZE = 25;	//the smallest number of rows in a grid solved by the SAT engine
+	
+	private final SudokuEngine backtracking = new BacktrackingEngine();
+	private final SudokuEngine sat = new SatEngine(new int[0][]);
+	
+	/**
+	 * @param puzzle	the grid to be solved
+	 * 
+	 * @return			the engine for grids of its size
+	 */
+	private SudokuEngine engineFor(Grid puzzle)
+	{
+		return puzzle.getSize() >= SAT_GRID_SIZE ? sat : backtracking;
+	}
+	
+	public void solve(Grid puzzle, SolutionCollector collector)
+	{
+		engineFor(puzzle).solve(puzzle, collector);
+	}
+	
+	@Override
+	public long count(Grid puzzle, long maxSolutions)
+	{
+		return engineFor(puzzle).count(puzzle, maxSolutions);
+	}
+	
+	public long count(Grid puzzle, long maxSolutions, Grid firstSolution)
+	{
+		return engineFor(puzzle).count(puzzle, maxSolutions, firstSolution);
+	}
+}
@@ -0,0 +1,49 @@
+package sudoku;
+
+/**
+ * A SudokuEngine using BacktrackingSolver.
+ * 
+ * A solver can be reused but not shared, so each thread keeps its own and only makes a new one when it is
+ * given a grid of a different shape. Repeated calls on one thread allocate nothing but the solutions
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class BacktrackingEngine implements SudokuEngine
+{
+	private final ThreadLocal<BacktrackingSolver> solvers = new ThreadLocal<BacktrackingSolver>();	//the last solver used by each thread
+	
+	/**
+	 * gets the calling thread's solver, making a new one if it doesn't have one for grids of this shape
+	 * 
+	 * @param puzzle	the grid to be solved
+	 * 
+	 * @return			a solver for the grid, only to be used on this thread
+	 */
+	private BacktrackingSolver solverFor(Grid puzzle)
+	{
+		BacktrackingSolver solver = solvers.get();
+		if(solver == null || !solver.fits(puzzle))
+		{
+			solver = new BacktrackingSolver(puzzle.getSubgridWidth(), puzzle.getSubgridHeight());
+			solvers.set(solver);
+		}
+		return solver;
+	}
+	
+	public void solve(Grid puzzle, SolutionCollector collector)
+	{
+		solverFor(puzzle).solve(puzzle, collector);
+	}
+	
+	@Override
+	public long count(Grid puzzle, long maxSolutions)
+	{
+		return solverFor(puzzle).count(puzzle, maxSolutions);
+	}
+	
+	public long count(Grid puzzle, long maxSolutions, Grid firstSolution)
+	{
+		return solverFor(puzzle).count(puzzle, maxSolutions, firstSolution);
+	}
+}
\ No newline at end of file
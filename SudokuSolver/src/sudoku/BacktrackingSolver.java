@@ -0,0 +1,1196 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Solves a sudoku grid by backtracking search with constraint propagation.
+ * 
+ * The values used in each row, column and sub-grid, and the possible values of each grid-square, are
+ * kept as long bitmasks where bit n is set for the value n, so any grid up to 63x63 can be solved. At every
+ * step of the search forced values are filled in first, then the search branches on the unfilled square with
+ * the fewest possible values.
+ * 
+ * Uses no AWT classes so it can be run on a headless server. An instance is not thread safe, but can be
+ * reused for any number of grids of the same shape
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class BacktrackingSolver
+{
+	/*
+	 * Grid Properties
+	 */
+	private final int gridSize;			//number of rows, columns and values in the grid
+	private final int subgridWidth;		//width of the sub-grids
+	private final int subgridHeight;	//height of the sub-grids
+	private final int subgridsPerRow;	//number of sub-grids across the grid
+	private final int squareCount;		//total number of grid-squares
+	private final long allValues;		//bitmask with the bit of every valid value set
+	
+	/*
+	 * grid-squares are numbered row * gridSize + column. units lists the squares of each row, then
+	 * each column, then each sub-grid. peers lists the squares sharing a row, column or sub-grid with each square
+	 */
+	private final int[][] units;
+	private final int[][] peers;
+	
+	/*
+	 * the row, column and sub-grid of each square, looked up rather than divided out in the search
+	 */
+	private final int[] rowOf;
+	private final int[] columnOf;
+	private final int[] subgridOf;
+	
+	/*
+	 * the grid being solved, one value per square, and bitmasks of the values already used in each row,
+	 * column and sub-grid. these are kept up to date as values are placed and removed
+	 */
+	private final int[] values;
+	private final long[] rowMasks;
+	private final long[] columnMasks;
+	private final long[] subgridMasks;
+	
+	/*
+	 * search state. candidateStack holds the possible values of every grid-square at each depth of the
+	 * search, so a branch can be abandoned without undoing its eliminations. each depth is only allocated
+	 * once the search first reaches it, since large grids rarely go more than a few hundred branches deep.
+	 * placedSquares records the squares filled in so far, in order, so they can be emptied again when backtracking
+	 */
+	private final long[][] candidateStack;
+	private final int[] placedSquares;
+	private int placedCount;
+	private int filledCount;	//number of squares filled in, clues included
+	
+	/*
+	 * the combined possible values of the squares where each row or column crosses each sub-grid,
+	 * used when looking for pointing pairs and box/line reductions
+	 */
+	private final long[][] rowSegments;
+	private final long[][] columnSegments;
+	
+	/*
+	 * a value with only two possible squares in a row, column or sub-grid, found by findPair
+	 */
+	private long pairBit;
+	private final int[] pairSquares = new int[2];
+	
+	/*
+	 * where solutions are sent, null when only counting them, and whether the search has been asked to stop
+	 */
+	private SolutionCollector collector;
+	private boolean stopped;
+	
+	/*
+	 * when counting, the number of solutions found, the number to stop at, where to copy the first one
+	 * and where to pack every solution, either of which may be null
+	 */
+	private long solutionCount;
+	private long countLimit;
+	private Grid firstSolution;
+	private SolutionStore store;
+	
+	/*
+	 * the state of a resumable search, see resume(). for each depth, the filled square count to undo to before
+	 * trying its next branch, and the branches not yet tried. a depth either branches on the values of one square,
+	 * with branchBits 0 and the values left in branchOptions, or on the two squares left for the value in branchBits,
+	 * with bit i of branchOptions set while branchSquares[2 * depth + i] is still to be tried
+	 */
+	private final int[] branchMarks;
+	private final long[] branchOptions;
+	private final long[] branchBits;
+	private final int[] branchSquares;
+	private int searchDepth;		//depth of the node being worked on, -1 once the search is finished
+	private boolean expanding;		//true if the node at searchDepth is yet to be filled in and branched on
+	private long steps;				//number of nodes visited since the search was started
+	
+	private final SearchStats stats = SearchMetrics.ENABLED ? new SearchStats() : null;	//counts of the current search, see SearchMetrics
+	
+	/*
+	 * results of resume()
+	 */
+	final static int SOLUTION_FOUND = 0;
+	final static int SEARCH_PAUSED = 1;
+	final static int SEARCH_FINISHED = 2;
+	
+	/**
+	 * Constructor for a new backtracking solver
+	 * 
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 */
+	BacktrackingSolver(int subgridWidth, int subgridHeight)
+	{
+		this.subgridWidth = subgridWidth;
+		this.subgridHeight = subgridHeight;
+		gridSize = subgridWidth * subgridHeight;
+		
+		//bit n is used for the value n, so the largest value must fit in a long
+		if(gridSize < 1 || gridSize > 63) throw new IllegalArgumentException("Unsupported grid size " + gridSize);
+		
+		subgridsPerRow = gridSize / subgridWidth;
+		squareCount = gridSize * gridSize;
+		allValues = (-1L >>> (63 - gridSize)) & ~1L;
+		
+		values = new int[squareCount];
+		rowMasks = new long[gridSize];
+		columnMasks = new long[gridSize];
+		subgridMasks = new long[gridSize];
+		candidateStack = new long[squareCount + 1][];
+		candidateStack[0] = new long[squareCount];
+		placedSquares = new int[squareCount];
+		branchMarks = new int[squareCount];
+		branchOptions = new long[squareCount];
+		branchBits = new long[squareCount];
+		branchSquares = new int[2 * squareCount];
+		rowSegments = new long[gridSize][subgridsPerRow];
+		columnSegments = new long[gridSize][gridSize / subgridHeight];
+		
+		units = new int[3 * gridSize][gridSize];
+		for(int i = 0; i < gridSize; i++)
+		{
+			int firstRow = (i / subgridsPerRow) * subgridHeight;	//first row of sub-grid i
+			int firstColumn = (i % subgridsPerRow) * subgridWidth;	//first column of sub-grid i
+			
+			for(int j = 0; j < gridSize; j++)
+			{
+				units[i][j] = i * gridSize + j;
+				units[gridSize + i][j] = j * gridSize + i;
+				units[2 * gridSize + i][j] = (firstRow + j / subgridWidth) * gridSize + firstColumn + j % subgridWidth;
+			}
+		}
+		
+		rowOf = new int[squareCount];
+		columnOf = new int[squareCount];
+		subgridOf = new int[squareCount];
+		peers = new int[squareCount][];
+		for(int square = 0; square < squareCount; square++)
+		{
+			int row = square / gridSize;
+			int column = square % gridSize;
+			rowOf[square] = row;
+			columnOf[square] = column;
+			subgridOf[square] = (row / subgridHeight) * subgridsPerRow + column / subgridWidth;
+			
+			//collect every other square in the same row, column or sub-grid, without repeats
+			ArrayList<Integer> squarePeers = new ArrayList<Integer>();
+			for(int[] unit : new int[][] {units[row], units[gridSize + column], units[2 * gridSize + subgridOf[square]]})
+			{
+				for(int peer : unit)
+				{
+					if(peer != square && !squarePeers.contains(peer)) squarePeers.add(peer);
+				}
+			}
+			
+			peers[square] = new int[squarePeers.size()];
+			for(int i = 0; i < squarePeers.size(); i++) peers[square][i] = squarePeers.get(i);
+		}
+	}
+	
+	/**
+	 * checks whether a grid has the shape this solver was made for
+	 * 
+	 * @param grid	the grid to be checked
+	 * 
+	 * @return		true if the grid's sub-grids are the same width and height as the solver's
+	 */
+	boolean fits(Grid grid)
+	{
+		return grid.getSubgridWidth() == subgridWidth && grid.getSubgridHeight() == subgridHeight;
+	}
+	
+	/**
+	 * solves the given grid, adding each solution found to the solutions list. the grid itself is not changed
+	 * 
+	 * @param inputGrid		the grid to be solved
+	 * @param solutions		the list solutions are added to
+	 * @param maxSolutions	the most solutions to add before stopping
+	 * 
+	 * @return				the number of solutions added, 0 if the grid is invalid or unsolvable
+	 */
+	int solve(Grid inputGrid, List<Grid> solutions, int maxSolutions)
+	{
+		if(maxSolutions <= 0) return 0;
+		
+		ListCollector limit = new ListCollector(solutions, maxSolutions);
+		solve(inputGrid, limit);
+		return limit.getAdded();
+	}
+	
+	/**
+	 * solves the given grid, passing each solution found to a collector until it asks for the search to stop.
+	 * the collector is also checked at every step of the search, so it can stop the search from another thread
+	 * 
+	 * @param inputGrid	the grid to be solved
+	 * @param collector	receives the solutions
+	 */
+	void solve(Grid inputGrid, SolutionCollector collector)
+	{
+		if(SearchMetrics.ENABLED) stats.start();
+		startCollecting(collector);
+		if(initialise(inputGrid)) solve(0);
+		this.collector = null;
+		if(SearchMetrics.ENABLED) stats.finish(solutionCount);
+	}
+	
+	/**
+	 * solves the given grid, passing each solution found to a collector until it asks for the search to stop.
+	 * used by ParallelSolver on the sub-grids made by branch()
+	 * 
+	 * @param inputGrid	the grid to be solved, 0 for an empty grid square
+	 * @param collector	receives the solutions
+	 */
+	void solve(int[][] inputGrid, SolutionCollector collector)
+	{
+		startCollecting(collector);
+		if(initialise(inputGrid)) solve(0);
+		this.collector = null;
+	}
+	
+	/**
+	 * counts the solutions of the given grid, stopping as soon as a set number have been found, and copies the
+	 * first solution found into a grid supplied by the caller. the grid can be reused, so nothing is allocated
+	 * 
+	 * @param inputGrid		the grid to be solved
+	 * @param maxSolutions	the number of solutions to stop counting at
+	 * @param firstSolution	the grid the first solution is copied into, may be null. left unchanged if there are no solutions
+	 * 
+	 * @return				the number of solutions found, at most maxSolutions. 0 if the grid is invalid or unsolvable
+	 */
+	long count(Grid inputGrid, long maxSolutions, Grid firstSolution)
+	{
+		if(maxSolutions <= 0) return 0;
+		
+		if(SearchMetrics.ENABLED) stats.start();
+		startCounting(maxSolutions, firstSolution, null);
+		if(initialise(inputGrid)) solve(0);
+		return finishCounting();
+	}
+	
+	/**
+	 * counts the solutions of the given grid, stopping as soon as a set number have been found. no grids are
+	 * built while counting, so nothing is allocated per solution
+	 * 
+	 * @param inputGrid		the grid to be solved
+	 * @param maxSolutions	the number of solutions to stop counting at
+	 * 
+	 * @return				the number of solutions found, at most maxSolutions. 0 if the grid is invalid or unsolvable
+	 */
+	long count(Grid inputGrid, long maxSolutions)
+	{
+		return count(inputGrid, maxSolutions, null);
+	}
+	
+	/**
+	 * solves the given grid, packing each solution found into a store. the solver's own working values are packed,
+	 * so nothing is allocated per solution beyond the store's space
+	 * 
+	 * @param inputGrid		the grid to be solved
+	 * @param store			where the solutions are packed, may be null to only count them
+	 * @param maxSolutions	the most solutions to store before stopping
+	 * 
+	 * @return				the number of solutions stored, 0 if the grid is invalid or unsolvable
+	 */
+	long solve(Grid inputGrid, SolutionStore store, long maxSolutions)
+	{
+		if(maxSolutions <= 0) return 0;
+		
+		if(SearchMetrics.ENABLED) stats.start();
+		startCounting(maxSolutions, null, store);
+		if(initialise(inputGrid)) solve(0);
+		return finishCounting();
+	}
+	
+	/**
+	 * checks whether the given grid has exactly one solution, the search stops as soon as a second is found
+	 * 
+	 * @param inputGrid	the grid to be checked
+	 * 
+	 * @return			true if the grid has one solution, false if it has none, several, or is invalid
+	 */
+	boolean isUnique(Grid inputGrid)
+	{
+		return count(inputGrid, 2) == 1;
+	}
+	
+	/**
+	 * checks whether a grid has a solution with a given empty square holding some other value than the one given.
+	 * if the grid with the value filled in is known to have one solution, this tells whether emptying the square
+	 * keeps it unique, and is quicker than counting to two since the known solution is never searched for
+	 * 
+	 * @param inputGrid	the grid to be checked
+	 * @param square	an empty square of the grid
+	 * @param value		the value the square may not hold
+	 * 
+	 * @return			true if there is such a solution, false if there isn't or the grid is invalid
+	 */
+	boolean hasSolutionWithout(Grid inputGrid, int square, int value)
+	{
+		if(SearchMetrics.ENABLED) stats.start();
+		startCounting(1, null, null);
+		if(initialise(inputGrid))
+		{
+			candidateStack[0][square] &= ~(1L << value);
+			solve(0);
+		}
+		return finishCounting() > 0;
+	}
+	
+	/**
+	 * starts a resumable search of the given grid, which finds one solution at a time with resume(). calling any
+	 * other solving method ends the search
+	 * 
+	 * @param inputGrid	the grid to be solved
+	 * 
+	 * @return			false if the grid is invalid, in which case the search is already finished
+	 */
+	boolean start(Grid inputGrid)
+	{
+		return start(initialise(inputGrid));
+	}
+	
+	/**
+	 * sets up a resumable search at the top of the search tree
+	 * 
+	 * @param valid	whether the grid was initialised successfully
+	 * 
+	 * @return		valid
+	 */
+	private boolean start(boolean valid)
+	{
+		this.collector = null;
+		this.stopped = false;
+		this.solutionCount = 0;
+		
+		searchDepth = valid ? 0 : -1;
+		expanding = true;
+		steps = 0;
+		return valid;
+	}
+	
+	/**
+	 * carries on the search begun by start() from where it last stopped, until the next solution is found or a
+	 * set number of steps have been taken. the search is the same as solve(int), with its recursion kept in
+	 * branchMarks and friends instead of on the call stack, so it can be left and picked up again at any point
+	 * 
+	 * once a solution is found it is held in the working values until resume() is next called, see getSolution()
+	 * 
+	 * @param maxSteps	the most nodes of the search tree to visit before pausing
+	 * 
+	 * @return			SOLUTION_FOUND, SEARCH_PAUSED if maxSteps ran out first, or SEARCH_FINISHED
+	 * 					once every solution has been found
+	 */
+	int resume(long maxSteps)
+	{
+		long stepsLeft = maxSteps;
+		
+		while(searchDepth >= 0)
+		{
+			if(expanding)
+			{
+				if(stepsLeft-- <= 0) return SEARCH_PAUSED;
+				steps++;
+				expanding = false;
+				
+				long[] candidates = candidateStack[searchDepth];
+				
+				//if the forced values show the grid is impossible, go back up and try the next branch
+				if(!propagate(candidates))
+				{
+					searchDepth--;
+					continue;
+				}
+				
+				int bestSquare = chooseSquare(candidates);
+				
+				//every square is filled, leave the solution in place until the search is resumed
+				if(bestSquare == -1)
+				{
+					searchDepth--;
+					solutionCount++;
+					return SOLUTION_FOUND;
+				}
+				
+				setBranches(searchDepth, bestSquare, candidates);
+			}
+			
+			//empty every square filled in by the last branch tried at this depth
+			undo(branchMarks[searchDepth]);
+			
+			//once every branch has been tried, go back up
+			long options = branchOptions[searchDepth];
+			if(options == 0)
+			{
+				searchDepth--;
+				continue;
+			}
+			
+			long option = options & -options;
+			branchOptions[searchDepth] = options ^ option;
+			
+			int square;
+			long bit;
+			if(branchBits[searchDepth] == 0)
+			{
+				square = branchSquares[2 * searchDepth];
+				bit = option;
+			}
+			else
+			{
+				square = branchSquares[2 * searchDepth + Long.numberOfTrailingZeros(option)];
+				bit = branchBits[searchDepth];
+			}
+			
+			//fill in the square on a copy of the candidates, and work on the new node next
+			long[] next = nextCandidates(searchDepth);
+			System.arraycopy(candidateStack[searchDepth], 0, next, 0, squareCount);
+			if(place(square, bit, next))
+			{
+				searchDepth++;
+				expanding = true;
+			}
+		}
+		return SEARCH_FINISHED;
+	}
+	
+	/**
+	 * copies the solution last found by resume() into a new grid
+	 * 
+	 * @return	the solved grid
+	 */
+	Grid getSolution()
+	{
+		return buildGrid();
+	}
+	
+	/**
+	 * the number of nodes of the search tree visited since start() was called
+	 * 
+	 * @return	the number of steps taken
+	 */
+	long getSteps()
+	{
+		return steps;
+	}
+	
+	/**
+	 * sets up the search state for counting solutions rather than passing them to a collector
+	 * 
+	 * @param maxSolutions	the number of solutions to stop at
+	 * @param firstSolution	the grid the first solution is copied into, may be null
+	 * @param store			where every solution is packed, may be null
+	 */
+	private void startCounting(long maxSolutions, Grid firstSolution, SolutionStore store)
+	{
+		this.collector = null;
+		this.stopped = false;
+		this.solutionCount = 0;
+		this.countLimit = maxSolutions;
+		this.firstSolution = firstSolution;
+		this.store = store;
+	}
+	
+	/**
+	 * sets up the search state for passing every solution to a collector
+	 * 
+	 * @param collector	receives the solutions
+	 */
+	private void startCollecting(SolutionCollector collector)
+	{
+		this.collector = collector;
+		this.stopped = false;
+		this.solutionCount = 0;
+		this.countLimit = Long.MAX_VALUE;
+	}
+	
+	/**
+	 * lets go of the caller's grid and store once counting has finished
+	 * 
+	 * @return	the number of solutions found
+	 */
+	private long finishCounting()
+	{
+		this.firstSolution = null;
+		this.store = null;
+		if(SearchMetrics.ENABLED) stats.finish(solutionCount);
+		return solutionCount;
+	}
+	
+	/**
+	 * fills in the forced values of a grid, then splits it into one sub-grid for each possible value of its most
+	 * constrained square. the sub-grids have no solutions in common, and between them have every solution of the grid,
+	 * so they can be solved independently
+	 * 
+	 * if the forced values fill the whole grid, the solved grid is added as the only sub-grid
+	 * 
+	 * @param inputGrid	the grid to be split, 0 for an empty grid square
+	 * @param subgrids	the list the sub-grids are added to
+	 * 
+	 * @return			the number of sub-grids added, 0 if the grid is invalid or found to be unsolvable
+	 */
+	int branch(int[][] inputGrid, List<int[][]> subgrids)
+	{
+		if(!initialise(inputGrid) || !propagate(candidateStack[0])) return 0;
+		
+		int square = chooseSquare(candidateStack[0]);
+		
+		if(square == -1)
+		{
+			subgrids.add(buildSolution());
+			return 1;
+		}
+		
+		//one copy of the grid for each possible value of the square
+		int count = 0;
+		for(long remaining = candidateStack[0][square]; remaining != 0; remaining &= remaining - 1)
+		{
+			int[][] subgrid = buildSolution();
+			subgrid[rowOf[square]][columnOf[square]] = Long.numberOfTrailingZeros(remaining);
+			subgrids.add(subgrid);
+			count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * checks that every value in a grid is in range and that no value is repeated in a row, column or sub-grid
+	 * 
+	 * @param inputGrid	the grid to be checked
+	 * 
+	 * @return			the validity of the grid
+	 */
+	boolean isValid(Grid inputGrid)
+	{
+		return initialise(inputGrid);
+	}
+	
+	/**
+	 * copies a grid into the working values, then sets up the search, see initialise()
+	 * 
+	 * @param inputGrid	the grid to be solved
+	 * 
+	 * @return			false if a value is out of range or used twice in a row, column or sub-grid
+	 */
+	private boolean initialise(int[][] inputGrid)
+	{
+		for(int square = 0; square < squareCount; square++) values[square] = inputGrid[rowOf[square]][columnOf[square]];
+		return initialise();
+	}
+	
+	/**
+	 * copies a grid into the working values, then sets up the search, see initialise()
+	 * 
+	 * @param inputGrid	the grid to be solved
+	 * 
+	 * @return			false if a value is out of range or used twice in a row, column or sub-grid
+	 */
+	private boolean initialise(Grid inputGrid)
+	{
+		if(!fits(inputGrid)) throw new IllegalArgumentException("Expected " + subgridWidth + "x" + subgridHeight + " sub-grids");
+		
+		for(int square = 0; square < squareCount; square++) values[square] = inputGrid.get(square);
+		return initialise();
+	}
+	
+	/**
+	 * builds the row, column and sub-grid bitmasks of the working values and the candidates used at the
+	 * top of the search
+	 * 
+	 * @return	false if a value is out of range or used twice in a row, column or sub-grid
+	 */
+	private boolean initialise()
+	{
+		//forget any previously used values
+		for(int i = 0; i < gridSize; i++)
+		{
+			rowMasks[i] = 0;
+			columnMasks[i] = 0;
+			subgridMasks[i] = 0;
+		}
+		placedCount = 0;
+		filledCount = 0;
+		
+		for(int square = 0; square < squareCount; square++)
+		{
+			int value = values[square];
+			
+			if(value == 0) continue;
+			if(value < 0 || value > gridSize) return false;
+			
+			//mark each filled value as used in its row, column and sub-grid, unless it already is
+			long bit = 1L << value;
+			int row = rowOf[square];
+			int column = columnOf[square];
+			int subgrid = subgridOf[square];
+			if(((rowMasks[row] | columnMasks[column] | subgridMasks[subgrid]) & bit) != 0) return false;
+			
+			rowMasks[row] |= bit;
+			columnMasks[column] |= bit;
+			subgridMasks[subgrid] |= bit;
+			filledCount++;
+		}
+		
+		//every unfilled square starts with the values not used by its peers
+		for(int square = 0; square < squareCount; square++)
+		{
+			candidateStack[0][square] = values[square] == 0 ? candidatesOf(square) : 0;
+		}
+		return true;
+	}
+	
+	/**
+	 * solves the grid from a given depth of the search. first fills in every forced value, then branches on
+	 * the most constrained unfilled square, so most grids are solved without branching at all
+	 * and the time taken doesn't depend on where in the grid the clues happen to be
+	 * 
+	 * squares filled in here are left for the caller to undo
+	 * 
+	 * @param depth	the number of branches taken to reach this point, selects the candidates to work on
+	 */
+	private void solve(int depth)
+	{
+		//if enough solutions have already been found, do nothing and return
+		if(stopped || (collector != null && collector.isDone())) return;
+		
+		if(SearchMetrics.ENABLED)
+		{
+			stats.nodes++;
+			if(depth > stats.maxDepth) stats.maxDepth = depth;
+		}
+		
+		long[] candidates = candidateStack[depth];
+		
+		//fill in forced values, if this shows the grid is impossible, this branch can't lead to a solution
+		if(!propagate(candidates))
+		{
+			if(SearchMetrics.ENABLED) stats.backtracks++;
+			return;
+		}
+		
+		int bestSquare = chooseSquare(candidates);
+		
+		//if no unfilled space was found, all spaces are filled
+		if(bestSquare == -1)
+		{
+			foundSolution();
+			return;
+		}
+		
+		//a square with two possible values is as narrow a branch as there is. without one, a value with only two
+		//possible squares left in a row, column or sub-grid splits the search just as well. this matters on large
+		//grids, where squares have many possible values but values are often pinned down to a couple of places
+		if(Long.bitCount(candidates[bestSquare]) > 2 && findPair(candidates))
+		{
+			//keep the pair, since searching the first square finds pairs of its own
+			long bit = pairBit;
+			int firstSquare = pairSquares[0];
+			int secondSquare = pairSquares[1];
+			
+			//try the value in each of its two squares
+			for(int i = 0; i < 2 && !stopped; i++)
+			{
+				long[] next = nextCandidates(depth);
+				System.arraycopy(candidates, 0, next, 0, squareCount);
+				int mark = placedCount;
+				
+				if(place(i == 0 ? firstSquare : secondSquare, bit, next)) solve(depth + 1);
+				else if(SearchMetrics.ENABLED) stats.backtracks++;
+				
+				undo(mark);
+			}
+			return;
+		}
+		
+		long remaining = candidates[bestSquare];
+		
+		//loop through the possible values, lowest first, until the search is stopped
+		while(remaining != 0 && !stopped)
+		{
+			long bit = remaining & -remaining;	//isolate the lowest candidate bit
+			remaining ^= bit;					//and remove it from the remaining candidates
+			
+			//work on a copy of the candidates so they are untouched when trying the next value
+			long[] next = nextCandidates(depth);
+			System.arraycopy(candidates, 0, next, 0, squareCount);
+			int mark = placedCount;
+			
+			//fill in with that value and solve the rest of the grid
+			if(place(bestSquare, bit, next)) solve(depth + 1);
+			else if(SearchMetrics.ENABLED) stats.backtracks++;
+			
+			//if here, solving has finished, successfully or otherwise
+			//empty every square filled in since trying the value
+			undo(mark);
+		}
+	}
+	
+	/**
+	 * records the branches to try at a depth of a resumable search, chosen the same way as in solve(int)
+	 * 
+	 * @param depth			the depth of the search
+	 * @param bestSquare	the most constrained unfilled square
+	 * @param candidates	the possible values of each square at that depth
+	 */
+	private void setBranches(int depth, int bestSquare, long[] candidates)
+	{
+		branchMarks[depth] = placedCount;
+		
+		if(Long.bitCount(candidates[bestSquare]) > 2 && findPair(candidates))
+		{
+			branchBits[depth] = pairBit;
+			branchOptions[depth] = 3;	//both squares
+			branchSquares[2 * depth] = pairSquares[0];
+			branchSquares[2 * depth + 1] = pairSquares[1];
+		}
+		else
+		{
+			branchBits[depth] = 0;
+			branchOptions[depth] = candidates[bestSquare];
+			branchSquares[2 * depth] = bestSquare;
+		}
+	}
+	
+	/**
+	 * looks for a value which can only go in two squares of a row, column or sub-grid, and stores it and its squares
+	 * in pairBit and pairSquares
+	 * 
+	 * @param candidates	the possible values of each square, 0 for filled squares
+	 * 
+	 * @return				true if such a value was found
+	 */
+	private boolean findPair(long[] candidates)
+	{
+		for(int unit = 0; unit < units.length; unit++)
+		{
+			long once = 0;		//values possible in at least one square of the unit
+			long twice = 0;		//values possible in at least two squares of the unit
+			long thrice = 0;	//values possible in at least three squares of the unit
+			
+			for(int square : units[unit])
+			{
+				thrice |= twice & candidates[square];
+				twice |= once & candidates[square];
+				once |= candidates[square];
+			}
+			
+			long pairs = twice & ~thrice;
+			if(pairs == 0) continue;
+			
+			//take the lowest value with two squares and find them
+			pairBit = pairs & -pairs;
+			int found = 0;
+			for(int i = 0; found < 2; i++)
+			{
+				if((candidates[units[unit][i]] & pairBit) != 0) pairSquares[found++] = units[unit][i];
+			}
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * finds the candidates array for the next depth of the search, allocating it the first time that depth is reached
+	 * 
+	 * @param depth	the current depth of the search
+	 * 
+	 * @return		the candidates array for depth + 1
+	 */
+	private long[] nextCandidates(int depth)
+	{
+		if(candidateStack[depth + 1] == null) candidateStack[depth + 1] = new long[squareCount];
+		return candidateStack[depth + 1];
+	}
+	
+	/**
+	 * records the current state of the grid as a solution. when counting, only the first solution is copied out,
+	 * into the caller's grid, and every solution is packed into the store if there is one. otherwise a copy of
+	 * the grid is passed to the collector
+	 */
+	private void foundSolution()
+	{
+		solutionCount++;
+		
+		if(collector == null)
+		{
+			if(solutionCount == 1 && firstSolution != null)
+			{
+				for(int square = 0; square < squareCount; square++) firstSolution.set(square, values[square]);
+			}
+			if(store != null) store.add(values);
+		}
+		else if(!collector.add(buildGrid()))
+		{
+			stopped = true;
+		}
+		
+		//stop the whole search the moment the limit is reached
+		if(solutionCount >= countLimit) stopped = true;
+	}
+	
+	/**
+	 * picks the square to branch on, the unfilled square with the fewest possible values. on a tie, the square
+	 * sharing a row, column or sub-grid with the most unfilled squares is picked, since filling it in narrows the
+	 * rest of the search the most
+	 * 
+	 * @param candidates	the possible values of each square, 0 for filled squares
+	 * 
+	 * @return				the square to branch on, -1 if every square is filled
+	 */
+	private int chooseSquare(long[] candidates)
+	{
+		//the most constrained unfilled square found so far
+		int bestSquare = -1;
+		int bestCount = gridSize + 1;	//number of possible values in the best square
+		int bestDegree = -1;			//number of unfilled squares sharing a row, column or sub-grid with it
+		
+		//loop through each square
+		for(int square = 0; square < squareCount; square++)
+		{
+			int count = Long.bitCount(candidates[square]);
+			
+			//skip over filled squares and squares with more options than the best so far
+			if(count == 0 || count > bestCount) continue;
+			
+			int degree = unfilledPeers(square);
+			
+			//on a tie, prefer the square which constrains the most other unfilled squares
+			if(count < bestCount || degree > bestDegree)
+			{
+				bestSquare = square;
+				bestCount = count;
+				bestDegree = degree;
+			}
+		}
+		
+		return bestSquare;
+	}
+	
+	/**
+	 * repeatedly fills in forced values and removes impossible candidates until nothing more can be deduced.
+	 * cheap deductions are tried first:
+	 * 	- naked singles		(a square with only one possible value)
+	 * 	- hidden singles	(a value with only one possible square in a row, column or sub-grid)
+	 * 	- pointing pairs and box/line reductions, see reduceIntersections
+	 * 
+	 * @param candidates	the possible values of each square, 0 for filled squares
+	 * 
+	 * @return				false if the grid was found to be impossible
+	 */
+	private boolean propagate(long[] candidates)
+	{
+		boolean changed = true;
+		
+		while(changed)
+		{
+			//once every square is filled there is nothing left to deduce
+			if(filledCount == squareCount) return true;
+			
+			changed = false;
+			
+			//naked singles
+			for(int square = 0; square < squareCount; square++)
+			{
+				long possible = candidates[square];
+				
+				//an unfilled square with no possible values can never be filled
+				if(possible == 0 && values[square] == 0) return false;
+				
+				//if exactly one bit is set, the square can only take that value
+				if(possible != 0 && (possible & (possible - 1)) == 0)
+				{
+					if(!place(square, possible, candidates)) return false;
+					changed = true;
+				}
+			}
+			
+			//hidden singles
+			for(int unit = 0; unit < units.length; unit++)
+			{
+				long once = 0;	//values possible in at least one square of the unit
+				long twice = 0;	//values possible in at least two squares of the unit
+				
+				for(int square : units[unit])
+				{
+					twice |= once & candidates[square];
+					once |= candidates[square];
+				}
+				
+				//if a value is neither used nor possible anywhere in the unit, the grid is impossible
+				if((once | unitMask(unit)) != allValues) return false;
+				
+				//place each value which can only go in one square
+				for(long singles = once & ~twice; singles != 0; singles &= singles - 1)
+				{
+					long bit = singles & -singles;
+					int square = -1;
+					
+					for(int i = 0; i < units[unit].length && square == -1; i++)
+					{
+						if((candidates[units[unit][i]] & bit) != 0) square = units[unit][i];
+					}
+					
+					//if the square has been filled with another single, the value has nowhere left to go
+					if(square == -1 || !place(square, bit, candidates)) return false;
+					changed = true;
+				}
+			}
+			
+			//only look for harder deductions once the singles have run out
+			if(!changed) changed = reduceIntersections(candidates);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * looks at where each row and column crosses each sub-grid
+	 * 	- if a value can only go in the crossing within the sub-grid, it can't go anywhere else in the row or column (pointing pair)
+	 * 	- if a value can only go in the crossing within the row or column, it can't go anywhere else in the sub-grid (box/line reduction)
+	 * 
+	 * @param candidates	the possible values of each square, 0 for filled squares
+	 * 
+	 * @return				true if any candidates were removed
+	 */
+	private boolean reduceIntersections(long[] candidates)
+	{
+		//combine the candidates of each crossing
+		for(int row = 0; row < gridSize; row++)
+		{
+			for(int block = 0; block < subgridsPerRow; block++)
+			{
+				rowSegments[row][block] = 0;
+				for(int i = 0; i < subgridWidth; i++) rowSegments[row][block] |= candidates[row * gridSize + block * subgridWidth + i];
+			}
+		}
+		for(int column = 0; column < gridSize; column++)
+		{
+			for(int block = 0; block < columnSegments[column].length; block++)
+			{
+				columnSegments[column][block] = 0;
+				for(int i = 0; i < subgridHeight; i++) columnSegments[column][block] |= candidates[(block * subgridHeight + i) * gridSize + column];
+			}
+		}
+		
+		boolean changed = false;
+		
+		for(int row = 0; row < gridSize; row++)
+		{
+			int firstRow = (row / subgridHeight) * subgridHeight;	//first row of the sub-grids this row crosses
+			
+			for(int block = 0; block < subgridsPerRow; block++)
+			{
+				long restOfRow = 0;
+				long restOfSubgrid = 0;
+				for(int other = 0; other < subgridsPerRow; other++)
+				{
+					if(other != block) restOfRow |= rowSegments[row][other];
+				}
+				for(int other = firstRow; other < firstRow + subgridHeight; other++)
+				{
+					if(other != row) restOfSubgrid |= rowSegments[other][block];
+				}
+				
+				long pointing = rowSegments[row][block] & ~restOfSubgrid & restOfRow;
+				long boxLine = rowSegments[row][block] & ~restOfRow & restOfSubgrid;
+				
+				//remove pointing values from the rest of the row
+				if(pointing != 0)
+				{
+					for(int column = 0; column < gridSize; column++)
+					{
+						if(column / subgridWidth != block) changed |= eliminate(row * gridSize + column, pointing, candidates);
+					}
+				}
+				//remove box/line values from the rest of the sub-grid
+				if(boxLine != 0)
+				{
+					for(int other = firstRow; other < firstRow + subgridHeight; other++)
+					{
+						for(int i = 0; other != row && i < subgridWidth; i++) changed |= eliminate(other * gridSize + block * subgridWidth + i, boxLine, candidates);
+					}
+				}
+			}
+		}
+		
+		//the same for columns. values removed above only make the combined candidates too generous, so these may miss
+		//a deduction but never make a wrong one. it will be found on the next pass
+		for(int column = 0; column < gridSize; column++)
+		{
+			int firstColumn = (column / subgridWidth) * subgridWidth;	//first column of the sub-grids this column crosses
+			
+			for(int block = 0; block < columnSegments[column].length; block++)
+			{
+				long restOfColumn = 0;
+				long restOfSubgrid = 0;
+				for(int other = 0; other < columnSegments[column].length; other++)
+				{
+					if(other != block) restOfColumn |= columnSegments[column][other];
+				}
+				for(int other = firstColumn; other < firstColumn + subgridWidth; other++)
+				{
+					if(other != column) restOfSubgrid |= columnSegments[other][block];
+				}
+				
+				long pointing = columnSegments[column][block] & ~restOfSubgrid & restOfColumn;
+				long boxLine = columnSegments[column][block] & ~restOfColumn & restOfSubgrid;
+				
+				//remove pointing values from the rest of the column
+				if(pointing != 0)
+				{
+					for(int row = 0; row < gridSize; row++)
+					{
+						if(row / subgridHeight != block) changed |= eliminate(row * gridSize + column, pointing, candidates);
+					}
+				}
+				//remove box/line values from the rest of the sub-grid
+				if(boxLine != 0)
+				{
+					for(int other = firstColumn; other < firstColumn + subgridWidth; other++)
+					{
+						for(int i = 0; other != column && i < subgridHeight; i++) changed |= eliminate((block * subgridHeight + i) * gridSize + other, boxLine, candidates);
+					}
+				}
+			}
+		}
+		
+		return changed;
+	}
+	
+	/**
+	 * removes values from the candidates of a square
+	 * 
+	 * @param square		the square to remove them from
+	 * @param values		bitmask of the values to remove
+	 * @param candidates	the possible values of each square
+	 * 
+	 * @return				true if the square had any of the values
+	 */
+	private boolean eliminate(int square, long values, long[] candidates)
+	{
+		if((candidates[square] & values) == 0) return false;
+		
+		candidates[square] &= ~values;
+		return true;
+	}
+	
+	/**
+	 * fills in a square, marks the value as used and removes it from the candidates of the square's peers
+	 * 
+	 * @param square		the square to fill in
+	 * @param bit			bitmask of the value to fill it with
+	 * @param candidates	the possible values of each square
+	 * 
+	 * @return				false if the value was not possible there, or a peer was left with no possible values
+	 */
+	private boolean place(int square, long bit, long[] candidates)
+	{
+		if(SearchMetrics.ENABLED) stats.candidateChecks++;
+		if((candidates[square] & bit) == 0) return false;
+		
+		//fill in the value and mark it as used
+		values[square] = Long.numberOfTrailingZeros(bit);
+		rowMasks[rowOf[square]] |= bit;
+		columnMasks[columnOf[square]] |= bit;
+		subgridMasks[subgridOf[square]] |= bit;
+		candidates[square] = 0;
+		placedSquares[placedCount++] = square;
+		filledCount++;
+		
+		boolean possible = true;
+		for(int peer : peers[square])
+		{
+			//a peer which had this value as its only option is now impossible
+			if(candidates[peer] == bit) possible = false;
+			candidates[peer] &= ~bit;
+		}
+		return possible;
+	}
+	
+	/**
+	 * empties the squares filled in since a given point, most recent first, and marks their values as unused
+	 * 
+	 * @param mark	the number of filled squares to keep
+	 */
+	private void undo(int mark)
+	{
+		while(placedCount > mark)
+		{
+			int square = placedSquares[--placedCount];
+			long bit = 1L << values[square];
+			
+			values[square] = 0;
+			filledCount--;
+			rowMasks[rowOf[square]] &= ~bit;
+			columnMasks[columnOf[square]] &= ~bit;
+			subgridMasks[subgridOf[square]] &= ~bit;
+		}
+	}
+	
+	/**
+	 * finds the values already used in a row, column or sub-grid
+	 * 
+	 * @param unit	the index of the unit in units
+	 * 
+	 * @return		bitmask of the used values
+	 */
+	private long unitMask(int unit)
+	{
+		if(unit < gridSize) return rowMasks[unit];
+		if(unit < 2 * gridSize) return columnMasks[unit - gridSize];
+		return subgridMasks[unit - 2 * gridSize];
+	}
+	
+	/**
+	 * finds the values which could go in a grid square, those not already used in its row, column or sub-grid
+	 * 
+	 * @param square	the grid square
+	 * 
+	 * @return			bitmask with bit n set if value n is possible
+	 */
+	private long candidatesOf(int square)
+	{
+		return allValues & ~(rowMasks[rowOf[square]] | columnMasks[columnOf[square]] | subgridMasks[subgridOf[square]]);
+	}
+	
+	/**
+	 * estimates how many unfilled squares share a row, column or sub-grid with a given square. each value
+	 * appears at most once per row, column and sub-grid so the filled squares can be counted from the bitmasks.
+	 * squares in both the sub-grid and the row or column are counted twice, which is fine for comparing squares
+	 * 
+	 * @param square	the grid square
+	 * 
+	 * @return			the number of unfilled peers of the square
+	 */
+	private int unfilledPeers(int square)
+	{
+		return 3 * gridSize - 3	//all squares in the units, less the square itself
+				- Long.bitCount(rowMasks[rowOf[square]])
+				- Long.bitCount(columnMasks[columnOf[square]])
+				- Long.bitCount(subgridMasks[subgridOf[square]]);
+	}
+	
+	/**
+	 * copies the working values into a new grid
+	 * 
+	 * @return	the copy of the grid
+	 */
+	private int[][] buildSolution()
+	{
+		int[][] copy = new int[gridSize][gridSize];
+		for(int square = 0; square < squareCount; square++) copy[rowOf[square]][columnOf[square]] = values[square];
+		return copy;
+	}
+	
+	/**
+	 * copies the working values into a new flat grid
+	 * 
+	 * @return	the copy of the grid
+	 */
+	private Grid buildGrid()
+	{
+		Grid copy = new Grid(subgridWidth, subgridHeight);
+		for(int square = 0; square < squareCount; square++) copy.set(square, values[square]);
+		return copy;
+	}
+}
\ No newline at end of file
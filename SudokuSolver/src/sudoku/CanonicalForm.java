@@ -0,0 +1,564 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The minlex form of a puzzle, and the transform which takes the puzzle to it.
+ * 
+ * Relabelling the values, transposing a grid with square sub-grids, reordering the bands and the rows within
+ * each band, and reordering the stacks and the columns within each stack all turn a puzzle into an equivalent
+ * one, whose solutions are the transformed solutions of the original. The minlex form is the smallest of all
+ * the equivalent puzzles read left to right, top to bottom, with the values relabelled in order of first
+ * appearance. Equivalent puzzles have the same minlex form, so it can be used to recognise a puzzle that has
+ * been seen before in another guise.
+ * 
+ * The form is found a row at a time, keeping every partial transform which gives the smallest rows so far.
+ * The column order is only settled as far as the rows placed so far need: columns which look the same in
+ * every one of them are kept together in a cell, in no particular order, and the stacks likewise, so a first row
+ * of mostly empty squares doesn't try every order of its empty columns. A puzzle with many symmetries, such as
+ * a nearly empty one, still keeps too many partial transforms, so the search gives up once it passes a set
+ * number. An invalid puzzle has no form, as the search relies on no value being repeated in a row
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+final class CanonicalForm
+{
+	/*
+	 * Grid Properties
+	 */
+	private final int subgridWidth;		//width of the sub-grids
+	private final int subgridHeight;	//height of the sub-grids
+	private final int gridSize;			//number of rows, columns and values in the grid
+	
+	/*
+	 * the transform. the grid is transposed first if transposed is set, then row r of the form is row rows[r]
+	 * of the grid, column c is column columns[c], and each value v is relabelled labels[v]
+	 */
+	private final boolean transposed;
+	private final int[] rows;
+	private final int[] columns;
+	private final int[] labels;
+	private final int[] values;	//the inverse of labels
+	
+	private final Grid form;	//the minlex form of the puzzle
+	
+	/**
+	 * Constructor for a found transform, which also completes the relabelling
+	 * 
+	 * @param puzzle		the puzzle
+	 * @param transposed	whether the puzzle is transposed first
+	 * @param rows			the row of the puzzle which each row of the form comes from
+	 * @param columns		the column of the puzzle which each column of the form comes from
+	 * @param labels		the new label of each value of the puzzle, 0 for a value not in the puzzle
+	 * @param nextLabel		the first label not yet used
+	 */
+	private CanonicalForm(Grid puzzle, boolean transposed, int[] rows, int[] columns, int[] labels, int nextLabel)
+	{
+		this.subgridWidth = puzzle.getSubgridWidth();
+		this.subgridHeight = puzzle.getSubgridHeight();
+		this.gridSize = puzzle.getSize();
+		this.transposed = transposed;
+		this.rows = rows;
+		this.columns = columns;
+		this.labels = labels;
+		
+		//values missing from the puzzle take the remaining labels in order, so solutions can be transformed too
+		for(int value = 1; value <= gridSize; value++)
+		{
+			if(labels[value] == 0) labels[value] = nextLabel++;
+		}
+		values = new int[gridSize + 1];
+		for(int value = 1; value <= gridSize; value++) values[labels[value]] = value;
+		
+		form = toForm(puzzle);
+	}
+	
+	/**
+	 * finds the minlex form of a puzzle
+	 * 
+	 * @param puzzle	the puzzle, 0 for an empty grid square
+	 * @param maxStates	the most partial transforms to keep at once before giving up
+	 * 
+	 * @return			the form and its transform, or null if the puzzle is invalid or the search gave up
+	 */
+	static CanonicalForm of(Grid puzzle, int maxStates)
+	{
+		if(!puzzle.isValid()) return null;
+		return new Search(puzzle, maxStates).run();
+	}
+	
+	/**
+	 * @return	the minlex form of the puzzle
+	 */
+	Grid getForm()
+	{
+		return form;
+	}
+	
+	/**
+	 * transforms a grid, such as a solution of the puzzle, the same way as the puzzle
+	 * 
+	 * @param grid	a grid the same shape as the puzzle
+	 * 
+	 * @return		a new grid, transformed
+	 */
+	Grid toForm(Grid grid)
+	{
+		Grid transformed = new Grid(subgridWidth, subgridHeight);
+		for(int row = 0; row < gridSize; row++)
+		{
+			for(int column = 0; column < gridSize; column++)
+			{
+				int value = transposed ? grid.get(columns[column], rows[row]) : grid.get(rows[row], columns[column]);
+				transformed.set(row, column, labels[value]);
+			}
+		}
+		return transformed;
+	}
+	
+	/**
+	 * undoes the transform, so a solution of the form becomes a solution of the puzzle
+	 * 
+	 * @param grid	a grid the same shape as the form
+	 * 
+	 * @return		a new grid, transformed back
+	 */
+	Grid fromForm(Grid grid)
+	{
+		Grid original = new Grid(subgridWidth, subgridHeight);
+		for(int row = 0; row < gridSize; row++)
+		{
+			for(int column = 0; column < gridSize; column++)
+			{
+				int value = values[grid.get(row, column)];
+				if(transposed) original.set(columns[column], rows[row], value);
+				else original.set(rows[row], columns[column], value);
+			}
+		}
+		return original;
+	}
+	
+	/**
+	 * the search for the minlex form of one puzzle.
+	 * 
+	 * each row of the grid which can come next is tried after each partial transform kept. the squares of the
+	 * row are sorted within each cell of columns, new values last as they take the next labels, then the stacks
+	 * are sorted within each cell of stacks, giving the smallest the row can be. cells are split wherever the
+	 * row tells their columns or stacks apart. columns or stacks tied in a cell which hold new values can't be
+	 * left unordered, as the order decides which value takes which label, so a transform is kept for each order.
+	 * 
+	 * best holds the smallest row found so far at the current depth, with Integer.MAX_VALUE past the end of a
+	 * row still being compared. a candidate row is compared as it is built: bigger and it's dropped, smaller and
+	 * it becomes the best, the partial transforms kept so far being thrown away
+	 */
+	private static class Search
+	{
+		private final static int NEW = Integer.MAX_VALUE;	//the sort key of a value with no label yet
+		
+		private final Grid puzzle;
+		private final int[][] cells;		//the values of the puzzle by row * gridSize + column, then transposed
+		private final int subgridWidth;		//width of the sub-grids
+		private final int subgridHeight;	//height of the sub-grids
+		private final int gridSize;			//number of rows, columns and values in the grid
+		private final int stackCount;		//number of stacks of columns
+		private final int maxStates;		//the most partial transforms to keep before giving up
+		
+		private final int[] best;		//the smallest row found at the current depth
+		private final int[][] keys;		//the sort keys of the row being placed, sorted within each cell, by stack
+		private final int[] stacks;		//the stacks sorted for the row being placed
+		
+		private List<State> next = new ArrayList<State>();	//the partial transforms which give the best rows
+		private boolean gaveUp;
+		
+		/**
+		 * Constructor for Search
+		 * 
+		 * @param puzzle	the puzzle
+		 * @param maxStates	the most partial transforms to keep before giving up
+		 */
+		Search(Grid puzzle, int maxStates)
+		{
+			this.puzzle = puzzle;
+			this.subgridWidth = puzzle.getSubgridWidth();
+			this.subgridHeight = puzzle.getSubgridHeight();
+			this.gridSize = puzzle.getSize();
+			this.stackCount = gridSize / subgridWidth;
+			this.maxStates = maxStates;
+			
+			cells = new int[2][gridSize * gridSize];
+			for(int row = 0; row < gridSize; row++)
+			{
+				for(int column = 0; column < gridSize; column++)
+				{
+					cells[0][row * gridSize + column] = puzzle.get(row, column);
+					cells[1][column * gridSize + row] = puzzle.get(row, column);
+				}
+			}
+			
+			best = new int[gridSize];
+			keys = new int[stackCount][subgridWidth];
+			stacks = new int[stackCount];
+		}
+		
+		/**
+		 * @return	the form, or null if the search gave up
+		 */
+		CanonicalForm run()
+		{
+			//the grid as it is, and transposed if the sub-grids are square
+			for(int transpose = 0; transpose < (subgridWidth == subgridHeight ? 2 : 1); transpose++) next.add(new State(transpose == 1, gridSize, subgridWidth));
+			
+			for(int depth = 0; depth < gridSize && !gaveUp; depth++)
+			{
+				List<State> states = next;
+				next = new ArrayList<State>();
+				Arrays.fill(best, Integer.MAX_VALUE);
+				
+				for(State state : states)
+				{
+					for(int row = 0; row < gridSize && !gaveUp; row++)
+					{
+						//bands are placed whole, so at the start of one each band is either used up or untouched
+						if((state.usedRows & 1L << row) != 0) continue;
+						if(depth % subgridHeight != 0 && row / subgridHeight != state.row / subgridHeight) continue;
+						
+						place(state, row);
+					}
+				}
+			}
+			if(gaveUp) return null;
+			
+			//every remaining transform gives the same form, and any order of the columns left in a cell will do
+			State found = next.get(0);
+			int[] rows = new int[gridSize];
+			for(State state = found; state.previous != null; state = state.previous) rows[state.depth] = state.row;
+			int[] columns = new int[gridSize];
+			for(int slot = 0; slot < stackCount; slot++) System.arraycopy(found.columns[found.stacks[slot]], 0, columns, slot * subgridWidth, subgridWidth);
+			
+			return new CanonicalForm(puzzle, found.transposed, rows, columns, found.labels.clone(), found.nextLabel);
+		}
+		
+		/**
+		 * places a row of the grid after a partial transform, keeping the transforms which give the best row
+		 * 
+		 * @param state	the partial transform
+		 * @param row	the row of the grid
+		 */
+		private void place(State state, int row)
+		{
+			int[] values = cells[state.transposed ? 1 : 0];
+			int offset = row * gridSize;
+			
+			//the smallest each stack can be, then the smallest order of the stacks
+			for(int stack = 0; stack < stackCount; stack++)
+			{
+				int[] key = keys[stack];
+				for(int i = 0; i < subgridWidth; i++) key[i] = key(values[offset + state.columns[stack][i]], state.labels);
+				if(state.columnStarts[stack] == (1L << subgridWidth) - 1) continue;	//every column on its own
+				
+				for(int start = 0; start < subgridWidth; start = cellEnd(state.columnStarts[stack], start, subgridWidth))
+				{
+					int end = cellEnd(state.columnStarts[stack], start, subgridWidth);
+					for(int i = start + 1; i < end; i++)
+					{
+						int value = key[i];
+						int j = i;
+						for(; j > start && key[j - 1] > value; j--) key[j] = key[j - 1];
+						key[j] = value;
+					}
+				}
+			}
+			System.arraycopy(state.stacks, 0, stacks, 0, stackCount);
+			for(int start = 0; start < stackCount; start = cellEnd(state.stackStarts, start, stackCount))
+			{
+				sortStacks(start, cellEnd(state.stackStarts, start, stackCount));
+			}
+			
+			int nextLabel = state.nextLabel;
+			int position = 0;
+			for(int slot = 0; slot < stackCount; slot++)
+			{
+				for(int key : keys[stacks[slot]])
+				{
+					if(!compare(key == NEW ? nextLabel++ : key, position++)) return;
+				}
+			}
+			
+			//order the columns in each cell the same way as their keys, and split the cells where the keys differ
+			int[][] columns = new int[stackCount][];
+			long[] columnStarts = new long[stackCount];
+			for(int stack = 0; stack < stackCount; stack++)
+			{
+				int[] order = state.columns[stack].clone();
+				long starts = state.columnStarts[stack];
+				for(int start = 0; start < subgridWidth; start = cellEnd(state.columnStarts[stack], start, subgridWidth))
+				{
+					int end = cellEnd(state.columnStarts[stack], start, subgridWidth);
+					for(int i = start + 1; i < end; i++)
+					{
+						int column = order[i];
+						int key = key(values[offset + column], state.labels);
+						int j = i;
+						for(; j > start && key(values[offset + order[j - 1]], state.labels) > key; j--) order[j] = order[j - 1];
+						order[j] = column;
+					}
+				}
+				for(int i = 1; i < subgridWidth; i++)
+				{
+					if(keys[stack][i] != keys[stack][i - 1]) starts |= 1L << i;
+				}
+				columns[stack] = order;
+				columnStarts[stack] = starts;
+			}
+			long stackStarts = state.stackStarts;
+			for(int slot = 1; slot < stackCount; slot++)
+			{
+				if(!Arrays.equals(keys[stacks[slot]], keys[stacks[slot - 1]])) stackStarts |= 1L << slot;
+			}
+			
+			order(state, row, stacks.clone(), stackStarts, columns, columnStarts);
+		}
+		
+		/**
+		 * keeps a transform for each order of the tied columns and stacks which hold new values, labelling them
+		 * 
+		 * @param state			the partial transform the row is placed after
+		 * @param row			the row of the grid
+		 * @param stacks		the stacks in order, each cell of stacks together
+		 * @param stackStarts	the slots which start a cell of stacks, as bits
+		 * @param columns		the columns of each stack in order, each cell of columns together
+		 * @param columnStarts	the places which start a cell of columns in each stack, as bits
+		 */
+		private void order(State state, int row, int[] stacks, long stackStarts, int[][] columns, long[] columnStarts)
+		{
+			int[] values = cells[state.transposed ? 1 : 0];
+			int offset = row * gridSize;
+			
+			//a tied stack with new values goes first in its cell, in turn, leaving the others tied after it
+			for(int start = 0; start < stackCount; start = cellEnd(stackStarts, start, stackCount))
+			{
+				int end = cellEnd(stackStarts, start, stackCount);
+				if(end - start < 2 || !hasNew(keys[stacks[start]])) continue;
+				
+				for(int i = start; i < end && !gaveUp; i++)
+				{
+					int[] order = stacks.clone();
+					order[start] = stacks[i];
+					order[i] = stacks[start];
+					order(state, row, order, stackStarts | 1L << (start + 1), columns, columnStarts);
+				}
+				return;
+			}
+			
+			//likewise a tied column with a new value
+			for(int stack = 0; stack < stackCount; stack++)
+			{
+				for(int start = 0; start < subgridWidth; start = cellEnd(columnStarts[stack], start, subgridWidth))
+				{
+					int end = cellEnd(columnStarts[stack], start, subgridWidth);
+					if(end - start < 2 || key(values[offset + columns[stack][start]], state.labels) != NEW) continue;
+					
+					for(int i = start; i < end && !gaveUp; i++)
+					{
+						int[][] order = columns.clone();
+						order[stack] = columns[stack].clone();
+						order[stack][start] = columns[stack][i];
+						order[stack][i] = columns[stack][start];
+						long[] starts = columnStarts.clone();
+						starts[stack] |= 1L << (start + 1);
+						order(state, row, stacks, stackStarts, order, starts);
+					}
+					return;
+				}
+			}
+			
+			//every new value now has its place, so its label
+			int[] labels = state.labels;
+			int nextLabel = state.nextLabel;
+			for(int slot = 0; slot < stackCount; slot++)
+			{
+				for(int column : columns[stacks[slot]])
+				{
+					int value = values[offset + column];
+					if(value == 0 || labels[value] != 0) continue;
+					
+					if(labels == state.labels) labels = labels.clone();
+					labels[value] = nextLabel++;
+				}
+			}
+			keep(new State(state, row, stacks, stackStarts, columns, columnStarts, labels, nextLabel));
+		}
+		
+		/**
+		 * sorts a cell of the stacks being placed by their sorted keys, a small insertion sort
+		 * 
+		 * @param start	the first slot of the cell
+		 * @param end	the slot after the cell
+		 */
+		private void sortStacks(int start, int end)
+		{
+			for(int i = start + 1; i < end; i++)
+			{
+				int stack = stacks[i];
+				int j = i;
+				for(; j > start && Arrays.compare(keys[stacks[j - 1]], keys[stack]) > 0; j--) stacks[j] = stacks[j - 1];
+				stacks[j] = stack;
+			}
+		}
+		
+		/**
+		 * compares a square of the row being built with the best row, which the rest of the row matches so far
+		 * 
+		 * @param label		the label in the square
+		 * @param position	the column of the form the square is in
+		 * 
+		 * @return			false if the row is bigger, true if it still matches or is now the best
+		 */
+		private boolean compare(int label, int position)
+		{
+			if(label > best[position]) return false;
+			if(label < best[position])
+			{
+				best[position] = label;
+				Arrays.fill(best, position + 1, gridSize, Integer.MAX_VALUE);
+				next.clear();
+			}
+			return true;
+		}
+		
+		/**
+		 * keeps a partial transform which gives the best row, giving up if there are too many
+		 * 
+		 * @param state	the partial transform
+		 */
+		private void keep(State state)
+		{
+			next.add(state);
+			if(next.size() > maxStates) gaveUp = true;
+		}
+		
+		/**
+		 * @param value		a value of the grid
+		 * @param labels	the labels given so far
+		 * 
+		 * @return			the value's sort key: 0 for an empty square, its label, or NEW if it has no label yet
+		 */
+		private static int key(int value, int[] labels)
+		{
+			if(value == 0) return 0;
+			return labels[value] == 0 ? NEW : labels[value];
+		}
+		
+		/**
+		 * @param key	the sort keys of a stack
+		 * 
+		 * @return		true if the stack holds a value with no label yet
+		 */
+		private static boolean hasNew(int[] key)
+		{
+			for(int i = 0; i < key.length; i++)
+			{
+				if(key[i] == NEW) return true;
+			}
+			return false;
+		}
+		
+		/**
+		 * @param starts	the places which start a cell, as bits
+		 * @param start		the start of a cell
+		 * @param length	the number of places
+		 * 
+		 * @return			the place after the end of the cell
+		 */
+		private static int cellEnd(long starts, int start, int length)
+		{
+			long later = starts >>> (start + 1) << (start + 1);
+			return later == 0 ? length : Math.min(length, Long.numberOfTrailingZeros(later));
+		}
+	}
+	
+	/**
+	 * a partial transform, with the rows of the form filled in down to some depth, and the columns ordered as far
+	 * as those rows tell them apart. arrays are shared between states, and never changed once a state is made
+	 */
+	private static class State
+	{
+		private final boolean transposed;
+		private final State previous;		//the transform for the rows above, null for no rows
+		private final int depth;			//the row of the form placed last
+		private final int row;				//the row of the grid placed there
+		private final long usedRows;		//the rows of the grid already placed, as bits
+		
+		/*
+		 * the stacks of the grid in the order of the form, and the columns of each stack in order. stacks or
+		 * columns in the same cell look the same in every row placed, and can be in any order
+		 */
+		private final int[] stacks;
+		private final long stackStarts;		//the slots which start a cell of stacks, as bits
+		private final int[][] columns;		//by stack of the grid
+		private final long[] columnStarts;	//the places which start a cell of columns in each stack, as bits
+		
+		private final int[] labels;			//the new label of each value seen so far
+		private final int nextLabel;		//the first label not yet used
+		
+		/**
+		 * Constructor for a transform with no rows placed, and every column and stack tied
+		 * 
+		 * @param transposed	whether the grid is transposed first
+		 * @param gridSize		the number of rows, columns and values in the grid
+		 * @param subgridWidth	the number of columns in each stack
+		 */
+		State(boolean transposed, int gridSize, int subgridWidth)
+		{
+			this.transposed = transposed;
+			this.previous = null;
+			this.depth = -1;
+			this.row = -1;
+			this.usedRows = 0;
+			
+			this.stacks = new int[gridSize / subgridWidth];
+			this.stackStarts = 1;
+			this.columns = new int[stacks.length][subgridWidth];
+			this.columnStarts = new long[stacks.length];
+			for(int stack = 0; stack < stacks.length; stack++)
+			{
+				stacks[stack] = stack;
+				for(int i = 0; i < subgridWidth; i++) columns[stack][i] = stack * subgridWidth + i;
+				columnStarts[stack] = 1;
+			}
+			
+			this.labels = new int[gridSize + 1];
+			this.nextLabel = 1;
+		}
+		
+		/**
+		 * Constructor for a transform one row deeper than another
+		 * 
+		 * @param previous		the transform so far
+		 * @param row			the row of the grid placed next
+		 * @param stacks		the stacks in order
+		 * @param stackStarts	the slots which start a cell of stacks, as bits
+		 * @param columns		the columns of each stack in order
+		 * @param columnStarts	the places which start a cell of columns in each stack, as bits
+		 * @param labels		the labels with the row's new values added
+		 * @param nextLabel		the first label not yet used
+		 */
+		State(State previous, int row, int[] stacks, long stackStarts, int[][] columns, long[] columnStarts, int[] labels, int nextLabel)
+		{
+			this.transposed = previous.transposed;
+			this.previous = previous;
+			this.depth = previous.depth + 1;
+			this.row = row;
+			this.usedRows = previous.usedRows | 1L << row;
+			this.stacks = stacks;
+			this.stackStarts = stackStarts;
+			this.columns = columns;
+			this.columnStarts = columnStarts;
+			this.labels = labels;
+			this.nextLabel = nextLabel;
+		}
+	}
+}
\ No newline at end of file
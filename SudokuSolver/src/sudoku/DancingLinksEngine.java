@@ -0,0 +1,54 @@
+package sudoku;
+
+/**
+ * A SudokuEngine using DancingLinksSolver.
+ * 
+ * A dancing links solver is left with the given values covered, so a new one is built for every grid.
+ * Nothing is shared between calls
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class DancingLinksEngine implements SudokuEngine
+{
+	public void solve(Grid puzzle, SolutionCollector collector)
+	{
+		new DancingLinksSolver(puzzle.getSubgridWidth(), puzzle.getSubgridHeight()).solve(puzzle, collector);
+	}
+	
+	public long count(Grid puzzle, long maxSolutions, Grid firstSolution)
+	{
+		if(maxSolutions <= 0) return 0;
+		
+		CountingCollector counter = new CountingCollector(maxSolutions, firstSolution);
+		solve(puzzle, counter);
+		return counter.found;
+	}
+	
+	/**
+	 * counts solutions up to a limit, keeping only the first
+	 */
+	private static class CountingCollector implements SolutionCollector
+	{
+		private final long maxSolutions;	//the number of solutions to stop at
+		private final Grid firstSolution;	//the grid the first solution is copied into, may be null
+		private long found;					//the number found so far
+		
+		CountingCollector(long maxSolutions, Grid firstSolution)
+		{
+			this.maxSolutions = maxSolutions;
+			this.firstSolution = firstSolution;
+		}
+		
+		public boolean add(Grid solution)
+		{
+			if(found++ == 0 && firstSolution != null) firstSolution.copyFrom(solution);
+			return found < maxSolutions;
+		}
+		
+		public boolean isDone()
+		{
+			return found >= maxSolutions;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,322 @@
+package sudoku;
+
+import java.util.List;
+
+/**
+ * Solves a sudoku grid by treating it as an exact cover problem and searching it with Knuth's
+ * Algorithm X, implemented using Dancing Links.
+ * 
+ * Every grid square, value pair is a row of the matrix. Each row covers four constraints:
+ * 	- the grid square is filled
+ * 	- the value appears in the row of the grid
+ * 	- the value appears in the column of the grid
+ * 	- the value appears in the sub-grid
+ * 
+ * The links are stored in parallel int arrays rather than node objects so building the matrix
+ * only makes a handful of allocations
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class DancingLinksSolver
+{
+	/*
+	 * Grid Properties
+	 */
+	private final int gridSize;			//number of rows, columns and values in the grid
+	private final int subgridWidth;		//width of the sub-grids
+	private final int subgridHeight;	//height of the sub-grids
+	
+	/*
+	 * the links of the matrix. node 0 is the root, nodes 1 to columnCount are the column headers
+	 * and the remaining nodes are the 1s of the matrix, four per row
+	 */
+	private final int[] left, right, up, down;
+	private final int[] columnOf;	//the column header each node belongs to
+	private final int[] rowOf;		//the matrix row each node belongs to
+	private final int[] size;		//the number of nodes remaining in each column
+	private final int columnCount;
+	
+	/*
+	 * search state
+	 */
+	private final int[] chosenRows;		//the matrix row chosen at each depth of the search
+	private Grid givens;					//the grid being solved
+	private SolutionCollector collector;	//where solutions are sent
+	private boolean stopped;				//set once the collector asks for the search to stop
+	
+	/**
+	 * Constructor for a new dancing links solver. builds the full exact cover matrix for
+	 * an empty grid of the given shape
+	 * 
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 */
+	DancingLinksSolver(int subgridWidth, int subgridHeight)
+	{
+		this.subgridWidth = subgridWidth;
+		this.subgridHeight = subgridHeight;
+		gridSize = subgridWidth * subgridHeight;
+		
+		int cells = gridSize * gridSize;
+		int rowCount = cells * gridSize;	//one row for every value in every grid square
+		columnCount = 4 * cells;			//four constraints per grid square
+		int nodeCount = 1 + columnCount + 4 * rowCount;
+		
+		left = new int[nodeCount];
+		right = new int[nodeCount];
+		up = new int[nodeCount];
+		down = new int[nodeCount];
+		columnOf = new int[nodeCount];
+		rowOf = new int[nodeCount];
+		size = new int[columnCount + 1];
+		chosenRows = new int[cells];
+		
+		//link the root and the column headers into a circular list, each column starting empty
+		for(int header = 0; header <= columnCount; header++)
+		{
+			left[header] = header == 0 ? columnCount : header - 1;
+			right[header] = header == columnCount ? 0 : header + 1;
+			up[header] = header;
+			down[header] = header;
+			columnOf[header] = header;
+		}
+		
+		int node = columnCount + 1;	//index of the next free node
+		
+		//add a row for each value in each grid square
+		for(int row = 0; row < gridSize; row++)
+		{
+			for(int column = 0; column < gridSize; column++)
+			{
+				int subgrid = (row / subgridHeight) * (gridSize / subgridWidth) + column / subgridWidth;
+				
+				for(int value = 0; value < gridSize; value++)
+				{
+					int matrixRow = (row * gridSize + column) * gridSize + value;
+					
+					//the four constraints covered by placing value in this grid square
+					int[] constraints = {
+						1 + row * gridSize + column,
+						1 + cells + row * gridSize + value,
+						1 + 2 * cells + column * gridSize + value,
+						1 + 3 * cells + subgrid * gridSize + value
+					};
+					
+					for(int i = 0; i < 4; i++)
+					{
+						int header = constraints[i];
+						
+						//append the node to the bottom of its column
+						columnOf[node] = header;
+						rowOf[node] = matrixRow;
+						up[node] = up[header];
+						down[node] = header;
+						down[up[header]] = node;
+						up[header] = node;
+						size[header]++;
+						
+						//link the node into its row
+						left[node] = i == 0 ? node + 3 : node - 1;
+						right[node] = i == 3 ? node - 3 : node + 1;
+						
+						node++;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * solves the given grid, adding each solution found to the solutions list. a solver
+	 * instance is single use, since the matrix is left with the given values covered
+	 * 
+	 * @param grid			the grid to be solved
+	 * @param solutions		the list solutions are added to
+	 * @param maxSolutions	the most solutions to add before stopping
+	 * 
+	 * @return				the number of solutions added, 0 if the grid is invalid or unsolvable
+	 */
+	int solve(Grid grid, List<Grid> solutions, int maxSolutions)
+	{
+		if(maxSolutions <= 0) return 0;
+		
+		ListCollector limit = new ListCollector(solutions, maxSolutions);
+		solve(grid, limit);
+		return limit.getAdded();
+	}
+	
+	/**
+	 * solves the given grid, passing each solution found to a collector until it asks for the search to stop.
+	 * a solver instance is single use, since the matrix is left with the given values covered
+	 * 
+	 * @param grid		the grid to be solved
+	 * @param collector	receives the solutions
+	 */
+	void solve(Grid grid, SolutionCollector collector)
+	{
+		if(grid.getSubgridWidth() != subgridWidth || grid.getSubgridHeight() != subgridHeight)
+		{
+			throw new IllegalArgumentException("Expected " + subgridWidth + "x" + subgridHeight + " sub-grids");
+		}
+		
+		this.givens = grid;
+		this.collector = collector;
+		this.stopped = false;
+		
+		//cover the constraints already satisfied by the values in the grid
+		for(int row = 0; row < gridSize; row++)
+		{
+			for(int column = 0; column < gridSize; column++)
+			{
+				int value = grid.get(row, column);
+				if(value == 0) continue;
+				if(value < 0 || value > gridSize) return;
+				
+				//the first node of the matrix row for this value, its cell constraint node
+				int node = columnCount + 1 + 4 * ((row * gridSize + column) * gridSize + value - 1);
+				
+				//if one of its constraints is already covered, the grid contradicts itself
+				for(int i = 0; i < 4; i++)
+				{
+					if(isCovered(columnOf[node + i])) return;
+				}
+				
+				for(int i = 0; i < 4; i++)
+				{
+					cover(columnOf[node + i]);
+				}
+			}
+		}
+		
+		search(0);
+	}
+	
+	/**
+	 * recursive Algorithm X search. picks the constraint with the fewest remaining options
+	 * and tries each row that satisfies it
+	 * 
+	 * @param depth	the number of rows chosen so far
+	 */
+	private void search(int depth)
+	{
+		//if enough solutions have already been found, do nothing and return
+		if(stopped || collector.isDone()) return;
+		
+		//if every constraint is covered, the chosen rows form a solution
+		if(right[0] == 0)
+		{
+			if(!collector.add(buildSolution(depth))) stopped = true;
+			return;
+		}
+		
+		//choose the column with the fewest nodes
+		int column = right[0];
+		for(int header = right[column]; header != 0; header = right[header])
+		{
+			if(size[header] < size[column]) column = header;
+		}
+		
+		//if a constraint can no longer be satisfied, this branch is a dead end
+		if(size[column] == 0) return;
+		
+		cover(column);
+		
+		//try each row which satisfies the chosen constraint
+		for(int rowNode = down[column]; rowNode != column; rowNode = down[rowNode])
+		{
+			chosenRows[depth] = rowOf[rowNode];
+			
+			//cover every other constraint satisfied by this row
+			for(int node = right[rowNode]; node != rowNode; node = right[node])
+			{
+				cover(columnOf[node]);
+			}
+			
+			search(depth + 1);
+			
+			//uncover in the reverse order to restore the links
+			for(int node = left[rowNode]; node != rowNode; node = left[node])
+			{
+				uncover(columnOf[node]);
+			}
+		}
+		
+		uncover(column);
+	}
+	
+	/**
+	 * removes a column from the header list, and every row with a node in that column from the other columns
+	 * 
+	 * @param column	the header of the column to cover
+	 */
+	private void cover(int column)
+	{
+		right[left[column]] = right[column];
+		left[right[column]] = left[column];
+		
+		for(int rowNode = down[column]; rowNode != column; rowNode = down[rowNode])
+		{
+			for(int node = right[rowNode]; node != rowNode; node = right[node])
+			{
+				up[down[node]] = up[node];
+				down[up[node]] = down[node];
+				size[columnOf[node]]--;
+			}
+		}
+	}
+	
+	/**
+	 * exact reverse of cover, relinks the column and all its rows
+	 * 
+	 * @param column	the header of the column to uncover
+	 */
+	private void uncover(int column)
+	{
+		for(int rowNode = up[column]; rowNode != column; rowNode = up[rowNode])
+		{
+			for(int node = left[rowNode]; node != rowNode; node = left[node])
+			{
+				size[columnOf[node]]++;
+				up[down[node]] = node;
+				down[up[node]] = node;
+			}
+		}
+		
+		right[left[column]] = column;
+		left[right[column]] = column;
+	}
+	
+	/**
+	 * checks whether a column has already been removed from the header list
+	 * 
+	 * @param column	the header of the column being checked
+	 * 
+	 * @return			true if the column is covered
+	 */
+	private boolean isCovered(int column)
+	{
+		return right[left[column]] != column;
+	}
+	
+	/**
+	 * builds a solved grid from the given values and the rows chosen by the search
+	 * 
+	 * @param depth	the number of rows chosen
+	 * 
+	 * @return		the solved grid
+	 */
+	private Grid buildSolution(int depth)
+	{
+		//start with the values which were given
+		Grid solution = givens.copy();
+		
+		//fill in the value of each chosen row
+		for(int i = 0; i < depth; i++)
+		{
+			solution.set(chosenRows[i] / gridSize, chosenRows[i] % gridSize + 1);
+		}
+		
+		return solution;
+	}
+}
\ No newline at end of file
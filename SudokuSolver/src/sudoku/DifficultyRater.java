@@ -0,0 +1,986 @@
+package sudoku;
+
+import java.util.Arrays;
+
+/**
+ * Rates how hard a puzzle is for a person, by solving it the way a person would and finding the hardest
+ * technique it needs.
+ * 
+ * At every step the easiest technique which fills in a square or rules out a candidate is used, then the
+ * search for a technique starts again from the easiest, so a harder one is only used when nothing easier
+ * will do. The score of the puzzle is the score of the hardest technique used, on the scale of Sudoku
+ * Explainer: 1.2 for a puzzle which only needs hidden singles, up to around 7 for one which needs chains.
+ * A puzzle which can't be finished with these techniques is rated as needing trial and error.
+ * 
+ * The possible values of each square are kept as long bitmasks where bit n is set for the value n, as in
+ * BacktrackingSolver, and updated as each square is filled in rather than worked out again, so any grid up
+ * to 63x63 can be rated. A puzzle is assumed to have one solution, see SudokuEngine.isUnique.
+ * 
+ * Rating is thread safe, each thread keeping its own working state
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public final class DifficultyRater
+{
+	/**
+	 * The techniques used, easiest first, each with its score
+	 */
+	public enum Technique
+	{
+		HIDDEN_SINGLE_SUBGRID(1.2, "hidden single in a sub-grid"),
+		HIDDEN_SINGLE_LINE(1.5, "hidden single in a row or column"),
+		NAKED_SINGLE(2.3, "naked single"),
+		POINTING(2.6, "pointing pair"),
+		CLAIMING(2.8, "box/line reduction"),
+		NAKED_PAIR(3.0, "naked pair"),
+		X_WING(3.2, "x-wing"),
+		HIDDEN_PAIR(3.4, "hidden pair"),
+		NAKED_TRIPLE(3.6, "naked triple"),
+		SWORDFISH(3.8, "swordfish"),
+		HIDDEN_TRIPLE(4.0, "hidden triple"),
+		XY_WING(4.2, "xy-wing"),
+		XYZ_WING(4.4, "xyz-wing"),
+		NAKED_QUAD(5.0, "naked quad"),
+		JELLYFISH(5.2, "jellyfish"),
+		HIDDEN_QUAD(5.4, "hidden quad"),
+		X_CHAIN(6.6, "x-chain"),
+		ALTERNATING_CHAIN(7.0, "alternating inference chain"),
+		TRIAL_AND_ERROR(10.0, "trial and error");
+		
+		private final double score;
+		private final String description;
+		
+		/**
+		 * @param score			the score of a puzzle needing the technique
+		 * @param description	the technique's usual name
+		 */
+		Technique(double score, String description)
+		{
+			this.score = score;
+			this.description = description;
+		}
+		
+		/**
+		 * @return	the score of a puzzle needing the technique
+		 */
+		public double getScore()
+		{
+			return score;
+		}
+		
+		/**
+		 * @return	the name in lower case with hyphens, such as xy-wing, for writing to files
+		 */
+		public String getName()
+		{
+			return name().toLowerCase().replace('_', '-');
+		}
+		
+		public String toString()
+		{
+			return description;
+		}
+	}
+	
+	/**
+	 * The result of rating a puzzle
+	 */
+	public static final class Rating
+	{
+		private final Technique hardest;	//the hardest technique used, null if the puzzle was already solved
+		private final boolean solved;		//false if the techniques ran out
+		private final int[] uses;			//the number of steps using each technique
+		
+		/**
+		 * Constructor for Rating
+		 * 
+		 * @param hardest	the hardest technique used
+		 * @param solved	whether the techniques were enough to solve the puzzle
+		 * @param uses		the number of steps using each technique
+		 */
+		Rating(Technique hardest, boolean solved, int[] uses)
+		{
+			this.hardest = hardest;
+			this.solved = solved;
+			this.uses = uses;
+		}
+		
+		/**
+		 * @return	the hardest technique needed, TRIAL_AND_ERROR if the others weren't enough, null if the puzzle
+		 * 			was already solved
+		 */
+		public Technique getHardest()
+		{
+			return hardest;
+		}
+		
+		/**
+		 * @return	the score of the hardest technique needed, 0 if the puzzle was already solved
+		 */
+		public double getScore()
+		{
+			return hardest == null ? 0 : hardest.score;
+		}
+		
+		/**
+		 * @return	true if the puzzle could be solved without trial and error
+		 */
+		public boolean isSolved()
+		{
+			return solved;
+		}
+		
+		/**
+		 * @param technique	a technique
+		 * 
+		 * @return			the number of steps which used it
+		 */
+		public int getUses(Technique technique)
+		{
+			return uses[technique.ordinal()];
+		}
+		
+		/**
+		 * @return	the number of steps taken in all
+		 */
+		public int getSteps()
+		{
+			int steps = 0;
+			for(int use : uses) steps += use;
+			return steps;
+		}
+		
+		public String toString()
+		{
+			return hardest == null ? "0.0" : hardest.score + " (" + hardest + ")";
+		}
+	}
+	
+	private final static ThreadLocal<DifficultyRater> raters = new ThreadLocal<DifficultyRater>();	//the last rater used by each thread
+	
+	/*
+	 * Grid Properties
+	 */
+	private final int subgridWidth;		//width of the sub-grids
+	private final int subgridHeight;	//height of the sub-grids
+	private final int gridSize;			//number of rows, columns and values in the grid
+	private final int squareCount;		//total number of grid-squares
+	private final long allValues;		//bitmask with the bit of every valid value set
+	
+	/*
+	 * the squares of each row, then each column, then each sub-grid, the three units each square is in, and
+	 * the squares sharing a unit with each square
+	 */
+	private final int[][] units;
+	private final int[][] unitsOf;
+	private final int[][] peers;
+	private final int[] rowOf;
+	private final int[] columnOf;
+	private final int[] subgridOf;
+	
+	/*
+	 * the puzzle as far as it has been solved
+	 */
+	private final int[] values;
+	private final long[] candidates;	//bit n set if value n is still possible, 0 for filled squares
+	private int filledCount;
+	private boolean broken;				//set if a square or unit is left with no possible value
+	
+	/*
+	 * chains are searched over candidates, each numbered square * 64 + value. a candidate is marked with the
+	 * current search's stamp once it has been reached as true, or as false. where a value can only go in two
+	 * squares of a unit, pairs holds them at unit * 64 + value, as first * squareCount + second, or else -1
+	 */
+	private final int[] trueMarks;
+	private final int[] falseMarks;
+	private final int[] queue;
+	private final int[] pairs;
+	private int stamp;
+	
+	/**
+	 * rates a puzzle
+	 * 
+	 * @param puzzle	the puzzle, which should have one solution
+	 * 
+	 * @return			the rating
+	 * 
+	 * @throws IllegalArgumentException	if the puzzle breaks the rules, or is larger than 63x63
+	 */
+	public static Rating rate(Grid puzzle)
+	{
+		if(!puzzle.isValid()) throw new IllegalArgumentException("Only a valid puzzle can be rated");
+		
+		DifficultyRater rater = raters.get();
+		if(rater == null || rater.subgridWidth != puzzle.getSubgridWidth() || rater.subgridHeight != puzzle.getSubgridHeight())
+		{
+			rater = new DifficultyRater(puzzle.getSubgridWidth(), puzzle.getSubgridHeight());
+			raters.set(rater);
+		}
+		return rater.rateGrid(puzzle);
+	}
+	
+	/**
+	 * Constructor for a rater of one shape of grid, only to be used on one thread
+	 * 
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 */
+	private DifficultyRater(int subgridWidth, int subgridHeight)
+	{
+		this.subgridWidth = subgridWidth;
+		this.subgridHeight = subgridHeight;
+		gridSize = subgridWidth * subgridHeight;
+		
+		//bit n is used for the value n, so the largest value must fit in a long
+		if(gridSize > 63) throw new IllegalArgumentException("Unsupported grid size " + gridSize);
+		
+		squareCount = gridSize * gridSize;
+		allValues = (-1L >>> (63 - gridSize)) & ~1L;
+		int subgridsPerRow = gridSize / subgridWidth;
+		
+		units = new int[3 * gridSize][gridSize];
+		for(int i = 0; i < gridSize; i++)
+		{
+			int firstRow = (i / subgridsPerRow) * subgridHeight;	//first row of sub-grid i
+			int firstColumn = (i % subgridsPerRow) * subgridWidth;	//first column of sub-grid i
+			
+			for(int j = 0; j < gridSize; j++)
+			{
+				units[i][j] = i * gridSize + j;
+				units[gridSize + i][j] = j * gridSize + i;
+				units[2 * gridSize + i][j] = (firstRow + j / subgridWidth) * gridSize + firstColumn + j % subgridWidth;
+			}
+		}
+		
+		rowOf = new int[squareCount];
+		columnOf = new int[squareCount];
+		subgridOf = new int[squareCount];
+		unitsOf = new int[squareCount][];
+		peers = new int[squareCount][];
+		for(int square = 0; square < squareCount; square++)
+		{
+			int row = square / gridSize;
+			int column = square % gridSize;
+			rowOf[square] = row;
+			columnOf[square] = column;
+			subgridOf[square] = (row / subgridHeight) * subgridsPerRow + column / subgridWidth;
+			unitsOf[square] = new int[] {row, gridSize + column, 2 * gridSize + subgridOf[square]};
+		}
+		
+		//every other square in the same row, column or sub-grid, without repeats
+		for(int square = 0; square < squareCount; square++)
+		{
+			int count = 0;
+			int[] squarePeers = new int[3 * gridSize];
+			for(int other = 0; other < squareCount; other++)
+			{
+				if(sees(square, other)) squarePeers[count++] = other;
+			}
+			peers[square] = Arrays.copyOf(squarePeers, count);
+		}
+		
+		values = new int[squareCount];
+		candidates = new long[squareCount];
+		trueMarks = new int[squareCount * 64];
+		falseMarks = new int[squareCount * 64];
+		queue = new int[2 * squareCount * 64];
+		pairs = new int[3 * gridSize * 64];
+	}
+	
+	/**
+	 * solves a puzzle step by step with the easiest technique that works each time
+	 * 
+	 * @param puzzle	the puzzle, already checked to be valid
+	 * 
+	 * @return			the rating
+	 */
+	private Rating rateGrid(Grid puzzle)
+	{
+		initialise(puzzle);
+		
+		int[] uses = new int[Technique.values().length];
+		Technique hardest = null;
+		while(filledCount < squareCount && !broken)
+		{
+			Technique technique = step();
+			if(technique == null) break;
+			
+			uses[technique.ordinal()]++;
+			if(hardest == null || technique.score > hardest.score) hardest = technique;
+		}
+		
+		boolean solved = filledCount == squareCount && !broken;
+		return new Rating(solved ? hardest : Technique.TRIAL_AND_ERROR, solved, uses);
+	}
+	
+	/**
+	 * copies the puzzle into the working values and works out the possible values of each empty square
+	 * 
+	 * @param puzzle	the puzzle
+	 */
+	private void initialise(Grid puzzle)
+	{
+		long[] used = new long[3 * gridSize];	//the values used in each unit
+		filledCount = 0;
+		broken = false;
+		for(int square = 0; square < squareCount; square++)
+		{
+			values[square] = puzzle.get(square);
+			if(values[square] == 0) continue;
+			
+			for(int unit : unitsOf[square]) used[unit] |= 1L << values[square];
+			filledCount++;
+		}
+		
+		for(int square = 0; square < squareCount; square++)
+		{
+			int[] squareUnits = unitsOf[square];
+			candidates[square] = values[square] != 0 ? 0 : allValues & ~(used[squareUnits[0]] | used[squareUnits[1]] | used[squareUnits[2]]);
+			if(values[square] == 0 && candidates[square] == 0) broken = true;
+		}
+	}
+	
+	/**
+	 * makes one step, using the easiest technique which gets anywhere. each technique is applied everywhere
+	 * it can be in the grid as it stands, except chains, which are applied one at a time
+	 * 
+	 * @return	the technique used, null if none of them get anywhere
+	 */
+	private Technique step()
+	{
+		if(hiddenSingles(2 * gridSize, 3 * gridSize)) return Technique.HIDDEN_SINGLE_SUBGRID;
+		if(hiddenSingles(0, 2 * gridSize)) return Technique.HIDDEN_SINGLE_LINE;
+		if(nakedSingles()) return Technique.NAKED_SINGLE;
+		if(pointing()) return Technique.POINTING;
+		if(claiming()) return Technique.CLAIMING;
+		if(nakedSubsets(2)) return Technique.NAKED_PAIR;
+		if(fish(2)) return Technique.X_WING;
+		if(hiddenSubsets(2)) return Technique.HIDDEN_PAIR;
+		if(nakedSubsets(3)) return Technique.NAKED_TRIPLE;
+		if(fish(3)) return Technique.SWORDFISH;
+		if(hiddenSubsets(3)) return Technique.HIDDEN_TRIPLE;
+		if(xyWings()) return Technique.XY_WING;
+		if(xyzWings()) return Technique.XYZ_WING;
+		if(nakedSubsets(4)) return Technique.NAKED_QUAD;
+		if(fish(4)) return Technique.JELLYFISH;
+		if(hiddenSubsets(4)) return Technique.HIDDEN_QUAD;
+		if(chains(true)) return Technique.X_CHAIN;
+		if(chains(false)) return Technique.ALTERNATING_CHAIN;
+		return null;
+	}
+	
+	/**
+	 * fills in each value which can only go in one square of a unit
+	 * 
+	 * @param firstUnit	the first unit to look in
+	 * @param endUnit	the unit after the last to look in
+	 * 
+	 * @return			true if any square was filled in
+	 */
+	private boolean hiddenSingles(int firstUnit, int endUnit)
+	{
+		boolean changed = false;
+		for(int unit = firstUnit; unit < endUnit && !broken; unit++)
+		{
+			long once = 0;	//values possible in at least one square of the unit
+			long twice = 0;	//values possible in at least two squares of the unit
+			for(int square : units[unit])
+			{
+				twice |= once & candidates[square];
+				once |= candidates[square];
+			}
+			
+			for(long singles = once & ~twice; singles != 0; singles &= singles - 1)
+			{
+				long bit = singles & -singles;
+				int square = find(unit, bit);
+				
+				//the square was filled in with another single, so this value has nowhere left to go
+				if(square == -1)
+				{
+					broken = true;
+					break;
+				}
+				place(square, Long.numberOfTrailingZeros(bit));
+				changed = true;
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * fills in each square with only one possible value
+	 * 
+	 * @return	true if any square was filled in
+	 */
+	private boolean nakedSingles()
+	{
+		boolean changed = false;
+		for(int square = 0; square < squareCount && !broken; square++)
+		{
+			long possible = candidates[square];
+			if(possible != 0 && (possible & (possible - 1)) == 0)
+			{
+				place(square, Long.numberOfTrailingZeros(possible));
+				changed = true;
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * where a value can only go in one row or column of a sub-grid, rules it out of the rest of that row or column
+	 * 
+	 * @return	true if any candidate was ruled out
+	 */
+	private boolean pointing()
+	{
+		boolean changed = false;
+		for(int subgrid = 0; subgrid < gridSize; subgrid++)
+		{
+			int[] unit = units[2 * gridSize + subgrid];
+			for(long remaining = unitCandidates(unit); remaining != 0; remaining &= remaining - 1)
+			{
+				long bit = remaining & -remaining;
+				int row = -1;		//the row of every square the value can go in, -2 if there are several
+				int column = -1;	//the column of every square the value can go in, -2 if there are several
+				for(int square : unit)
+				{
+					if((candidates[square] & bit) == 0) continue;
+					
+					row = row == -1 || row == rowOf[square] ? rowOf[square] : -2;
+					column = column == -1 || column == columnOf[square] ? columnOf[square] : -2;
+				}
+				
+				if(row >= 0) changed |= eliminateOutside(units[row], bit, 2 * gridSize + subgrid);
+				if(column >= 0) changed |= eliminateOutside(units[gridSize + column], bit, 2 * gridSize + subgrid);
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * where a value can only go in one sub-grid of a row or column, rules it out of the rest of that sub-grid
+	 * 
+	 * @return	true if any candidate was ruled out
+	 */
+	private boolean claiming()
+	{
+		boolean changed = false;
+		for(int line = 0; line < 2 * gridSize; line++)
+		{
+			int[] unit = units[line];
+			for(long remaining = unitCandidates(unit); remaining != 0; remaining &= remaining - 1)
+			{
+				long bit = remaining & -remaining;
+				int subgrid = -1;	//the sub-grid of every square the value can go in, -2 if there are several
+				for(int square : unit)
+				{
+					if((candidates[square] & bit) != 0) subgrid = subgrid == -1 || subgrid == subgridOf[square] ? subgridOf[square] : -2;
+				}
+				
+				if(subgrid >= 0) changed |= eliminateOutside(units[2 * gridSize + subgrid], bit, line);
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * where a set of squares of a unit can only hold as many values as there are squares, rules those values out
+	 * of the rest of the unit
+	 * 
+	 * @param size	the number of squares in the set
+	 * 
+	 * @return		true if any candidate was ruled out
+	 */
+	private boolean nakedSubsets(int size)
+	{
+		boolean changed = false;
+		long[] masks = new long[gridSize];	//the candidates of each square of the unit
+		for(int[] unit : units)
+		{
+			for(int i = 0; i < gridSize; i++) masks[i] = candidates[unit[i]];
+			
+			changed |= subsets(masks, size, (squares, subsetValues) ->
+			{
+				boolean eliminated = false;
+				for(int i = 0; i < gridSize; i++)
+				{
+					if((squares & 1L << i) == 0) eliminated |= eliminate(unit[i], subsetValues);
+				}
+				return eliminated;
+			});
+		}
+		return changed;
+	}
+	
+	/**
+	 * where a set of values can only go in as many squares of a unit as there are values, rules every other
+	 * value out of those squares
+	 * 
+	 * @param size	the number of values in the set
+	 * 
+	 * @return		true if any candidate was ruled out
+	 */
+	private boolean hiddenSubsets(int size)
+	{
+		boolean changed = false;
+		long[] masks = new long[gridSize + 1];	//the squares of the unit each value can go in
+		for(int[] unit : units)
+		{
+			for(int value = 1; value <= gridSize; value++) masks[value] = positions(unit, 1L << value);
+			
+			changed |= subsets(masks, size, (subsetValues, squares) ->
+			{
+				boolean eliminated = false;
+				for(long remaining = squares; remaining != 0; remaining &= remaining - 1)
+				{
+					eliminated |= eliminate(unit[Long.numberOfTrailingZeros(remaining)], ~subsetValues);
+				}
+				return eliminated;
+			});
+		}
+		return changed;
+	}
+	
+	/**
+	 * where a value can only go in as many columns of a set of rows as there are rows, rules it out of the rest of
+	 * those columns, and the same the other way round. an x-wing has two rows, a swordfish three and a jellyfish four
+	 * 
+	 * @param size	the number of rows in the set
+	 * 
+	 * @return		true if any candidate was ruled out
+	 */
+	private boolean fish(int size)
+	{
+		boolean changed = false;
+		long[] masks = new long[gridSize];	//the places in each row, or column, the value can go
+		for(int value = 1; value <= gridSize; value++)
+		{
+			long bit = 1L << value;
+			for(int base = 0; base <= gridSize; base += gridSize)
+			{
+				int cover = gridSize - base;	//columns for rows, and rows for columns
+				for(int line = 0; line < gridSize; line++) masks[line] = positions(units[base + line], bit);
+				
+				changed |= subsets(masks, size, (lines, places) ->
+				{
+					boolean eliminated = false;
+					for(long remaining = places; remaining != 0; remaining &= remaining - 1)
+					{
+						int[] crossing = units[cover + Long.numberOfTrailingZeros(remaining)];
+						for(int i = 0; i < gridSize; i++)
+						{
+							if((lines & 1L << i) == 0) eliminated |= eliminate(crossing[i], bit);
+						}
+					}
+					return eliminated;
+				});
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * where a square with values x and y sees a square with x and z and a square with y and z, z can't go in any
+	 * square seeing both of those, since one of them must be z
+	 * 
+	 * @return	true if any candidate was ruled out
+	 */
+	private boolean xyWings()
+	{
+		boolean changed = false;
+		for(int pivot = 0; pivot < squareCount; pivot++)
+		{
+			long pivotValues = candidates[pivot];
+			if(Long.bitCount(pivotValues) != 2) continue;
+			
+			for(int first : peers[pivot])
+			{
+				long firstValues = candidates[first];
+				if(Long.bitCount(firstValues) != 2 || Long.bitCount(firstValues & pivotValues) != 1) continue;
+				
+				long z = firstValues & ~pivotValues;
+				long secondValues = (pivotValues & ~firstValues) | z;
+				for(int second : peers[pivot])
+				{
+					if(candidates[second] == secondValues && second != first) changed |= eliminateSeenBy(first, second, -1, z);
+				}
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * where a square with values x, y and z sees a square with x and z and a square with y and z, z can't go in
+	 * any square seeing all three, since one of them must be z
+	 * 
+	 * @return	true if any candidate was ruled out
+	 */
+	private boolean xyzWings()
+	{
+		boolean changed = false;
+		for(int pivot = 0; pivot < squareCount; pivot++)
+		{
+			long pivotValues = candidates[pivot];
+			if(Long.bitCount(pivotValues) != 3) continue;
+			
+			for(int first : peers[pivot])
+			{
+				long firstValues = candidates[first];
+				if(Long.bitCount(firstValues) != 2 || (firstValues & ~pivotValues) != 0) continue;
+				
+				for(int second : peers[pivot])
+				{
+					long secondValues = candidates[second];
+					if(second == first || Long.bitCount(secondValues) != 2 || (firstValues | secondValues) != pivotValues) continue;
+					
+					changed |= eliminateSeenBy(first, second, pivot, firstValues & secondValues);
+				}
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * looks for a chain of candidates from one candidate which proves it true, or rules out candidates seeing both
+	 * ends. the links alternate: if a candidate is false, the other of a pair of candidates is true, whether the
+	 * pair is the only two places for a value in a unit or the only two values of a square. if a candidate is true,
+	 * every candidate seeing it is false. following the links from a candidate taken to be false, every candidate
+	 * reached as true means one or the other is true, so a candidate seeing both can't be
+	 * 
+	 * @param singleValue	true to only follow links of one value, an x-chain
+	 * 
+	 * @return				true if a candidate was filled in or ruled out, the search stopping at the first chain
+	 * 						which does either
+	 */
+	private boolean chains(boolean singleValue)
+	{
+		//nothing changes until a chain gets somewhere, so the pairs only need finding once
+		for(int unit = 0; unit < units.length; unit++)
+		{
+			for(int value = 1; value <= gridSize; value++)
+			{
+				long places = positions(units[unit], 1L << value);
+				pairs[unit * 64 + value] = Long.bitCount(places) != 2 ? -1
+						: units[unit][Long.numberOfTrailingZeros(places)] * squareCount + units[unit][63 - Long.numberOfLeadingZeros(places)];
+			}
+		}
+		
+		for(int square = 0; square < squareCount; square++)
+		{
+			for(long remaining = candidates[square]; remaining != 0; remaining &= remaining - 1)
+			{
+				if(chainFrom(square, Long.numberOfTrailingZeros(remaining), singleValue)) return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * follows the chains from a candidate taken to be false, see chains()
+	 * 
+	 * @param startSquare	the square of the candidate
+	 * @param startValue	the value of the candidate
+	 * @param singleValue	true to only follow links of the candidate's value
+	 * 
+	 * @return				true if a candidate was filled in or ruled out
+	 */
+	private boolean chainFrom(int startSquare, int startValue, boolean singleValue)
+	{
+		stamp++;
+		int head = 0;
+		int tail = 0;
+		int start = startSquare * 64 + startValue;
+		falseMarks[start] = stamp;
+		queue[tail++] = start * 2;
+		
+		//each entry is a candidate times two, plus one if it has been reached as true
+		while(head < tail)
+		{
+			int entry = queue[head++];
+			int square = entry >> 7;
+			int value = (entry >> 1) & 63;
+			long bit = 1L << value;
+			
+			if((entry & 1) == 0)
+			{
+				//if this is false, the other value of a square with two is true
+				long others = candidates[square] & ~bit;
+				if(!singleValue && Long.bitCount(others) == 1) tail = reach(square, Long.numberOfTrailingZeros(others), 1, trueMarks, tail);
+				
+				//and the other place for the value in a unit with two
+				for(int unit : unitsOf[square])
+				{
+					int pair = pairs[unit * 64 + value];
+					if(pair != -1) tail = reach(pair / squareCount == square ? pair % squareCount : pair / squareCount, value, 1, trueMarks, tail);
+				}
+			}
+			else
+			{
+				//if this is true, the other values of its square are false
+				if(!singleValue)
+				{
+					for(long others = candidates[square] & ~bit; others != 0; others &= others - 1) tail = reach(square, Long.numberOfTrailingZeros(others), 0, falseMarks, tail);
+				}
+				
+				//and the value everywhere it sees
+				for(int peer : peers[square])
+				{
+					if((candidates[peer] & bit) != 0) tail = reach(peer, value, 0, falseMarks, tail);
+				}
+			}
+		}
+		
+		//the candidate being false means it is true, so it must be
+		if(trueMarks[start] == stamp)
+		{
+			place(startSquare, startValue);
+			return true;
+		}
+		
+		//rule out the candidates seeing the start, and something reached as true
+		long startBit = 1L << startValue;
+		boolean changed = false;
+		for(int peer : peers[startSquare])
+		{
+			if((candidates[peer] & startBit) != 0 && seesTrue(peer, startValue, singleValue)) changed |= eliminate(peer, startBit);
+		}
+		for(long others = singleValue ? 0 : candidates[startSquare] & ~startBit; others != 0; others &= others - 1)
+		{
+			int value = Long.numberOfTrailingZeros(others);
+			if(seesTrue(startSquare, value, false)) changed |= eliminate(startSquare, 1L << value);
+		}
+		return changed;
+	}
+	
+	/**
+	 * marks a candidate as reached by the current chain search and queues it, unless it already has been
+	 * 
+	 * @param square	the square of the candidate
+	 * @param value		the value of the candidate
+	 * @param isTrue	1 if it was reached as true, 0 if as false
+	 * @param marks		trueMarks or falseMarks to match
+	 * @param tail		the end of the queue
+	 * 
+	 * @return			the new end of the queue
+	 */
+	private int reach(int square, int value, int isTrue, int[] marks, int tail)
+	{
+		int candidate = square * 64 + value;
+		if(marks[candidate] == stamp) return tail;
+		
+		marks[candidate] = stamp;
+		queue[tail] = candidate * 2 + isTrue;
+		return tail + 1;
+	}
+	
+	/**
+	 * checks whether a candidate sees one the current chain search reached as true, in that it can't be true too
+	 * 
+	 * @param square		the square of the candidate
+	 * @param value			the value of the candidate
+	 * @param singleValue	true to only look at candidates of the same value
+	 * 
+	 * @return				true if it sees one
+	 */
+	private boolean seesTrue(int square, int value, boolean singleValue)
+	{
+		for(long others = singleValue ? 0 : candidates[square] & ~(1L << value); others != 0; others &= others - 1)
+		{
+			if(trueMarks[square * 64 + Long.numberOfTrailingZeros(others)] == stamp) return true;
+		}
+		for(int peer : peers[square])
+		{
+			if(trueMarks[peer * 64 + value] == stamp && (candidates[peer] & 1L << value) != 0) return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * tries every set of a given size of the masks, calling a handler for each set covering only as many bits
+	 * as it has members. masks with one bit, or more than the size, can't be in a set
+	 * 
+	 * @param masks		the masks, indexed by the bit each stands for in a set
+	 * @param size		the number of members of a set
+	 * @param handler	applies a set that was found
+	 * 
+	 * @return			true if the handler ruled anything out
+	 */
+	private static boolean subsets(long[] masks, int size, SubsetHandler handler)
+	{
+		return subsets(masks, size, handler, 0, 0, 0, 0);
+	}
+	
+	/**
+	 * adds members to a set, see subsets(long[], int, SubsetHandler)
+	 * 
+	 * @param masks		the masks
+	 * @param size		the number of members of a set
+	 * @param handler	applies a set that was found
+	 * @param first		the first mask which can be added
+	 * @param depth		the number of members so far
+	 * @param members	bitmask of the members so far
+	 * @param union		the bits of the members so far
+	 * 
+	 * @return			true if the handler ruled anything out
+	 */
+	private static boolean subsets(long[] masks, int size, SubsetHandler handler, int first, int depth, long members, long union)
+	{
+		if(depth == size) return Long.bitCount(union) == size && handler.found(members, union);
+		
+		boolean changed = false;
+		for(int i = first; i < masks.length; i++)
+		{
+			int bits = Long.bitCount(masks[i]);
+			if(bits < 2 || bits > size || Long.bitCount(union | masks[i]) > size) continue;
+			
+			changed |= subsets(masks, size, handler, i + 1, depth + 1, members | 1L << i, union | masks[i]);
+		}
+		return changed;
+	}
+	
+	/**
+	 * fills in a square and rules its value out of the square's peers
+	 * 
+	 * @param square	the square
+	 * @param value		the value
+	 */
+	private void place(int square, int value)
+	{
+		long bit = 1L << value;
+		values[square] = value;
+		candidates[square] = 0;
+		filledCount++;
+		
+		for(int peer : peers[square])
+		{
+			if((candidates[peer] & bit) != 0 && (candidates[peer] &= ~bit) == 0) broken = true;
+		}
+	}
+	
+	/**
+	 * rules values out of an empty square
+	 * 
+	 * @param square	the square
+	 * @param ruledOut	bitmask of the values
+	 * 
+	 * @return			true if the square had any of them
+	 */
+	private boolean eliminate(int square, long ruledOut)
+	{
+		if((candidates[square] & ruledOut) == 0) return false;
+		
+		candidates[square] &= ~ruledOut;
+		if(candidates[square] == 0) broken = true;
+		return true;
+	}
+	
+	/**
+	 * rules a value out of the squares of a unit which aren't in another unit
+	 * 
+	 * @param unit		the squares of the unit
+	 * @param bit		bitmask of the value
+	 * @param keep		the index of the other unit
+	 * 
+	 * @return			true if any square had the value
+	 */
+	private boolean eliminateOutside(int[] unit, long bit, int keep)
+	{
+		boolean changed = false;
+		for(int square : unit)
+		{
+			if(unitsOf[square][keep / gridSize] != keep) changed |= eliminate(square, bit);
+		}
+		return changed;
+	}
+	
+	/**
+	 * rules values out of every square which sees two, or three, given squares
+	 * 
+	 * @param first		a square
+	 * @param second	another square
+	 * @param third		a third square, or -1
+	 * @param ruledOut	bitmask of the values
+	 * 
+	 * @return			true if any square had them
+	 */
+	private boolean eliminateSeenBy(int first, int second, int third, long ruledOut)
+	{
+		boolean changed = false;
+		for(int square : peers[first])
+		{
+			if(sees(square, second) && (third == -1 || sees(square, third))) changed |= eliminate(square, ruledOut);
+		}
+		return changed;
+	}
+	
+	/**
+	 * @param unit	the squares of a unit
+	 * 
+	 * @return		the values still possible somewhere in the unit
+	 */
+	private long unitCandidates(int[] unit)
+	{
+		long possible = 0;
+		for(int square : unit) possible |= candidates[square];
+		return possible;
+	}
+	
+	/**
+	 * @param unit	the squares of a unit
+	 * @param bit	bitmask of a value
+	 * 
+	 * @return		bit i set if the value can go in the unit's square i
+	 */
+	private long positions(int[] unit, long bit)
+	{
+		long places = 0;
+		for(int i = 0; i < unit.length; i++)
+		{
+			if((candidates[unit[i]] & bit) != 0) places |= 1L << i;
+		}
+		return places;
+	}
+	
+	/**
+	 * @param unit	the index of a unit
+	 * @param bit	bitmask of a value
+	 * 
+	 * @return		the first square of the unit the value can go in, -1 if there isn't one
+	 */
+	private int find(int unit, long bit)
+	{
+		for(int square : units[unit])
+		{
+			if((candidates[square] & bit) != 0) return square;
+		}
+		return -1;
+	}
+	
+	/**
+	 * @param square	a square
+	 * @param other		another square
+	 * 
+	 * @return			true if they are different squares sharing a row, column or sub-grid
+	 */
+	private boolean sees(int square, int other)
+	{
+		return square != other && (rowOf[square] == rowOf[other] || columnOf[square] == columnOf[other] || subgridOf[square] == subgridOf[other]);
+	}
+	
+	/**
+	 * applies a set found by subsets()
+	 */
+	private interface SubsetHandler
+	{
+		/**
+		 * @param members	bitmask of the set's members
+		 * @param union		the bits of the members
+		 * 
+		 * @return			true if anything was ruled out
+		 */
+		boolean found(long members, long union);
+	}
+}
\ No newline at end of file
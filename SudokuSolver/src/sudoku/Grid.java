@@ -0,0 +1,249 @@
+package sudoku;
+
+import java.util.Arrays;
+
+/**
+ * A sudoku grid stored flat, one byte per grid-square, read left to right, top to bottom.
+ * 0 is an empty grid square.
+ * 
+ * Uses a single array where an int[][] grid needs one per row, so copying a grid is one arraycopy
+ * and a 9x9 grid takes 81 bytes rather than around 500.
+ * 
+ * This is the grid type of the public solving API, see SudokuEngine. A grid is not thread safe, but the
+ * engines never keep or change the grids they are given, and every solution they return is a new grid
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public final class Grid
+{
+	/*
+	 * Grid Properties
+	 */
+	private final int subgridWidth;		//width of the sub-grids
+	private final int subgridHeight;	//height of the sub-grids
+	private final int size;				//number of rows, columns and values in the grid
+	
+	private final byte[] cells;	//the value of each grid-square, numbered row * size + column
+	
+	/**
+	 * Constructor for a new empty grid
+	 * 
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 */
+	public Grid(int subgridWidth, int subgridHeight)
+	{
+		this.subgridWidth = subgridWidth;
+		this.subgridHeight = subgridHeight;
+		this.size = subgridWidth * subgridHeight;
+		
+		//values are kept in a byte, so the largest must fit
+		if(size < 1 || size > Byte.MAX_VALUE) throw new IllegalArgumentException("Unsupported grid size " + size);
+		
+		cells = new byte[size * size];
+	}
+	
+	/**
+	 * makes a grid holding the values of a 2D array
+	 * 
+	 * @param values		the values of each row, 0 for an empty grid square
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * 
+	 * @return				the new grid
+	 */
+	public static Grid fromArray(int[][] values, int subgridWidth, int subgridHeight)
+	{
+		Grid grid = new Grid(subgridWidth, subgridHeight);
+		for(int row = 0; row < grid.size; row++)
+		{
+			for(int column = 0; column < grid.size; column++) grid.set(row, column, values[row][column]);
+		}
+		return grid;
+	}
+	
+	/**
+	 * @return	the number of rows, columns and values in the grid
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+	
+	/**
+	 * @return	the width of the sub-grids
+	 */
+	public int getSubgridWidth()
+	{
+		return subgridWidth;
+	}
+	
+	/**
+	 * @return	the height of the sub-grids
+	 */
+	public int getSubgridHeight()
+	{
+		return subgridHeight;
+	}
+	
+	/**
+	 * @param row		the row of the grid square
+	 * @param column	the column of the grid square
+	 * 
+	 * @return			the value in the grid square, 0 if it is empty
+	 */
+	public int get(int row, int column)
+	{
+		return cells[row * size + column];
+	}
+	
+	/**
+	 * @param square	the number of the grid square, row * size + column
+	 * 
+	 * @return			the value in the grid square, 0 if it is empty
+	 */
+	public int get(int square)
+	{
+		return cells[square];
+	}
+	
+	/**
+	 * fills in a grid square. values aren't checked against the size of the grid here, the solvers treat
+	 * out of range values as an invalid grid
+	 * 
+	 * @param row		the row of the grid square
+	 * @param column	the column of the grid square
+	 * @param value		the value to put in it, 0 to empty it
+	 */
+	public void set(int row, int column, int value)
+	{
+		cells[row * size + column] = (byte)value;
+	}
+	
+	/**
+	 * fills in a grid square
+	 * 
+	 * @param square	the number of the grid square, row * size + column
+	 * @param value		the value to put in it, 0 to empty it
+	 */
+	public void set(int square, int value)
+	{
+		cells[square] = (byte)value;
+	}
+	
+	/**
+	 * copies every value from another grid of the same shape, without allocating
+	 * 
+	 * @param other	the grid to copy
+	 * 
+	 * @throws IllegalArgumentException	if the other grid's sub-grids are a different shape
+	 */
+	public void copyFrom(Grid other)
+	{
+		if(other.subgridWidth != subgridWidth || other.subgridHeight != subgridHeight)
+		{
+			throw new IllegalArgumentException("Grid shapes differ");
+		}
+		System.arraycopy(other.cells, 0, cells, 0, cells.length);
+	}
+	
+	/**
+	 * @return	a new grid with the same shape and values
+	 */
+	public Grid copy()
+	{
+		Grid copy = new Grid(subgridWidth, subgridHeight);
+		copy.copyFrom(this);
+		return copy;
+	}
+	
+	/**
+	 * @return	the number of squares with a value in them, the clues of a puzzle
+	 */
+	public int countFilled()
+	{
+		int filled = 0;
+		for(int value : cells)
+		{
+			if(value != 0) filled++;
+		}
+		return filled;
+	}
+	
+	/**
+	 * checks whether the value in a grid square breaks the rules, either because it is out of range or
+	 * because it is repeated in the same row, column or sub-grid. an empty square never does
+	 * 
+	 * @param row		the row of the grid square
+	 * @param column	the column of the grid square
+	 * 
+	 * @return			true if the value is out of range or repeated
+	 */
+	public boolean conflicts(int row, int column)
+	{
+		int value = get(row, column);
+		if(value == 0) return false;
+		if(value < 0 || value > size) return true;
+		
+		for(int i = 0; i < size; i++)
+		{
+			if(i != column && get(row, i) == value) return true;
+			if(i != row && get(i, column) == value) return true;
+		}
+		
+		int firstRow = (row / subgridHeight) * subgridHeight;			//first row of the square's sub-grid
+		int firstColumn = (column / subgridWidth) * subgridWidth;	//first column of the square's sub-grid
+		for(int j = firstRow; j < firstRow + subgridHeight; j++)
+		{
+			for(int i = firstColumn; i < firstColumn + subgridWidth; i++)
+			{
+				if((j != row || i != column) && get(j, i) == value) return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * checks that no value in the grid is out of range or repeated in a row, column or sub-grid. an
+	 * empty or partly filled grid can be valid, whether or not it can be solved
+	 * 
+	 * @return	the validity of the grid
+	 */
+	public boolean isValid()
+	{
+		for(int row = 0; row < size; row++)
+		{
+			for(int column = 0; column < size; column++)
+			{
+				if(conflicts(row, column)) return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return	the values of the grid as a new 2D array
+	 */
+	public int[][] toArray()
+	{
+		int[][] values = new int[size][size];
+		for(int square = 0; square < cells.length; square++) values[square / size][square % size] = cells[square];
+		return values;
+	}
+	
+	@Override
+	public boolean equals(Object other)
+	{
+		if(!(other instanceof Grid)) return false;
+		
+		Grid grid = (Grid)other;
+		return grid.subgridWidth == subgridWidth && grid.subgridHeight == subgridHeight && Arrays.equals(grid.cells, cells);
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(cells);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,516 @@
+package sudoku;
+
+import javax.swing.JComponent;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+
+/**
+ * A single painted component showing the whole grid, which replaces a text field per square.
+ * 
+ * The square with the keyboard focus is moved with the arrow keys or the mouse. Typing a number fills it in,
+ * so 1 then 2 gives 12 on grids that large, and 0, space, delete or backspace empties it. Holding ctrl while
+ * typing a number pencils it in as a possible value instead, or rubs it out again, and pencil marks are shown
+ * in empty squares when they are large enough to read.
+ * 
+ * While the grid can be edited every filled square is shown as a clue, and a square whose value is repeated in
+ * its row, column or sub-grid is shown in red. The counts behind this are updated as each square changes, and
+ * only the squares which look different afterwards are repainted, so showing a new grid costs little more than
+ * the squares that changed however large the grid is
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class GridPanel extends JComponent
+{
+	private final static long serialVersionUID = 1L;
+	
+	/*
+	 * the colours of the squares, as the text fields had them
+	 */
+	private final static Color BLANK_BACKGROUND = Color.WHITE;
+	private final static Color BLANK_TEXT = Color.BLACK;
+	private final static Color CLUE_BACKGROUND = Color.DARK_GRAY;
+	private final static Color CLUE_TEXT = Color.WHITE;
+	private final static Color CONFLICT_BACKGROUND = Color.RED;
+	private final static Color CONFLICT_TEXT = Color.WHITE;
+	private final static Color MARK_TEXT = Color.GRAY;
+	private final static Color SELECTED_OUTLINE = new Color(60, 120, 230);
+	private final static Color LINES = Color.BLACK;
+	
+	/*
+	 * sizes in pixels
+	 */
+	private final static int OUTER = 3;				//space outside the first square, for the thick border
+	private final static int THICK = 3;				//width of the lines around the grid and sub-grids
+	private final static int MIN_MARK_FONT = 7;		//smallest font pencil marks are drawn in
+	private final static long TYPING_DELAY = 1000;	//milliseconds within which a second digit adds to the first
+	
+	/*
+	 * Grid Properties
+	 */
+	private int subgridWidth;	//width of the sub-grids
+	private int subgridHeight;	//height of the sub-grids
+	private int gridSize;		//number of rows, columns and values in the grid
+	private int squareSize;		//width and height of a square in pixels
+	private Font valueFont;
+	private Font markFont;		//null when the squares are too small for pencil marks
+	
+	/*
+	 * what is shown in each square
+	 */
+	private Grid grid;
+	private long[] marks;		//bit n set if n is pencilled in
+	private boolean[] clues;	//squares filled when the grid stopped being editable
+	private boolean editable = true;
+	private int selected = 0;	//the square with the focus
+	
+	/*
+	 * the rules broken by the grid, kept up to date as each square changes. units are numbered rows first,
+	 * then columns, then sub-grids
+	 */
+	private int[][] valueCounts;	//how many squares of each unit hold each value
+	private int duplicateCount;		//copies of a value in a unit beyond the first, 0 if no value is repeated
+	
+	/*
+	 * the number being typed into a square, so a second digit can be added to the first
+	 */
+	private int typedSquare = -1;	//the square, -1 once it has moved or the delay has passed
+	private int typedValue;			//the number so far
+	private boolean typedMark;		//whether it is a pencil mark
+	private long typedTime;			//when the last digit was typed
+	
+	/**
+	 * Constructor for a new empty grid
+	 * 
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 */
+	GridPanel(int subgridWidth, int subgridHeight)
+	{
+		setShape(subgridWidth, subgridHeight);
+		setFocusable(true);
+		addKeyListener(new TypingListener());
+		addMouseListener(new ClickListener());
+	}
+	
+	/**
+	 * changes the shape of the grid, emptying it
+	 * 
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 */
+	void setShape(int subgridWidth, int subgridHeight)
+	{
+		this.subgridWidth = subgridWidth;
+		this.subgridHeight = subgridHeight;
+		gridSize = subgridWidth * subgridHeight;
+		squareSize = gridSize <= 9 ? 36 : gridSize <= 16 ? 30 : 24;
+		
+		valueFont = new Font("ARIAL", Font.BOLD, gridSize <= 9 ? 20 : gridSize <= 16 ? 16 : 12);
+		int markSize = squareSize / Math.max(subgridWidth, subgridHeight) - 1;
+		markFont = markSize >= MIN_MARK_FONT ? new Font("ARIAL", Font.PLAIN, markSize) : null;
+		
+		grid = new Grid(subgridWidth, subgridHeight);
+		marks = new long[gridSize * gridSize];
+		clues = new boolean[gridSize * gridSize];
+		valueCounts = new int[3 * gridSize][gridSize + 1];
+		duplicateCount = 0;
+		selected = 0;
+		typedSquare = -1;
+		
+		int size = 2 * OUTER + gridSize * squareSize;
+		setPreferredSize(new Dimension(size, size));
+		revalidate();
+		repaint();
+	}
+	
+	/**
+	 * @return	a copy of the grid as it is shown
+	 */
+	Grid getGrid()
+	{
+		return grid.copy();
+	}
+	
+	/**
+	 * shows a grid, repainting only the squares which change
+	 * 
+	 * @param shown	the grid to show, the same shape as this one
+	 */
+	void display(Grid shown)
+	{
+		for(int square = 0; square < gridSize * gridSize; square++) set(square, shown.get(square));
+	}
+	
+	/**
+	 * empties every square, and rubs out every pencil mark
+	 */
+	void clear()
+	{
+		display(new Grid(subgridWidth, subgridHeight));
+		Arrays.fill(marks, 0);
+		repaint();
+	}
+	
+	/**
+	 * fills in a square
+	 * 
+	 * @param row		the row of the square
+	 * @param column	the column of the square
+	 * @param value		the value, 0 to empty it
+	 * 
+	 * @throws IllegalArgumentException	if the value is out of range
+	 */
+	void set(int row, int column, int value)
+	{
+		if(value < 0 || value > gridSize) throw new IllegalArgumentException("Invalid value " + value);
+		
+		set(row * gridSize + column, value);
+	}
+	
+	/**
+	 * @return	true if any value is repeated in a row, column or sub-grid
+	 */
+	boolean hasConflicts()
+	{
+		return duplicateCount > 0;
+	}
+	
+	/**
+	 * allows or stops typing into the grid. once it stops, the squares filled so far are shown as clues, and
+	 * any filled in later, such as a solution, are shown as blank squares with values
+	 * 
+	 * @param editable	true to allow typing
+	 */
+	void setEditable(boolean editable)
+	{
+		if(editable == this.editable) return;
+		
+		this.editable = editable;
+		for(int square = 0; square < clues.length; square++) clues[square] = grid.get(square) != 0;
+		typedSquare = -1;
+		repaint();
+	}
+	
+	/**
+	 * moves the focus to the first square
+	 */
+	void selectFirst()
+	{
+		select(0);
+		requestFocusInWindow();
+	}
+	
+	/**
+	 * fills in a square, updating the rules broken and repainting the squares which look different
+	 * 
+	 * @param square	the square
+	 * @param value		the value, 0 to empty it
+	 */
+	private void set(int square, int value)
+	{
+		int oldValue = grid.get(square);
+		if(value == oldValue) return;
+		
+		int row = square / gridSize;
+		int column = square % gridSize;
+		count(row, column, oldValue, -1);
+		count(row, column, value, 1);
+		grid.set(square, value);
+		repaintSquare(square);
+		
+		//only squares holding the old or new value can have started or stopped breaking the rules
+		int firstRow = row - row % subgridHeight;
+		int firstColumn = column - column % subgridWidth;
+		for(int i = 0; i < gridSize; i++)
+		{
+			repaintIfHolding(row * gridSize + i, oldValue, value);
+			repaintIfHolding(i * gridSize + column, oldValue, value);
+			repaintIfHolding((firstRow + i / subgridWidth) * gridSize + firstColumn + i % subgridWidth, oldValue, value);
+		}
+	}
+	
+	/**
+	 * adds or removes a value of a square in the counts of its row, column and sub-grid
+	 * 
+	 * @param row		the row of the square
+	 * @param column	the column of the square
+	 * @param value		the value, 0 if empty
+	 * @param change	1 to add the value, -1 to remove it
+	 */
+	private void count(int row, int column, int value, int change)
+	{
+		if(value == 0) return;
+		
+		int subgrid = (row / subgridHeight) * (gridSize / subgridWidth) + column / subgridWidth;
+		for(int unit : new int[] {row, gridSize + column, 2 * gridSize + subgrid})
+		{
+			//a value already in the unit is a repeat, and removing one leaves one fewer
+			if(change > 0 && valueCounts[unit][value]++ > 0) duplicateCount++;
+			if(change < 0 && --valueCounts[unit][value] > 0) duplicateCount--;
+		}
+	}
+	
+	/**
+	 * @param square	a square
+	 * 
+	 * @return			true if its value is repeated in its row, column or sub-grid
+	 */
+	private boolean conflicts(int square)
+	{
+		int value = grid.get(square);
+		if(value == 0) return false;
+		
+		int row = square / gridSize;
+		int column = square % gridSize;
+		int subgrid = (row / subgridHeight) * (gridSize / subgridWidth) + column / subgridWidth;
+		return valueCounts[row][value] > 1 || valueCounts[gridSize + column][value] > 1 || valueCounts[2 * gridSize + subgrid][value] > 1;
+	}
+	
+	/**
+	 * toggles a pencil mark in an empty square
+	 * 
+	 * @param square	the square
+	 * @param value		the value pencilled in or rubbed out
+	 */
+	private void toggleMark(int square, int value)
+	{
+		marks[square] ^= 1L << value;
+		repaintSquare(square);
+	}
+	
+	/**
+	 * moves the focus to a square
+	 * 
+	 * @param square	the square
+	 */
+	private void select(int square)
+	{
+		repaintSquare(selected);
+		selected = square;
+		typedSquare = -1;
+		repaintSquare(selected);
+	}
+	
+	/**
+	 * handles a digit typed into the selected square, adding it to the one before if they make a value
+	 * 
+	 * @param digit	the digit
+	 * @param mark	true if it is a pencil mark
+	 */
+	private void type(int digit, boolean mark)
+	{
+		long now = System.currentTimeMillis();
+		boolean following = typedSquare == selected && typedMark == mark && now - typedTime < TYPING_DELAY;
+		boolean adding = following && typedValue * 10 + digit <= gridSize;
+		int value = adding ? typedValue * 10 + digit : digit;
+		if(value > gridSize) return;
+		
+		//a 0 which can't add to the number just typed is a slip, not a request to empty the square
+		if(following && !adding && digit == 0) return;
+		
+		if(mark)
+		{
+			if(grid.get(selected) != 0 || value == 0) return;
+			
+			//the first digit was pencilled in on its own, so swap it for the whole number
+			if(adding) toggleMark(selected, typedValue);
+			toggleMark(selected, value);
+		}
+		else
+		{
+			set(selected, value);
+		}
+		
+		typedSquare = value == 0 ? -1 : selected;
+		typedValue = value;
+		typedMark = mark;
+		typedTime = now;
+	}
+	
+	/**
+	 * repaints a square if it holds either of two values
+	 * 
+	 * @param square	the square
+	 * @param first		a value
+	 * @param second	another value
+	 */
+	private void repaintIfHolding(int square, int first, int second)
+	{
+		int value = grid.get(square);
+		if(value != 0 && (value == first || value == second)) repaintSquare(square);
+	}
+	
+	/**
+	 * asks for a square to be repainted, with the lines around it
+	 * 
+	 * @param square	the square
+	 */
+	private void repaintSquare(int square)
+	{
+		repaint(OUTER + (square % gridSize) * squareSize - THICK, OUTER + (square / gridSize) * squareSize - THICK,
+				squareSize + 2 * THICK, squareSize + 2 * THICK);
+	}
+	
+	/**
+	 * paints the squares inside the area being repainted, then the lines over them
+	 * 
+	 * @param g	the graphics to paint with, clipped to the area being repainted
+	 */
+	protected void paintComponent(Graphics g)
+	{
+		Rectangle clip = g.getClipBounds();
+		if(clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+		
+		int firstRow = Math.max(0, (clip.y - OUTER) / squareSize);
+		int lastRow = Math.min(gridSize - 1, (clip.y + clip.height - OUTER) / squareSize);
+		int firstColumn = Math.max(0, (clip.x - OUTER) / squareSize);
+		int lastColumn = Math.min(gridSize - 1, (clip.x + clip.width - OUTER) / squareSize);
+		
+		for(int row = firstRow; row <= lastRow; row++)
+		{
+			for(int column = firstColumn; column <= lastColumn; column++) paintSquare(g, row, column);
+		}
+		
+		//thick lines around the grid and each sub-grid, thin lines between squares
+		int length = gridSize * squareSize;
+		g.setColor(LINES);
+		for(int i = 0; i <= gridSize; i++)
+		{
+			int position = OUTER + i * squareSize;
+			int verticalWidth = i % subgridWidth == 0 ? THICK : 1;
+			int horizontalWidth = i % subgridHeight == 0 ? THICK : 1;
+			g.fillRect(position - verticalWidth / 2, OUTER - THICK / 2, verticalWidth, length + THICK);
+			g.fillRect(OUTER - THICK / 2, position - horizontalWidth / 2, length + THICK, horizontalWidth);
+		}
+	}
+	
+	/**
+	 * paints one square, based on if it is:
+	 * 	- a blank square	(white with black text)
+	 * 	- a clue square 	(dark gray with white text)
+	 * 	- an invalid square	(red with white text)
+	 * 
+	 * @param g			the graphics to paint with
+	 * @param row		the row of the square
+	 * @param column	the column of the square
+	 */
+	private void paintSquare(Graphics g, int row, int column)
+	{
+		int square = row * gridSize + column;
+		int x = OUTER + column * squareSize;
+		int y = OUTER + row * squareSize;
+		int value = grid.get(square);
+		
+		Color text = BLANK_TEXT;
+		Color background = BLANK_BACKGROUND;
+		if(conflicts(square))
+		{
+			text = CONFLICT_TEXT;
+			background = CONFLICT_BACKGROUND;
+		}
+		else if(value != 0 && (editable || clues[square]))
+		{
+			text = CLUE_TEXT;
+			background = CLUE_BACKGROUND;
+		}
+		g.setColor(background);
+		g.fillRect(x, y, squareSize, squareSize);
+		
+		if(value != 0)
+		{
+			g.setColor(text);
+			drawCentred(g, valueFont, Integer.toString(value), x, y, squareSize, squareSize);
+		}
+		else if(markFont != null && marks[square] != 0)
+		{
+			//each mark has its place in a small copy of a sub-grid
+			int markWidth = squareSize / subgridWidth;
+			int markHeight = squareSize / subgridHeight;
+			g.setColor(MARK_TEXT);
+			for(long remaining = marks[square]; remaining != 0; remaining &= remaining - 1)
+			{
+				int mark = Long.numberOfTrailingZeros(remaining);
+				drawCentred(g, markFont, Integer.toString(mark), x + ((mark - 1) % subgridWidth) * markWidth,
+						y + ((mark - 1) / subgridWidth) * markHeight, markWidth, markHeight);
+			}
+		}
+		
+		if(square == selected && editable)
+		{
+			g.setColor(SELECTED_OUTLINE);
+			g.drawRect(x + 2, y + 2, squareSize - 5, squareSize - 5);
+			g.drawRect(x + 3, y + 3, squareSize - 7, squareSize - 7);
+		}
+	}
+	
+	/**
+	 * draws text in the middle of a box
+	 * 
+	 * @param g			the graphics to draw with
+	 * @param font		the font
+	 * @param text		the text
+	 * @param x			the left of the box
+	 * @param y			the top of the box
+	 * @param width		the width of the box
+	 * @param height	the height of the box
+	 */
+	private static void drawCentred(Graphics g, Font font, String text, int x, int y, int width, int height)
+	{
+		g.setFont(font);
+		FontMetrics metrics = g.getFontMetrics();
+		g.drawString(text, x + (width - metrics.stringWidth(text)) / 2, y + (height - metrics.getHeight()) / 2 + metrics.getAscent());
+	}
+	
+	/*
+	 * moves the focus with the arrow keys and fills in the selected square
+	 */
+	private class TypingListener extends KeyAdapter
+	{
+		public void keyPressed(KeyEvent event)
+		{
+			int row = selected / gridSize;
+			int column = selected % gridSize;
+			int key = event.getKeyCode();
+			
+			if(key == KeyEvent.VK_UP && row > 0) select(selected - gridSize);
+			else if(key == KeyEvent.VK_DOWN && row < gridSize - 1) select(selected + gridSize);
+			else if(key == KeyEvent.VK_LEFT && column > 0) select(selected - 1);
+			else if(key == KeyEvent.VK_RIGHT && column < gridSize - 1) select(selected + 1);
+			else if(!editable) return;
+			else if(key >= KeyEvent.VK_0 && key <= KeyEvent.VK_9) type(key - KeyEvent.VK_0, event.isControlDown());
+			else if(key >= KeyEvent.VK_NUMPAD0 && key <= KeyEvent.VK_NUMPAD9) type(key - KeyEvent.VK_NUMPAD0, event.isControlDown());
+			else if(key == KeyEvent.VK_SPACE || key == KeyEvent.VK_DELETE || key == KeyEvent.VK_BACK_SPACE)
+			{
+				//empty the square, or if it already is, rub out its pencil marks
+				if(grid.get(selected) == 0) marks[selected] = 0;
+				set(selected, 0);
+				repaintSquare(selected);
+				typedSquare = -1;
+			}
+		}
+	}
+	
+	/*
+	 * selects the square which is clicked
+	 */
+	private class ClickListener extends MouseAdapter
+	{
+		public void mousePressed(MouseEvent event)
+		{
+			int row = (event.getY() - OUTER) / squareSize;
+			int column = (event.getX() - OUTER) / squareSize;
+			if(event.getX() >= OUTER && event.getY() >= OUTER && row < gridSize && column < gridSize) select(row * gridSize + column);
+			requestFocusInWindow();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+package sudoku;
+
+import java.util.List;
+
+/**
+ * Collects solutions into a list until it has been given a set number of them
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class ListCollector implements SolutionCollector
+{
+	private final List<Grid> solutions;		//the list solutions are added to
+	private final int maxSolutions;			//the most solutions to add
+	private int added;						//the number added so far
+	
+	/**
+	 * Constructor for a new list collector
+	 * 
+	 * @param solutions		the list solutions are added to
+	 * @param maxSolutions	the most solutions to add before stopping the search
+	 */
+	ListCollector(List<Grid> solutions, int maxSolutions)
+	{
+		this.solutions = solutions;
+		this.maxSolutions = maxSolutions;
+	}
+	
+	public boolean add(Grid solution)
+	{
+		solutions.add(solution);
+		return ++added < maxSolutions;
+	}
+	
+	public boolean isDone()
+	{
+		return added >= maxSolutions;
+	}
+	
+	/**
+	 * @return	the number of solutions added so far
+	 */
+	int getAdded()
+	{
+		return added;
+	}
+}
\ No newline at end of file
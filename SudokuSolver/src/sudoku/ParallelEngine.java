@@ -0,0 +1,104 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A SudokuEngine using ParallelSolver.
+ * 
+ * A parallel solver is already safe to call from several threads, so one is kept for each shape of grid
+ * and shared by every caller
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class ParallelEngine implements SudokuEngine
+{
+	private final ForkJoinPool pool;	//the threads every search runs on
+	
+	//a solver for each shape of grid, keyed by subgridWidth * 64 + subgridHeight
+	private final ConcurrentHashMap<Integer, ParallelSolver> solvers = new ConcurrentHashMap<Integer, ParallelSolver>();
+	
+	/**
+	 * Constructor for a new parallel engine
+	 * 
+	 * @param pool	the threads to solve on
+	 */
+	ParallelEngine(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+	
+	/**
+	 * gets the solver for grids of the same shape as the puzzle, making it the first time that shape is seen
+	 * 
+	 * @param puzzle	the grid to be solved
+	 * 
+	 * @return			the shared solver
+	 */
+	private ParallelSolver solverFor(Grid puzzle)
+	{
+		int width = puzzle.getSubgridWidth();
+		int height = puzzle.getSubgridHeight();
+		return solvers.computeIfAbsent(width * 64 + height, shape -> new ParallelSolver(width, height, pool));
+	}
+	
+	public void solve(Grid puzzle, SolutionCollector collector)
+	{
+		solverFor(puzzle).solve(puzzle, collector);
+	}
+	
+	/**
+	 * collects through the solver's own shared limit, as a plain ListCollector isn't safe to call from
+	 * several threads
+	 */
+	@Override
+	public List<Grid> solve(Grid puzzle, int maxSolutions)
+	{
+		List<Grid> solutions = new ArrayList<Grid>();
+		solverFor(puzzle).solve(puzzle, solutions, maxSolutions);
+		return solutions;
+	}
+	
+	public long count(Grid puzzle, long maxSolutions, Grid firstSolution)
+	{
+		if(maxSolutions <= 0) return 0;
+		
+		SharedCounter counter = new SharedCounter(maxSolutions, firstSolution);
+		solve(puzzle, counter);
+		return Math.min(counter.found.get(), maxSolutions);
+	}
+	
+	/**
+	 * counts solutions from every task up to a limit, keeping only the first
+	 */
+	private static class SharedCounter implements SolutionCollector
+	{
+		private final long maxSolutions;				//the number of solutions to stop at
+		private final Grid firstSolution;				//the grid the first solution is copied into, may be null
+		private final AtomicLong found = new AtomicLong();	//the number found so far, may pass the limit
+		private volatile boolean done;					//set once the limit is reached, checked by every task at every step
+		
+		SharedCounter(long maxSolutions, Grid firstSolution)
+		{
+			this.maxSolutions = maxSolutions;
+			this.firstSolution = firstSolution;
+		}
+		
+		public boolean add(Grid solution)
+		{
+			long count = found.incrementAndGet();
+			if(count == 1 && firstSolution != null) firstSolution.copyFrom(solution);
+			if(count >= maxSolutions) done = true;
+			return count < maxSolutions;
+		}
+		
+		public boolean isDone()
+		{
+			return done;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,193 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Solves a single grid on several threads.
+ * 
+ * The top of the search tree is split into independent sub-grids, one for each possible value of the most
+ * constrained square, see BacktrackingSolver.branch. Each sub-grid is a fork/join task, and keeps being
+ * split while the pool has too little queued work, so idle threads can steal whole subtrees from busy ones.
+ * 
+ * The solution limit is shared by every task. Once it is reached, every search still running stops at its
+ * next step. Which solutions are found first, and the order they are added in, depends on timing
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class ParallelSolver
+{
+	/*
+	 * splitting limits. a task is solved on its own thread once the pool has this many queued tasks to spare,
+	 * or it is this many branches below the original grid
+	 */
+	private final static int SURPLUS_TASKS = 3;
+	private final static int MAX_SPLIT_DEPTH = 16;
+	
+	/*
+	 * Grid Properties
+	 */
+	private final int subgridWidth;		//width of the sub-grids
+	private final int subgridHeight;	//height of the sub-grids
+	
+	private final ForkJoinPool pool;	//the threads the tasks run on
+	
+	//a solver for each thread, a solver can be reused but not shared
+	private final ThreadLocal<BacktrackingSolver> solvers;
+	
+	/**
+	 * Constructor for a new parallel solver using the common fork/join pool
+	 * 
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 */
+	ParallelSolver(int subgridWidth, int subgridHeight)
+	{
+		this(subgridWidth, subgridHeight, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Constructor for a new parallel solver
+	 * 
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * @param pool			the threads to solve on
+	 */
+	ParallelSolver(int subgridWidth, int subgridHeight, ForkJoinPool pool)
+	{
+		this.subgridWidth = subgridWidth;
+		this.subgridHeight = subgridHeight;
+		this.pool = pool;
+		
+		//check the shape once here rather than on a worker thread
+		new BacktrackingSolver(subgridWidth, subgridHeight);
+		solvers = ThreadLocal.withInitial(() -> new BacktrackingSolver(subgridWidth, subgridHeight));
+	}
+	
+	/**
+	 * solves the given grid, adding the solutions found to the solutions list once the search has finished.
+	 * the grid itself is not changed. can be called from several threads at once
+	 * 
+	 * @param grid			the grid to be solved
+	 * @param solutions		the list solutions are added to
+	 * @param maxSolutions	the most solutions to add
+	 * 
+	 * @return				the number of solutions added, 0 if the grid is invalid or unsolvable
+	 */
+	int solve(Grid grid, List<Grid> solutions, int maxSolutions)
+	{
+		if(maxSolutions <= 0) return 0;
+		
+		SharedLimit limit = new SharedLimit(maxSolutions);
+		solve(grid, limit);
+		
+		solutions.addAll(limit.found);
+		return limit.found.size();
+	}
+	
+	/**
+	 * solves the given grid, passing each solution found to a collector until it asks for the search to stop.
+	 * the collector is called from several threads at once, so must be thread safe
+	 * 
+	 * @param grid		the grid to be solved
+	 * @param collector	receives the solutions
+	 */
+	void solve(Grid grid, SolutionCollector collector)
+	{
+		if(grid.getSubgridWidth() != subgridWidth || grid.getSubgridHeight() != subgridHeight)
+		{
+			throw new IllegalArgumentException("Expected " + subgridWidth + "x" + subgridHeight + " sub-grids");
+		}
+		
+		//the tasks split the grid into many sub-grids, which branch() takes as 2D arrays
+		pool.invoke(new SearchTask(grid.toArray(), 0, collector));
+	}
+	
+	/**
+	 * searches one sub-grid, splitting it further while other threads could use the work
+	 */
+	private class SearchTask extends RecursiveAction
+	{
+		private final static long serialVersionUID = 1L;
+		
+		private final int[][] grid;				//the sub-grid to search
+		private final int depth;				//the number of splits made to reach it
+		private final SolutionCollector limit;	//collects the solutions of every task
+		
+		SearchTask(int[][] grid, int depth, SolutionCollector limit)
+		{
+			this.grid = grid;
+			this.depth = depth;
+			this.limit = limit;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if(limit.isDone()) return;
+			
+			BacktrackingSolver solver = solvers.get();
+			
+			//with enough work queued for the other threads, search the whole sub-grid here
+			if(depth >= MAX_SPLIT_DEPTH || ForkJoinTask.getSurplusQueuedTaskCount() >= SURPLUS_TASKS)
+			{
+				solver.solve(grid, limit);
+				return;
+			}
+			
+			ArrayList<int[][]> subgrids = new ArrayList<int[][]>();
+			solver.branch(grid, subgrids);
+			
+			//a single sub-grid is already solved, there is nothing to split
+			if(subgrids.size() == 1)
+			{
+				solver.solve(subgrids.get(0), limit);
+				return;
+			}
+			
+			ArrayList<SearchTask> tasks = new ArrayList<SearchTask>();
+			for(int[][] subgrid : subgrids) tasks.add(new SearchTask(subgrid, depth + 1, limit));
+			invokeAll(tasks);
+		}
+	}
+	
+	/**
+	 * collects the solutions of every task, up to a limit shared between them
+	 */
+	private static class SharedLimit implements SolutionCollector
+	{
+		private final AtomicInteger remaining;	//the number of solutions still wanted, negative once past the limit
+		private volatile boolean done;			//set once the limit is reached, checked by every task at every step
+		private final List<Grid> found = new ArrayList<Grid>();
+		
+		SharedLimit(int maxSolutions)
+		{
+			remaining = new AtomicInteger(maxSolutions);
+		}
+		
+		public boolean add(Grid solution)
+		{
+			//claim a place for the solution, another task may have taken the last one
+			int left = remaining.decrementAndGet();
+			if(left < 0) return false;
+			
+			synchronized(found)
+			{
+				found.add(solution);
+			}
+			
+			if(left == 0) done = true;
+			return left > 0;
+		}
+		
+		public boolean isDone()
+		{
+			return done;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,431 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A file of puzzles and their solutions, packed into as few bits as each grid-square needs.
+ * 
+ * The file starts with a header giving the shape of the grids, then has one fixed size record per puzzle: the
+ * packed puzzle followed by its packed solution, which is all 0s if the puzzle has no solution stored. Squares
+ * are packed the same way as in a SolutionStore, 4 bits each for a 9x9 grid, so a 9x9 puzzle takes 41 bytes
+ * where the same grid as csv takes 162.
+ * 
+ * Every record is the same size, so the offset of any record is worked out from its index rather than looked up,
+ * and reading one is a single positional read however large the archive is. The number of records is worked out
+ * from the length of the file, so appending a record only ever writes to the end. A record left half written by
+ * a crash is ignored, and overwritten by the next append.
+ * 
+ * Appended records are buffered until flush() or close(). An archive is not thread safe
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public final class PuzzleArchive implements Closeable
+{
+	/*
+	 * the header, the magic bytes then the format version, the sub-grid width and height and the bits per square
+	 */
+	private final static byte[] MAGIC = {'S', 'D', 'K', 'A'};
+	private final static int VERSION = 1;
+	private final static int HEADER_SIZE = 16;
+	
+	private final static int BUFFER_SIZE = 1 << 16;	//bytes of appended records held before they are written
+	
+	/*
+	 * Grid Properties
+	 */
+	private final int subgridWidth;		//width of the sub-grids
+	private final int subgridHeight;	//height of the sub-grids
+	private final int gridSize;			//number of rows, columns and values in the grid
+	private final int squareCount;		//total number of grid-squares
+	
+	/*
+	 * layout of each record
+	 */
+	private final int bitsPerSquare;	//enough bits for the largest value
+	private final int bytesPerGrid;		//bits of every square, rounded up to a whole byte
+	private final int recordSize;		//a packed puzzle and a packed solution
+	
+	private final FileChannel channel;
+	private long written;				//number of records in the file
+	private final ByteBuffer pending;	//appended records not yet written
+	private final byte[] record;		//one record, used while packing and unpacking
+	private final int[] values;			//one value per grid-square, used while packing and unpacking
+	
+	/**
+	 * Constructor for an archive on an open file
+	 * 
+	 * @param channel		the file, positioned anywhere
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * @param written		the number of whole records already in the file
+	 */
+	private PuzzleArchive(FileChannel channel, int subgridWidth, int subgridHeight, long written)
+	{
+		this.channel = channel;
+		this.subgridWidth = subgridWidth;
+		this.subgridHeight = subgridHeight;
+		this.gridSize = subgridWidth * subgridHeight;
+		this.squareCount = gridSize * gridSize;
+		this.bitsPerSquare = SolutionStore.bitsPerSquare(gridSize);
+		this.bytesPerGrid = (squareCount * bitsPerSquare + 7) / 8;
+		this.recordSize = 2 * bytesPerGrid;
+		this.written = written;
+		this.pending = ByteBuffer.allocate(Math.max(BUFFER_SIZE, recordSize));
+		this.record = new byte[recordSize];
+		this.values = new int[squareCount];
+	}
+	
+	/**
+	 * creates a new, empty archive, replacing any file already there
+	 * 
+	 * @param file			the file to create
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * 
+	 * @return				the archive, open for appending and reading
+	 * 
+	 * @throws IOException	if the file can't be written
+	 */
+	public static PuzzleArchive create(Path file, int subgridWidth, int subgridHeight) throws IOException
+	{
+		//check the shape before touching the file
+		int bitsPerSquare = SolutionStore.bitsPerSquare(new Grid(subgridWidth, subgridHeight).getSize());
+		
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.put(MAGIC).put((byte)VERSION).put((byte)subgridWidth).put((byte)subgridHeight).put((byte)bitsPerSquare);
+			header.clear();
+			write(channel, header, 0);
+			return new PuzzleArchive(channel, subgridWidth, subgridHeight, 0);
+		}
+		catch(IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * opens an existing archive
+	 * 
+	 * @param file	the archive
+	 * 
+	 * @return		the archive, open for appending and reading
+	 * 
+	 * @throws IOException	if the file can't be read or written, or isn't an archive
+	 */
+	public static PuzzleArchive open(Path file) throws IOException
+	{
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			read(channel, header, 0);
+			
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if(!Arrays.equals(magic, MAGIC)) throw new IOException(file + " is not a puzzle archive");
+			if(header.get() != VERSION) throw new IOException(file + " is from a newer version");
+			
+			int subgridWidth = header.get();
+			int subgridHeight = header.get();
+			int bitsPerSquare = header.get();
+			if(subgridWidth < 1 || subgridHeight < 1 || subgridWidth * subgridHeight > Byte.MAX_VALUE || bitsPerSquare != SolutionStore.bitsPerSquare(subgridWidth * subgridHeight))
+			{
+				throw new IOException(file + " has a corrupt header");
+			}
+			
+			int gridSize = subgridWidth * subgridHeight;
+			long recordSize = 2 * ((gridSize * gridSize * bitsPerSquare + 7) / 8);
+			return new PuzzleArchive(channel, subgridWidth, subgridHeight, (channel.size() - HEADER_SIZE) / recordSize);
+		}
+		catch(IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * @return	the width of the sub-grids
+	 */
+	public int getSubgridWidth()
+	{
+		return subgridWidth;
+	}
+	
+	/**
+	 * @return	the height of the sub-grids
+	 */
+	public int getSubgridHeight()
+	{
+		return subgridHeight;
+	}
+	
+	/**
+	 * @return	the number of puzzles in the archive, appended ones included
+	 */
+	public long size()
+	{
+		return written + pending.position() / recordSize;
+	}
+	
+	/**
+	 * adds a puzzle and its solution to the end of the archive
+	 * 
+	 * @param puzzle	the puzzle, 0 for an empty grid square
+	 * @param solution	its solution, or null if it hasn't got one
+	 * 
+	 * @throws IOException	if the buffered records can't be written
+	 */
+	public void append(Grid puzzle, Grid solution) throws IOException
+	{
+		packInto(puzzle, 0);
+		if(solution == null) Arrays.fill(record, bytesPerGrid, recordSize, (byte)0);
+		else packInto(solution, bytesPerGrid);
+		
+		if(pending.remaining() < recordSize) flush();
+		pending.put(record);
+	}
+	
+	/**
+	 * reads a puzzle and its solution into grids supplied by the caller, without allocating
+	 * 
+	 * @param index		the number of the puzzle, in the order they were appended
+	 * @param puzzle	the grid the puzzle is copied into
+	 * @param solution	the grid the solution is copied into, may be null. left unchanged if there is no solution
+	 * 
+	 * @return			true if the puzzle has a solution stored
+	 * 
+	 * @throws IOException	if the archive can't be read
+	 */
+	public boolean read(long index, Grid puzzle, Grid solution) throws IOException
+	{
+		if(index < 0 || index >= size()) throw new IndexOutOfBoundsException("Puzzle " + index + " of " + size());
+		if(puzzle.getSubgridWidth() != subgridWidth || puzzle.getSubgridHeight() != subgridHeight)
+		{
+			throw new IllegalArgumentException("Expected " + subgridWidth + "x" + subgridHeight + " sub-grids");
+		}
+		
+		if(index < written)
+		{
+			read(channel, ByteBuffer.wrap(record), HEADER_SIZE + index * recordSize);
+		}
+		else
+		{
+			//still in the buffer
+			System.arraycopy(pending.array(), (int)(index - written) * recordSize, record, 0, recordSize);
+		}
+		
+		unpackFrom(0, puzzle);
+		
+		boolean solved = false;
+		for(int i = bytesPerGrid; i < recordSize && !solved; i++) solved = record[i] != 0;
+		if(solved && solution != null) unpackFrom(bytesPerGrid, solution);
+		return solved;
+	}
+	
+	/**
+	 * @param index	the number of the puzzle, in the order they were appended
+	 * 
+	 * @return		a new grid holding the puzzle
+	 * 
+	 * @throws IOException	if the archive can't be read
+	 */
+	public Grid getPuzzle(long index) throws IOException
+	{
+		Grid puzzle = new Grid(subgridWidth, subgridHeight);
+		read(index, puzzle, null);
+		return puzzle;
+	}
+	
+	/**
+	 * @param index	the number of the puzzle, in the order they were appended
+	 * 
+	 * @return		a new grid holding the puzzle's solution, or null if it hasn't got one
+	 * 
+	 * @throws IOException	if the archive can't be read
+	 */
+	public Grid getSolution(long index) throws IOException
+	{
+		Grid puzzle = new Grid(subgridWidth, subgridHeight);
+		Grid solution = new Grid(subgridWidth, subgridHeight);
+		return read(index, puzzle, solution) ? solution : null;
+	}
+	
+	/**
+	 * appends every grid of a csv file, in the format the GUI saves, without solutions
+	 * 
+	 * @param file	the csv file, one or more grids separated by blank lines
+	 * 
+	 * @return		the number of puzzles appended
+	 * 
+	 * @throws IOException	if either file can't be read or written, or a grid in the csv file is malformed
+	 */
+	public long importCsv(Path file) throws IOException
+	{
+		long before = size();
+		try
+		{
+			PuzzleLoader.csv(subgridWidth, subgridHeight).load(file, new PuzzleHandler()
+			{
+				public void puzzle(long offset, Grid puzzle)
+				{
+					try
+					{
+						append(puzzle, null);
+					}
+					catch(IOException e)
+					{
+						throw new UncheckedIOException(e);
+					}
+				}
+				
+				public void malformed(long offset, String problem)
+				{
+					throw new UncheckedIOException(new IOException(file + ": malformed grid at byte " + offset + ", " + problem));
+				}
+			});
+		}
+		catch(UncheckedIOException e)
+		{
+			//the handler can't throw IOException itself
+			throw e.getCause();
+		}
+		return size() - before;
+	}
+	
+	/**
+	 * writes every puzzle of the archive to a csv file in the format the GUI saves, a blank line between each,
+	 * so importCsv() reads them back in the same order. a single puzzle can be loaded straight into the GUI
+	 * 
+	 * @param file	the csv file to write, replacing any file already there
+	 * 
+	 * @throws IOException	if either file can't be read or written
+	 */
+	public void exportCsv(Path file) throws IOException
+	{
+		Grid puzzle = new Grid(subgridWidth, subgridHeight);
+		try(PuzzleCsv.Writer writer = PuzzleCsv.writer(file))
+		{
+			for(long index = 0; index < size(); index++)
+			{
+				read(index, puzzle, null);
+				writer.write(puzzle);
+			}
+		}
+	}
+	
+	/**
+	 * writes any buffered records to the file
+	 * 
+	 * @throws IOException	if they can't be written
+	 */
+	public void flush() throws IOException
+	{
+		if(pending.position() == 0) return;
+		
+		//a half written record from an earlier crash is overwritten
+		pending.flip();
+		long records = pending.remaining() / recordSize;
+		write(channel, pending, HEADER_SIZE + written * recordSize);
+		written += records;
+		pending.clear();
+	}
+	
+	/**
+	 * writes any buffered records and closes the file
+	 * 
+	 * @throws IOException	if they can't be written
+	 */
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+			channel.truncate(HEADER_SIZE + written * recordSize);
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+	
+	/**
+	 * packs a grid into the record
+	 * 
+	 * @param grid		the grid to pack
+	 * @param position	where in the record it goes
+	 */
+	private void packInto(Grid grid, int position)
+	{
+		if(grid.getSubgridWidth() != subgridWidth || grid.getSubgridHeight() != subgridHeight)
+		{
+			throw new IllegalArgumentException("Expected " + subgridWidth + "x" + subgridHeight + " sub-grids");
+		}
+		
+		for(int square = 0; square < squareCount; square++)
+		{
+			values[square] = grid.get(square);
+			if(values[square] < 0 || values[square] > gridSize) throw new IllegalArgumentException("Value " + values[square] + " is out of range");
+		}
+		SolutionStore.pack(values, squareCount, bitsPerSquare, record, position);
+	}
+	
+	/**
+	 * unpacks a grid from the record
+	 * 
+	 * @param position	where in the record it is
+	 * @param grid		the grid to unpack it into
+	 */
+	private void unpackFrom(int position, Grid grid)
+	{
+		SolutionStore.unpack(record, position, squareCount, bitsPerSquare, values);
+		for(int square = 0; square < squareCount; square++) grid.set(square, values[square]);
+	}
+	
+	/**
+	 * writes the whole of a buffer at a position in a file
+	 * 
+	 * @param channel	the file
+	 * @param buffer	the bytes to write
+	 * @param position	where they go in the file
+	 * 
+	 * @throws IOException	if they can't be written
+	 */
+	private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while(buffer.hasRemaining()) position += channel.write(buffer, position);
+	}
+	
+	/**
+	 * fills a buffer from a position in a file
+	 * 
+	 * @param channel	the file
+	 * @param buffer	the buffer to fill, left ready to be read from the start
+	 * @param position	where in the file to read from
+	 * 
+	 * @throws IOException	if the file can't be read, or ends first
+	 */
+	private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while(buffer.hasRemaining())
+		{
+			int read = channel.read(buffer, position);
+			if(read < 0) throw new EOFException("Archive ends at byte " + position);
+			position += read;
+		}
+		buffer.flip();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,361 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams grids in the csv format the GUI saves: one line per row of comma separated numbers, 0 for an empty
+ * square, with any number of grids in a file separated by blank lines.
+ * 
+ * Both directions go through a channel and a single buffer, with no strings or line objects made per row. Each
+ * row is checked as it is parsed, so a file is read in one pass, and reading stops with an IOException giving the
+ * line of the first row which isn't valid. Unlike PuzzleLoader this never needs the whole file mapped, so it also
+ * reads from pipes and sockets, and a file is read no further than the grids taken from it.
+ * 
+ * Readers and writers are not thread safe
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public final class PuzzleCsv
+{
+	private final static int BUFFER_SIZE = 1 << 16;	//bytes read or written at a time
+	
+	/**
+	 * Constructor made private so the class can't be instantiated
+	 */
+	private PuzzleCsv()
+	{
+	}
+	
+	/**
+	 * opens a file for reading grids
+	 * 
+	 * @param file			the file
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * 
+	 * @return				the reader, which closes the file when it is closed
+	 * 
+	 * @throws IOException	if the file can't be opened
+	 */
+	public static Reader reader(Path file, int subgridWidth, int subgridHeight) throws IOException
+	{
+		return new Reader(FileChannel.open(file, StandardOpenOption.READ), subgridWidth, subgridHeight);
+	}
+	
+	/**
+	 * reads the grids of a file as a stream, parsing each only when the stream asks for it. the stream must be
+	 * closed to close the file, and throws UncheckedIOException if the file can't be read or a grid is malformed
+	 * 
+	 * @param file			the file
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * 
+	 * @return				a new grid for each grid of the file, in file order
+	 * 
+	 * @throws IOException	if the file can't be opened
+	 */
+	public static Stream<Grid> stream(Path file, int subgridWidth, int subgridHeight) throws IOException
+	{
+		return reader(file, subgridWidth, subgridHeight).stream();
+	}
+	
+	/**
+	 * opens a file for writing grids, replacing any file already there
+	 * 
+	 * @param file	the file
+	 * 
+	 * @return		the writer, which closes the file when it is closed
+	 * 
+	 * @throws IOException	if the file can't be created
+	 */
+	public static Writer writer(Path file) throws IOException
+	{
+		return new Writer(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+	}
+	
+	/**
+	 * finds the size of the grids in a file from its first row, so a reader can be opened with a matching shape
+	 * 
+	 * @param file	the file
+	 * 
+	 * @return		the number of values in the first row, 0 if the file has no rows
+	 * 
+	 * @throws IOException	if the file can't be read
+	 */
+	public static int gridSize(Path file) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			int values = 0;			//commas in the row so far, plus one once anything but whitespace is found
+			boolean blank = true;	//whether the line is blank so far
+			while(channel.read(buffer) > 0)
+			{
+				buffer.flip();
+				while(buffer.hasRemaining())
+				{
+					byte character = buffer.get();
+					if(character == '\n' && !blank) return values;
+					if(character == ',') values++;
+					if(character > ' ' && blank)
+					{
+						blank = false;
+						values++;
+					}
+				}
+				buffer.clear();
+			}
+			return values;
+		}
+	}
+	
+	/**
+	 * Reads grids from a channel one at a time
+	 */
+	public static final class Reader implements Closeable
+	{
+		private final ReadableByteChannel channel;
+		private final int subgridWidth;		//width of the sub-grids
+		private final int subgridHeight;	//height of the sub-grids
+		private final int gridSize;			//number of rows in a grid
+		
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);	//bytes read but not yet parsed, between position and limit
+		private boolean endOfInput;	//set once the channel has no more bytes
+		private long line;			//number of lines parsed so far, for error messages
+		
+		/**
+		 * Constructor for a new reader
+		 * 
+		 * @param channel		the channel to read from, closed when the reader is closed
+		 * @param subgridWidth	the width of the sub-grids
+		 * @param subgridHeight	the height of the sub-grids
+		 */
+		public Reader(ReadableByteChannel channel, int subgridWidth, int subgridHeight)
+		{
+			//check the shape before anything is read
+			new Grid(subgridWidth, subgridHeight);
+			
+			this.channel = channel;
+			this.subgridWidth = subgridWidth;
+			this.subgridHeight = subgridHeight;
+			this.gridSize = subgridWidth * subgridHeight;
+			buffer.flip();	//empty, ready to be read from
+		}
+		
+		/**
+		 * reads the next grid
+		 * 
+		 * @param grid	the grid to fill in, the shape the reader was opened with
+		 * 
+		 * @return		false if there are no more grids
+		 * 
+		 * @throws IOException	if the channel can't be read, or the next grid is malformed or cut short
+		 */
+		public boolean read(Grid grid) throws IOException
+		{
+			int row = 0;	//rows of the grid read so far
+			int searched = buffer.position();	//where the search for the end of the line got to before the buffer was refilled
+			while(true)
+			{
+				int start = buffer.position();
+				int end = searched;
+				while(end < buffer.limit() && buffer.get(end) != '\n') end++;
+				
+				//the rest of the line hasn't been read yet
+				if(end == buffer.limit() && !endOfInput)
+				{
+					fill();
+					searched = buffer.position() + (end - start);
+					continue;
+				}
+				
+				//the end of the input, between grids or part way through one
+				if(start == buffer.limit())
+				{
+					if(row > 0) throw new IOException("line " + line + ": only " + row + " of " + gridSize + " rows");
+					return false;
+				}
+				
+				line++;
+				buffer.position(Math.min(end + 1, buffer.limit()));
+				searched = buffer.position();
+				
+				//ignore surrounding whitespace, including the \r of windows line endings
+				while(start < end && buffer.get(start) <= ' ') start++;
+				while(end > start && buffer.get(end - 1) <= ' ') end--;
+				
+				if(start == end)
+				{
+					//a blank line between grids, or one which cuts a grid short
+					if(row > 0) throw new IOException("line " + line + ": only " + row + " of " + gridSize + " rows");
+					continue;
+				}
+				
+				String problem = PuzzleLoader.parseRow(buffer, start, end, row, grid);
+				if(problem != null) throw new IOException("line " + line + ": " + problem);
+				if(++row == gridSize) return true;
+			}
+		}
+		
+		/**
+		 * reads the rest of the grids as a stream, see PuzzleCsv.stream
+		 * 
+		 * @return	a new grid for each grid left, closing the reader when the stream is closed
+		 */
+		public Stream<Grid> stream()
+		{
+			Spliterator<Grid> grids = new Spliterators.AbstractSpliterator<Grid>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL)
+			{
+				public boolean tryAdvance(Consumer<? super Grid> action)
+				{
+					Grid grid = new Grid(subgridWidth, subgridHeight);
+					try
+					{
+						if(!read(grid)) return false;
+					}
+					catch(IOException e)
+					{
+						throw new UncheckedIOException(e);
+					}
+					action.accept(grid);
+					return true;
+				}
+			};
+			
+			return StreamSupport.stream(grids, false).onClose(() ->
+			{
+				try
+				{
+					close();
+				}
+				catch(IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		
+		/**
+		 * moves the unparsed bytes to the start of the buffer and reads more after them, growing the buffer if a
+		 * single line fills it
+		 * 
+		 * @throws IOException	if the channel can't be read
+		 */
+		private void fill() throws IOException
+		{
+			buffer.compact();
+			if(!buffer.hasRemaining())
+			{
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+			
+			if(channel.read(buffer) == -1) endOfInput = true;
+			buffer.flip();
+		}
+		
+		/**
+		 * closes the channel
+		 * 
+		 * @throws IOException	if it can't be closed
+		 */
+		public void close() throws IOException
+		{
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Writes grids to a channel, buffered until the buffer is full, flush() or close()
+	 */
+	public static final class Writer implements Closeable, Flushable
+	{
+		private final WritableByteChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		private boolean empty = true;	//whether no grid has been written, so the next needs no blank line before it
+		
+		/**
+		 * Constructor for a new writer
+		 * 
+		 * @param channel	the channel to write to, closed when the writer is closed
+		 */
+		public Writer(WritableByteChannel channel)
+		{
+			this.channel = channel;
+		}
+		
+		/**
+		 * writes a grid, after a blank line if it isn't the first
+		 * 
+		 * @param grid	the grid
+		 * 
+		 * @throws IOException	if the channel can't be written
+		 */
+		public void write(Grid grid) throws IOException
+		{
+			//the largest a grid can be, every value two digits and a separator
+			int gridSize = grid.getSize();
+			if(buffer.remaining() < 3 * gridSize * gridSize + 1) flush();
+			
+			if(!empty) buffer.put((byte)'\n');
+			empty = false;
+			
+			for(int row = 0; row < gridSize; row++)
+			{
+				for(int column = 0; column < gridSize; column++)
+				{
+					int value = grid.get(row, column);
+					if(value >= 10) buffer.put((byte)('0' + value / 10));
+					buffer.put((byte)('0' + value % 10));
+					buffer.put((byte)(column < gridSize - 1 ? ',' : '\n'));
+				}
+			}
+		}
+		
+		/**
+		 * writes any buffered grids to the channel
+		 * 
+		 * @throws IOException	if the channel can't be written
+		 */
+		public void flush() throws IOException
+		{
+			buffer.flip();
+			while(buffer.hasRemaining()) channel.write(buffer);
+			buffer.clear();
+		}
+		
+		/**
+		 * writes any buffered grids and closes the channel
+		 * 
+		 * @throws IOException	if the channel can't be written or closed
+		 */
+		public void close() throws IOException
+		{
+			try
+			{
+				flush();
+			}
+			finally
+			{
+				channel.close();
+			}
+		}
+	}
+}
\ No newline at end of file
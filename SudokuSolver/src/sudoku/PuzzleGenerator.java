@@ -0,0 +1,458 @@
+package sudoku;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Makes new puzzles with exactly one solution, using the backtracking solver to check each one.
+ * 
+ * A puzzle starts as a random solved grid: its diagonal sub-grids, which share no row or column, are filled
+ * with random orders of the values and the solver fills in the rest. Clues are then taken out in a random
+ * order, along with the squares the symmetry pairs them with, and put back whenever taking them out would
+ * give the puzzle a second solution, until the target number of clues is left or no more can be taken out.
+ * Taking out a single clue only needs a search for a solution with some other value in its square, which is
+ * much quicker than counting solutions. A puzzle still above the target is thrown away and another one
+ * started, up to MAX_ATTEMPTS times, after which the puzzle with the fewest clues is kept.
+ * 
+ * Each puzzle is made from its own seed, so the same seed always gives the same puzzle whichever thread
+ * makes it, and a run of puzzles can be made in parallel with the same results as on one thread. A
+ * generator can be used from any number of threads at once.
+ * 
+ * Can also be run on its own to write puzzles in the format SudokuBatch reads:
+ * 	java sudoku.PuzzleGenerator [--subgrid WxH] [--clues N] [--symmetry NAME] [--threads N] [--seed N] count [output file|-]
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public final class PuzzleGenerator
+{
+	private final static int MAX_ATTEMPTS = 100;	//solved grids to try for a puzzle which reaches the target
+	private final static int CHUNK_SIZE = 1024;		//puzzles made at once when writing
+	private final static int BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * The symmetries the clues of a puzzle can have, each a set of moves which take every clue to another clue
+	 */
+	public enum Symmetry
+	{
+		NONE,			//clues anywhere
+		ROTATIONAL,		//unchanged by turning the grid half way round
+		QUARTER,		//unchanged by turning the grid a quarter of the way round
+		MIRROR,			//unchanged by flipping the grid left to right
+		DIAGONAL		//unchanged by flipping the grid over its leading diagonal
+	}
+	
+	/*
+	 * Grid Properties
+	 */
+	private final int subgridWidth;		//width of the sub-grids
+	private final int subgridHeight;	//height of the sub-grids
+	private final int gridSize;			//number of rows, columns and values in the grid
+	private final int squareCount;		//total number of grid-squares
+	
+	private final int clues;			//the number of clues to stop at
+	private final Symmetry symmetry;
+	private final int[][] orbits;		//the squares each clue is taken out with, every square in exactly one
+	
+	private final ThreadLocal<BacktrackingSolver> solvers;	//each thread's solver
+	
+	/**
+	 * The main method. Reads the arguments and writes the puzzles
+	 * 
+	 * @param args	the command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		int subgridWidth = 3;
+		int subgridHeight = 3;
+		int clues = -1;	//-1 until given, then defaults to as few as can be reached
+		Symmetry symmetry = Symmetry.NONE;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = System.nanoTime();
+		long count = -1;
+		String outputPath = "-";
+		int positional = 0;	//number of count and file arguments read so far
+		
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("--subgrid") && i + 1 < args.length)
+			{
+				String[] shape = args[++i].split("x");
+				if(shape.length != 2) usage("--subgrid must be a width and height such as 4x4");
+				subgridWidth = positiveInteger(shape[0], "--subgrid");
+				subgridHeight = positiveInteger(shape[1], "--subgrid");
+				if(subgridWidth * subgridHeight > SudokuBatch.SYMBOLS.length()) usage("--subgrid makes a grid larger than " + SudokuBatch.SYMBOLS.length() + "x" + SudokuBatch.SYMBOLS.length());
+			}
+			else if(args[i].equals("--clues") && i + 1 < args.length)
+			{
+				clues = positiveInteger(args[++i], "--clues");
+			}
+			else if(args[i].equals("--symmetry") && i + 1 < args.length)
+			{
+				try
+				{
+					symmetry = Symmetry.valueOf(args[++i].toUpperCase());
+				}
+				catch(IllegalArgumentException e)
+				{
+					usage("--symmetry must be one of " + Arrays.toString(Symmetry.values()).toLowerCase());
+				}
+			}
+			else if(args[i].equals("--threads") && i + 1 < args.length)
+			{
+				threads = positiveInteger(args[++i], "--threads");
+			}
+			else if(args[i].equals("--seed") && i + 1 < args.length)
+			{
+				try
+				{
+					seed = Long.parseLong(args[++i]);
+				}
+				catch(NumberFormatException e)
+				{
+					usage("--seed must be an integer");
+				}
+			}
+			else if(args[i].startsWith("--") || positional == 2)
+			{
+				usage("Unexpected argument " + args[i]);
+			}
+			else if(positional++ == 0)
+			{
+				count = positiveInteger(args[i], "count");
+			}
+			else
+			{
+				outputPath = args[i];
+			}
+		}
+		if(count < 0) usage("How many puzzles to make must be given");
+		
+		PuzzleGenerator generator = null;
+		try
+		{
+			generator = new PuzzleGenerator(subgridWidth, subgridHeight, clues < 0 ? 0 : clues, symmetry);
+		}
+		catch(IllegalArgumentException e)
+		{
+			usage(e.getMessage());
+		}
+		
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		try(OutputStream output = new BufferedOutputStream(outputPath.equals("-") ? System.out : new FileOutputStream(outputPath), BUFFER_SIZE))
+		{
+			byte[] line = new byte[generator.squareCount + 1];
+			line[generator.squareCount] = '\n';
+			
+			//made a chunk at a time, so the output is written in seed order while the threads are kept busy
+			for(long made = 0; made < count; made += CHUNK_SIZE)
+			{
+				for(Grid puzzle : generator.generate((int)Math.min(CHUNK_SIZE, count - made), seed + made, pool))
+				{
+					for(int square = 0; square < generator.squareCount; square++)
+					{
+						int value = puzzle.get(square);
+						line[square] = (byte)(value == 0 ? '0' : SudokuBatch.SYMBOLS.charAt(value - 1));
+					}
+					output.write(line);
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			System.err.println("PuzzleGenerator: " + e.getMessage());
+			System.exit(1);
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+		
+		//report throughput on standard error so it doesn't mix with the puzzles
+		long elapsed = Math.max(1, System.nanoTime() - start);
+		System.err.printf("%d puzzles in %.1f ms (%.0f puzzles/s) on %d threads, seed %d%n", count, elapsed / 1e6, count * 1e9 / elapsed, threads, seed);
+	}
+	
+	/**
+	 * reads the value of a numeric option, exiting if it isn't a positive integer
+	 * 
+	 * @param value		the text of the value
+	 * @param option	the name of the option, for the error message
+	 * 
+	 * @return			the value
+	 */
+	private static int positiveInteger(String value, String option)
+	{
+		try
+		{
+			int number = Integer.parseInt(value);
+			if(number > 0) return number;
+		}
+		catch(NumberFormatException e)
+		{
+			//fall through to the usage message
+		}
+		usage(option + " must be a positive integer");
+		return 0;
+	}
+	
+	/**
+	 * prints how to use the program and exits
+	 * 
+	 * @param message	the reason the arguments were rejected
+	 */
+	private static void usage(String message)
+	{
+		System.err.println(message);
+		System.err.println("Usage: java sudoku.PuzzleGenerator [--subgrid WxH] [--clues N] [--symmetry NAME] [--threads N] [--seed N] count [output file|-]");
+		System.exit(2);
+	}
+	
+	/**
+	 * Constructor for a new generator
+	 * 
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * @param clues			the number of clues to aim for, 0 for as few as can be reached
+	 * @param symmetry		the symmetry of the clues
+	 * 
+	 * @throws IllegalArgumentException	if the shape isn't supported, the clues don't fit in the grid, or the
+	 * 									symmetry needs the grid to be square
+	 */
+	public PuzzleGenerator(int subgridWidth, int subgridHeight, int clues, Symmetry symmetry)
+	{
+		//check the shape here rather than on a generating thread
+		new Grid(subgridWidth, subgridHeight);
+		
+		this.subgridWidth = subgridWidth;
+		this.subgridHeight = subgridHeight;
+		this.gridSize = subgridWidth * subgridHeight;
+		this.squareCount = gridSize * gridSize;
+		if(clues < 0 || clues > squareCount) throw new IllegalArgumentException("A " + gridSize + "x" + gridSize + " puzzle can't have " + clues + " clues");
+		
+		this.clues = clues;
+		this.symmetry = symmetry;
+		this.orbits = orbits();
+		this.solvers = ThreadLocal.withInitial(() -> new BacktrackingSolver(subgridWidth, subgridHeight));
+	}
+	
+	/**
+	 * makes one puzzle on the calling thread
+	 * 
+	 * @param seed	the seed of the puzzle, the same seed always making the same puzzle
+	 * 
+	 * @return		a puzzle with exactly one solution
+	 */
+	public Grid generate(long seed)
+	{
+		BacktrackingSolver solver = solvers.get();
+		SplittableRandom random = new SplittableRandom(seed);
+		
+		Grid best = null;
+		for(int attempt = 0; attempt < MAX_ATTEMPTS; attempt++)
+		{
+			Grid puzzle = removeClues(solvedGrid(solver, random), solver, random);
+			if(best == null || puzzle.countFilled() < best.countFilled()) best = puzzle;
+			//with no target, the first puzzle is as good as any
+			if(clues == 0 || best.countFilled() <= clues) break;
+		}
+		return best;
+	}
+	
+	/**
+	 * makes a run of puzzles in parallel, puzzle i being the one generate(seed + i) makes
+	 * 
+	 * @param count	the number of puzzles to make
+	 * @param seed	the seed of the first puzzle
+	 * @param pool	the threads to make them on
+	 * 
+	 * @return		the puzzles, in seed order
+	 */
+	public List<Grid> generate(int count, long seed, ForkJoinPool pool)
+	{
+		//one task per thread, each taking every so many seeds, so no thread is left with only hard ones
+		int tasks = Math.max(1, Math.min(count, pool.getParallelism()));
+		Grid[] puzzles = new Grid[count];
+		List<Future<?>> futures = new ArrayList<Future<?>>(tasks);
+		for(int task = 0; task < tasks; task++)
+		{
+			int first = task;
+			futures.add(pool.submit(() ->
+			{
+				for(int i = first; i < count; i += tasks) puzzles[i] = generate(seed + i);
+			}));
+		}
+		
+		try
+		{
+			for(Future<?> future : futures) future.get();
+		}
+		catch(InterruptedException e)
+		{
+			for(Future<?> future : futures) future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while generating puzzles", e);
+		}
+		catch(ExecutionException e)
+		{
+			if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+		return Arrays.asList(puzzles);
+	}
+	
+	/**
+	 * @return	the number of clues aimed for, 0 for as few as can be reached
+	 */
+	public int getClues()
+	{
+		return clues;
+	}
+	
+	/**
+	 * @return	the symmetry of the clues
+	 */
+	public Symmetry getSymmetry()
+	{
+		return symmetry;
+	}
+	
+	/**
+	 * makes a random solved grid, by filling the diagonal sub-grids at random and solving the rest
+	 * 
+	 * @param solver	the calling thread's solver
+	 * @param random	the puzzle's random numbers
+	 * 
+	 * @return			the solved grid
+	 */
+	private Grid solvedGrid(BacktrackingSolver solver, SplittableRandom random)
+	{
+		int[] values = new int[gridSize];
+		for(int i = 0; i < gridSize; i++) values[i] = i + 1;
+		
+		Grid seeded = new Grid(subgridWidth, subgridHeight);
+		Grid solution = new Grid(subgridWidth, subgridHeight);
+		while(true)
+		{
+			//sub-grid i of band i shares no row or column with the others, so any values can go in them
+			for(int subgrid = 0; subgrid < Math.min(subgridWidth, subgridHeight); subgrid++)
+			{
+				shuffle(values, random);
+				for(int i = 0; i < gridSize; i++)
+				{
+					int row = subgrid * subgridHeight + i / subgridWidth;
+					int column = subgrid * subgridWidth + i % subgridWidth;
+					seeded.set(row * gridSize + column, values[i]);
+				}
+			}
+			if(solver.count(seeded, 1, solution) == 1) return solution;
+		}
+	}
+	
+	/**
+	 * takes clues out of a solved grid in a random order while it keeps a single solution
+	 * 
+	 * @param solution	the solved grid, which is emptied into the puzzle
+	 * @param solver	the calling thread's solver
+	 * @param random	the puzzle's random numbers
+	 * 
+	 * @return			the puzzle
+	 */
+	private Grid removeClues(Grid solution, BacktrackingSolver solver, SplittableRandom random)
+	{
+		Grid puzzle = solution.copy();
+		int filled = squareCount;
+		
+		int[] order = new int[orbits.length];
+		for(int i = 0; i < order.length; i++) order[i] = i;
+		shuffle(order, random);
+		
+		for(int i = 0; i < order.length && filled > clues; i++)
+		{
+			int[] orbit = orbits[order[i]];
+			if(filled - orbit.length < clues) continue;
+			
+			for(int square : orbit) puzzle.set(square, 0);
+			
+			//with one square out, only a solution with another value there can be a second solution
+			boolean unique;
+			if(orbit.length == 1) unique = !solver.hasSolutionWithout(puzzle, orbit[0], solution.get(orbit[0]));
+			else unique = solver.count(puzzle, 2) == 1;
+			
+			if(unique) filled -= orbit.length;
+			else for(int square : orbit) puzzle.set(square, solution.get(square));
+		}
+		return puzzle;
+	}
+	
+	/**
+	 * groups the squares into the sets the symmetry takes from one to another, which are taken out together
+	 * 
+	 * @return	the sets of squares
+	 */
+	private int[][] orbits()
+	{
+		List<int[]> found = new ArrayList<int[]>();
+		boolean[] seen = new boolean[squareCount];
+		int last = gridSize - 1;
+		
+		for(int square = 0; square < squareCount; square++)
+		{
+			if(seen[square]) continue;
+			
+			int row = square / gridSize;
+			int column = square % gridSize;
+			int[] images;
+			switch(symmetry)
+			{
+				case ROTATIONAL:
+					images = new int[] {square, (last - row) * gridSize + last - column};
+					break;
+				case QUARTER:
+					images = new int[] {square, column * gridSize + last - row, (last - row) * gridSize + last - column, (last - column) * gridSize + row};
+					break;
+				case MIRROR:
+					images = new int[] {square, row * gridSize + last - column};
+					break;
+				case DIAGONAL:
+					images = new int[] {square, column * gridSize + row};
+					break;
+				default:
+					images = new int[] {square};
+			}
+			
+			//squares on an axis or at the centre are their own images
+			int[] orbit = Arrays.stream(images).distinct().toArray();
+			for(int image : orbit) seen[image] = true;
+			found.add(orbit);
+		}
+		return found.toArray(new int[found.size()][]);
+	}
+	
+	/**
+	 * puts an array into a random order
+	 * 
+	 * @param array		the array
+	 * @param random	the random numbers to use
+	 */
+	private static void shuffle(int[] array, SplittableRandom random)
+	{
+		for(int i = array.length - 1; i > 0; i--)
+		{
+			int j = random.nextInt(i + 1);
+			int swap = array[i];
+			array[i] = array[j];
+			array[j] = swap;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package sudoku;
+
+/**
+ * Receives the puzzles read by a PuzzleLoader, and the records which couldn't be read.
+ * 
+ * When a file is loaded in parallel each segment of it calls the handler from its own thread, so a handler
+ * shared by the segments must be thread safe. Within a segment records are passed on in file order
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public interface PuzzleHandler
+{
+	/**
+	 * called with each puzzle as it is read
+	 * 
+	 * @param offset	the position in the file of the record's first byte
+	 * @param puzzle	the puzzle, 0 for an empty grid square. it is reused for the next record of the segment,
+	 * 					so must be copied to be kept
+	 */
+	void puzzle(long offset, Grid puzzle);
+	
+	/**
+	 * called with each record which isn't a puzzle of the expected size
+	 * 
+	 * @param offset	the position in the file of the record's first byte
+	 * @param problem	what is wrong with the record
+	 */
+	void malformed(long offset, String problem);
+}
\ No newline at end of file
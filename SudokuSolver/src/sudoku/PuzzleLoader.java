@@ -0,0 +1,527 @@
+package sudoku;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Reads large files of puzzles by memory mapping them, parsing each record straight from the mapped bytes into
+ * a reused grid, so no strings or line buffers are made however large the file is.
+ * 
+ * Two formats are read:
+ * 	- lines, one puzzle per line with one character per square, the format SudokuBatch reads. 1 to 9 are clues
+ * 	  then A for 10 up to Z for 35 and a for 36 onwards, 0 or . are empty squares. blank lines and lines
+ * 	  starting with # are skipped
+ * 	- csv, the format the GUI saves. each puzzle is one line per row of comma separated numbers, 0 for an
+ * 	  empty square. puzzles follow one another, and may be separated by blank lines
+ * 
+ * The file is cut into segments of about SEGMENT_SIZE bytes at record boundaries, and each segment is mapped
+ * and parsed on its own, so the segments can be parsed in parallel. A csv file can only be cut at a blank line,
+ * so one with no blank lines between its puzzles is parsed as a single segment.
+ * 
+ * A record which isn't a puzzle is reported to the handler by its offset in the file, and parsing carries on
+ * with the next record. Values are only checked against the size of the grid, not the rules of sudoku
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public final class PuzzleLoader
+{
+	/*
+	 * the size segments are aimed at, and the largest a single segment can be mapped as
+	 */
+	private final static long SEGMENT_SIZE = 1 << 26;
+	private final static long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+	
+	private final static int SCAN_SIZE = 1 << 12;	//bytes read at a time while looking for a segment boundary
+	
+	/*
+	 * the value of each byte as a symbol of a puzzle line, -1 if it isn't one. looked up rather than compared
+	 * against each range of symbols, since which range a symbol is in can't be predicted
+	 */
+	private final static byte[] SYMBOL_VALUES = symbolValues();
+	
+	/*
+	 * Grid Properties
+	 */
+	private final int subgridWidth;		//width of the sub-grids
+	private final int subgridHeight;	//height of the sub-grids
+	private final int gridSize;			//number of rows, columns and values in the grid
+	private final int squareCount;		//total number of grid-squares
+	
+	private final boolean csv;	//true for csv grids, false for one puzzle per line
+	
+	/**
+	 * Constructor for a new loader
+	 * 
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * @param csv			true for csv grids, false for one puzzle per line
+	 */
+	private PuzzleLoader(int subgridWidth, int subgridHeight, boolean csv)
+	{
+		//check the shape here rather than on a parsing thread
+		new Grid(subgridWidth, subgridHeight);
+		
+		this.subgridWidth = subgridWidth;
+		this.subgridHeight = subgridHeight;
+		this.gridSize = subgridWidth * subgridHeight;
+		this.squareCount = gridSize * gridSize;
+		this.csv = csv;
+	}
+	
+	/**
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * 
+	 * @return				a loader for files with one puzzle per line
+	 */
+	public static PuzzleLoader lines(int subgridWidth, int subgridHeight)
+	{
+		return new PuzzleLoader(subgridWidth, subgridHeight, false);
+	}
+	
+	/**
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * 
+	 * @return				a loader for files of csv grids
+	 */
+	public static PuzzleLoader csv(int subgridWidth, int subgridHeight)
+	{
+		return new PuzzleLoader(subgridWidth, subgridHeight, true);
+	}
+	
+	/**
+	 * reads every puzzle of a file on the calling thread, in file order
+	 * 
+	 * @param file		the file to read
+	 * @param handler	receives the puzzles and malformed records
+	 * 
+	 * @throws IOException	if the file can't be read
+	 */
+	public void load(Path file, PuzzleHandler handler) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			Grid grid = new Grid(subgridWidth, subgridHeight);
+			for(long[] segment : segments(channel)) parse(channel, segment, grid, handler);
+		}
+	}
+	
+	/**
+	 * reads every puzzle of a file, parsing its segments in parallel. returns once every segment is done
+	 * 
+	 * @param file		the file to read
+	 * @param handler	receives the puzzles and malformed records, from several threads at once
+	 * @param pool		the threads to parse on
+	 * 
+	 * @throws IOException	if the file can't be read
+	 */
+	public void load(Path file, PuzzleHandler handler, ForkJoinPool pool) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			List<long[]> segments = segments(channel);
+			List<PuzzleHandler> handlers = new ArrayList<PuzzleHandler>();
+			for(int i = 0; i < segments.size(); i++) handlers.add(handler);
+			
+			parse(channel, segments, handlers, pool);
+		}
+	}
+	
+	/**
+	 * reads every puzzle of a file into a list, parsing its segments in parallel
+	 * 
+	 * @param file	the file to read
+	 * @param pool	the threads to parse on
+	 * 
+	 * @return		a new grid for each puzzle, in file order
+	 * 
+	 * @throws IOException	if the file can't be read, or any record isn't a puzzle. the first such record is reported
+	 */
+	public List<Grid> readAll(Path file, ForkJoinPool pool) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			List<long[]> segments = segments(channel);
+			List<ListHandler> handlers = new ArrayList<ListHandler>();
+			for(int i = 0; i < segments.size(); i++) handlers.add(new ListHandler());
+			
+			parse(channel, segments, handlers, pool);
+			
+			//the segments are in file order, so the first malformed record found is the first in the file
+			List<Grid> puzzles = new ArrayList<Grid>();
+			for(ListHandler handler : handlers)
+			{
+				if(handler.problem != null)
+				{
+					throw new IOException(file + ": malformed puzzle at byte " + handler.problemOffset + ", " + handler.problem);
+				}
+				puzzles.addAll(handler.puzzles);
+			}
+			return puzzles;
+		}
+	}
+	
+	/**
+	 * parses segments on a pool, each with its own handler, and waits for them all
+	 * 
+	 * @param channel	the file being read
+	 * @param segments	the start and end of each segment
+	 * @param handlers	the handler of each segment
+	 * @param pool		the threads to parse on
+	 * 
+	 * @throws IOException	if any segment can't be read
+	 */
+	private void parse(FileChannel channel, List<long[]> segments, List<? extends PuzzleHandler> handlers, ForkJoinPool pool) throws IOException
+	{
+		List<Future<Void>> tasks = new ArrayList<Future<Void>>();
+		for(int i = 0; i < segments.size(); i++)
+		{
+			long[] segment = segments.get(i);
+			PuzzleHandler handler = handlers.get(i);
+			tasks.add(pool.submit(() ->
+			{
+				parse(channel, segment, new Grid(subgridWidth, subgridHeight), handler);
+				return null;
+			}));
+		}
+		
+		//wait for every segment, even after one fails, so the handlers are never called once this returns
+		Throwable failure = null;
+		for(Future<Void> task : tasks)
+		{
+			try
+			{
+				task.get();
+			}
+			catch(InterruptedException e)
+			{
+				for(Future<Void> other : tasks) other.cancel(false);
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while loading");
+			}
+			catch(ExecutionException e)
+			{
+				if(failure == null) failure = e.getCause();
+			}
+		}
+		
+		if(failure instanceof IOException) throw (IOException)failure;
+		if(failure instanceof RuntimeException) throw (RuntimeException)failure;
+		if(failure != null) throw new IllegalStateException("Loading failed", failure);
+	}
+	
+	/**
+	 * cuts a file into segments at record boundaries. each boundary is searched for from where the last
+	 * segment ended, so no part of the file is scanned twice
+	 * 
+	 * @param channel	the file being read
+	 * 
+	 * @return			the start and end of each segment, in file order
+	 * 
+	 * @throws IOException	if the file can't be read, or a segment would be too large to map
+	 */
+	private List<long[]> segments(FileChannel channel) throws IOException
+	{
+		List<long[]> segments = new ArrayList<long[]>();
+		long size = channel.size();
+		ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+		
+		long start = 0;
+		while(start < size)
+		{
+			long end = start + SEGMENT_SIZE >= size ? size : boundary(channel, start + SEGMENT_SIZE, scan);
+			if(end - start > MAX_SEGMENT_SIZE) throw new IOException("No record boundary within " + MAX_SEGMENT_SIZE + " bytes of byte " + start);
+			
+			segments.add(new long[] {start, end});
+			start = end;
+		}
+		return segments;
+	}
+	
+	/**
+	 * finds the first record boundary at or after a position. for lines that is the start of any line, for csv
+	 * it is the start of a blank line, since the lines of a grid can't be told apart from those of the next
+	 * 
+	 * @param channel	the file being read
+	 * @param from		where to start looking
+	 * @param scan		a buffer to read into
+	 * 
+	 * @return			the position of the boundary, or the end of the file if there isn't one
+	 * 
+	 * @throws IOException	if the file can't be read
+	 */
+	private long boundary(FileChannel channel, long from, ByteBuffer scan) throws IOException
+	{
+		long position = from - 1;		//a new line just before from makes from a boundary
+		long lineStart = -1;			//start of the line being scanned, -1 until the first new line is found
+		boolean blank = true;			//whether the line being scanned is blank so far
+		
+		while(true)
+		{
+			scan.clear();
+			int read = channel.read(scan, position);
+			if(read <= 0) return channel.size();
+			
+			for(int i = 0; i < read; i++, position++)
+			{
+				byte character = scan.get(i);
+				if(character == '\n')
+				{
+					if(!csv) return position + 1;
+					
+					//a blank csv line, which no grid spans
+					if(lineStart >= 0 && blank) return lineStart;
+					
+					lineStart = position + 1;
+					blank = true;
+				}
+				else if(character > ' ')
+				{
+					blank = false;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * maps one segment and parses the records in it
+	 * 
+	 * @param channel	the file being read
+	 * @param segment	the start and end of the segment
+	 * @param grid		the grid each puzzle is parsed into
+	 * @param handler	receives the puzzles and malformed records
+	 * 
+	 * @throws IOException	if the segment can't be mapped
+	 */
+	private void parse(FileChannel channel, long[] segment, Grid grid, PuzzleHandler handler) throws IOException
+	{
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, segment[0], segment[1] - segment[0]);
+		if(csv) parseGrids(buffer, segment[0], grid, handler);
+		else parseLines(buffer, segment[0], grid, handler);
+	}
+	
+	/**
+	 * parses a segment with one puzzle per line
+	 * 
+	 * @param buffer	the mapped segment
+	 * @param base		the position of the segment in the file
+	 * @param grid		the grid each puzzle is parsed into
+	 * @param handler	receives the puzzles and malformed records
+	 */
+	private void parseLines(ByteBuffer buffer, long base, Grid grid, PuzzleHandler handler)
+	{
+		int length = buffer.limit();
+		int start = 0;
+		while(start < length)
+		{
+			int end = start;
+			while(end < length && buffer.get(end) != '\n') end++;
+			int next = end + 1;
+			
+			//ignore surrounding whitespace, including the \r of windows line endings
+			while(start < end && buffer.get(start) <= ' ') start++;
+			while(end > start && buffer.get(end - 1) <= ' ') end--;
+			
+			//skip blank lines and comments
+			if(start < end && buffer.get(start) != '#')
+			{
+				String problem = parseLine(buffer, start, end, grid);
+				if(problem == null) handler.puzzle(base + start, grid);
+				else handler.malformed(base + start, problem);
+			}
+			start = next;
+		}
+	}
+	
+	/**
+	 * reads a puzzle line into a grid
+	 * 
+	 * @param buffer	the mapped segment
+	 * @param start		the index of the first character of the puzzle
+	 * @param end		the index after the last character of the puzzle
+	 * @param grid		the grid to fill in
+	 * 
+	 * @return			null if the line is a puzzle, otherwise what is wrong with it
+	 */
+	private String parseLine(ByteBuffer buffer, int start, int end, Grid grid)
+	{
+		if(end - start != squareCount) return "expected " + squareCount + " squares but found " + (end - start);
+		
+		for(int square = 0; square < squareCount; square++)
+		{
+			int value = valueOf(buffer.get(start + square));
+			if(value < 0) return "unexpected character at square " + (square + 1);
+			if(value > gridSize) return "value " + value + " at square " + (square + 1) + " is too large";
+			
+			grid.set(square, value);
+		}
+		return null;
+	}
+	
+	/**
+	 * parses a segment of csv grids. a grid is reported when its last row is read, and a grid cut short by a
+	 * blank line or the end of the segment is reported as malformed
+	 * 
+	 * @param buffer	the mapped segment
+	 * @param base		the position of the segment in the file
+	 * @param grid		the grid each puzzle is parsed into
+	 * @param handler	receives the puzzles and malformed records
+	 */
+	private void parseGrids(ByteBuffer buffer, long base, Grid grid, PuzzleHandler handler)
+	{
+		int length = buffer.limit();
+		int start = 0;
+		int row = 0;			//rows of the current grid read so far
+		int gridStart = 0;		//where the current grid started
+		String problem = null;	//the first thing wrong with the current grid, null if nothing is
+		
+		while(start < length)
+		{
+			int end = start;
+			while(end < length && buffer.get(end) != '\n') end++;
+			int next = end + 1;
+			
+			//ignore surrounding whitespace, including the \r of windows line endings
+			while(start < end && buffer.get(start) <= ' ') start++;
+			while(end > start && buffer.get(end - 1) <= ' ') end--;
+			
+			if(start == end)
+			{
+				//a blank line between grids, or one which cuts a grid short
+				if(row > 0) handler.malformed(base + gridStart, "only " + row + " of " + gridSize + " rows");
+				row = 0;
+			}
+			else
+			{
+				if(row == 0)
+				{
+					gridStart = start;
+					problem = null;
+				}
+				if(problem == null) problem = parseRow(buffer, start, end, row, grid);
+				
+				if(++row == gridSize)
+				{
+					if(problem == null) handler.puzzle(base + gridStart, grid);
+					else handler.malformed(base + gridStart, problem);
+					row = 0;
+				}
+			}
+			start = next;
+		}
+		
+		if(row > 0) handler.malformed(base + gridStart, "only " + row + " of " + gridSize + " rows");
+	}
+	
+	/**
+	 * reads one row of comma separated numbers into a grid. also used by PuzzleCsv
+	 * 
+	 * @param buffer	the mapped segment
+	 * @param start		the index of the first character of the row
+	 * @param end		the index after the last character of the row
+	 * @param row		the number of the row in the grid
+	 * @param grid		the grid to fill in
+	 * 
+	 * @return			null if the row is valid, otherwise what is wrong with it
+	 */
+	static String parseRow(ByteBuffer buffer, int start, int end, int row, Grid grid)
+	{
+		int gridSize = grid.getSize();
+		int column = 0;
+		int position = start;
+		while(true)
+		{
+			if(column == gridSize) return "row " + (row + 1) + " has more than " + gridSize + " values";
+			
+			//read one number, allowing spaces around it
+			while(position < end && buffer.get(position) <= ' ') position++;
+			int digitsStart = position;
+			int value = 0;
+			while(position < end && buffer.get(position) >= '0' && buffer.get(position) <= '9')
+			{
+				value = value * 10 + buffer.get(position++) - '0';
+				if(value > gridSize) return "row " + (row + 1) + " column " + (column + 1) + " is larger than " + gridSize;
+			}
+			int digitsEnd = position;
+			while(position < end && buffer.get(position) <= ' ') position++;
+			
+			if(digitsStart == digitsEnd || (position < end && buffer.get(position) != ','))
+			{
+				return "row " + (row + 1) + " column " + (column + 1) + " is not a number";
+			}
+			grid.set(row, column++, value);
+			
+			if(position == end) break;
+			position++;	//past the comma
+		}
+		
+		if(column < gridSize) return "row " + (row + 1) + " has only " + column + " values";
+		return null;
+	}
+	
+	/**
+	 * the value of a symbol of a puzzle line
+	 * 
+	 * @param character	the symbol
+	 * 
+	 * @return			the value, 0 for an empty square, or -1 if the character isn't a symbol
+	 */
+	static int valueOf(byte character)
+	{
+		return SYMBOL_VALUES[character & 0xFF];
+	}
+	
+	/**
+	 * builds the table of symbol values. 1 to 9 are themselves, then A for 10 up to Z for 35 and a for 36 onwards
+	 * 
+	 * @return	the value of every byte, 0 for an empty square and -1 for anything which isn't a symbol
+	 */
+	private static byte[] symbolValues()
+	{
+		byte[] values = new byte[256];
+		Arrays.fill(values, (byte)-1);
+		
+		values['0'] = 0;
+		values['.'] = 0;
+		for(int character = '1'; character <= '9'; character++) values[character] = (byte)(character - '0');
+		for(int character = 'A'; character <= 'Z'; character++) values[character] = (byte)(character - 'A' + 10);
+		for(int character = 'a'; character <= 'z'; character++) values[character] = (byte)(character - 'a' + 36);
+		return values;
+	}
+	
+	/**
+	 * keeps a copy of every puzzle of one segment, and the first malformed record
+	 */
+	private static class ListHandler implements PuzzleHandler
+	{
+		private final List<Grid> puzzles = new ArrayList<Grid>();
+		private String problem;		//what is wrong with the first malformed record, null if there isn't one
+		private long problemOffset;	//where the first malformed record is
+		
+		public void puzzle(long offset, Grid puzzle)
+		{
+			puzzles.add(puzzle.copy());
+		}
+		
+		public void malformed(long offset, String problem)
+		{
+			if(this.problem != null) return;
+			
+			this.problem = problem;
+			this.problemOffset = offset;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,366 @@
+package sudoku;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A SudokuEngine which encodes the grid as a boolean formula in conjunctive normal form and solves it with
+ * SatSolver.
+ * 
+ * There is a variable for each value still possible in each empty grid square, once the given values have
+ * been taken out of the squares they see, and clauses saying that
+ * 	- each empty grid square has exactly one value
+ * 	- each value is in each row, column and sub-grid exactly once
+ * 	- each value is in each extra region at most once, and exactly once if the region is as large as the grid
+ * 
+ * Small groups of which at most one can be true get a clause for every pair, larger ones the sequential
+ * encoding with a chain of extra variables, which needs far fewer clauses and propagates just as well. All of
+ * these clauses are pairs, which the solver keeps as implications.
+ * 
+ * Each further solution is found by adding a clause blocking the last one and searching again, which keeps
+ * everything learnt so far. The clause learning pays off on large and hard grids, and on variants, where a
+ * backtracking search can spend a very long time below one bad early choice. On easy 9x9 grids, building the
+ * formula costs more than the backtracking engine takes to solve them.
+ * 
+ * A new solver is built for every grid, nothing is shared between calls
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class SatEngine implements SudokuEngine
+{
+	private final static int PAIRWISE_LIMIT = 16;	//the largest group given a clause for every pair, larger ones use the sequential encoding
+	
+	private final int[][] regions;	//extra groups of squares, as row * size + column, which must all have different values
+	
+	/**
+	 * Constructor for a new SAT engine
+	 * 
+	 * @param regions	extra groups of squares whose values must all be different, on top of the rows, columns and sub-grids
+	 */
+	SatEngine(int[][] regions)
+	{
+		this.regions = new int[regions.length][];
+		for(int i = 0; i < regions.length; i++) this.regions[i] = regions[i].clone();
+	}
+	
+	public void solve(Grid puzzle, SolutionCollector collector)
+	{
+		Search search = new Search(puzzle);
+		while(!collector.isDone() && search.next(collector::isDone))
+		{
+			if(!collector.add(search.solution.copy())) return;
+		}
+	}
+	
+	public long count(Grid puzzle, long maxSolutions, Grid firstSolution)
+	{
+		if(maxSolutions <= 0) return 0;
+		
+		Search search = new Search(puzzle);
+		long found = 0;
+		while(found < maxSolutions && search.next(() -> false))
+		{
+			if(found++ == 0 && firstSolution != null) firstSolution.copyFrom(search.solution);
+		}
+		return found;
+	}
+	
+	/**
+	 * also checks that no value is repeated in an extra region
+	 */
+	@Override
+	public boolean isValid(Grid puzzle)
+	{
+		if(!puzzle.isValid()) return false;
+		
+		int squares = puzzle.getSize() * puzzle.getSize();
+		for(int[] region : regions)
+		{
+			long placed = 0;	//the values seen in the region so far, value v as bit v - 1
+			for(int square : region)
+			{
+				if(square < 0 || square >= squares) return false;
+				int value = puzzle.get(square);
+				if(value == 0) continue;
+				if((placed & 1L << (value - 1)) != 0) return false;
+				placed |= 1L << (value - 1);
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * the search for the solutions of one grid
+	 */
+	private class Search
+	{
+		private final Grid puzzle;		//the grid being solved
+		private final int gridSize;		//number of rows, columns and values in the grid
+		private final Grid solution;	//the last solution found
+		private final long[] candidates;	//the values still possible in each grid square, value v as bit v - 1
+		private final int[] variables;	//the variable of each value of each square, at square * gridSize + value - 1, -1 if there is none
+		private final int[][] units;	//the rows, columns, sub-grids and extra regions, as lists of squares
+		private boolean finished;		//set once there are no more solutions
+		
+		/*
+		 * building the formula, done twice, first only to count the variables the sequential encoding adds
+		 */
+		private SatSolver solver;	//null while counting
+		private int variableCount;	//the variables allocated so far
+		
+		/**
+		 * Constructor for a new search, building the formula of the grid
+		 * 
+		 * @param puzzle	the grid to be solved
+		 * 
+		 * @throws IllegalArgumentException	if an extra region has a square outside the grid
+		 */
+		Search(Grid puzzle)
+		{
+			this.puzzle = puzzle;
+			gridSize = puzzle.getSize();
+			solution = puzzle.copy();
+			candidates = new long[gridSize * gridSize];
+			variables = new int[gridSize * gridSize * gridSize];
+			units = units(puzzle.getSubgridWidth(), puzzle.getSubgridHeight());
+			
+			if(!findCandidates())
+			{
+				finished = true;
+				return;
+			}
+			
+			//a variable for each candidate of each empty square
+			Arrays.fill(variables, -1);
+			for(int square = 0; square < candidates.length; square++)
+			{
+				if(puzzle.get(square) != 0) continue;
+				for(int value = 1; value <= gridSize; value++)
+				{
+					if((candidates[square] & 1L << (value - 1)) != 0) variables[square * gridSize + value - 1] = variableCount++;
+				}
+			}
+			
+			int candidateCount = variableCount;
+			addClauses();
+			solver = new SatSolver(variableCount);
+			variableCount = candidateCount;
+			if(!addClauses()) finished = true;
+		}
+		
+		/**
+		 * searches for the next solution, and blocks it so the search after finds another
+		 * 
+		 * @param stop	checked at every step, the search stops once it returns true
+		 * 
+		 * @return		false if there are no more solutions or the search was stopped
+		 */
+		boolean next(BooleanSupplier stop)
+		{
+			if(finished) return false;
+			
+			SatSolver.Result result = solver.solve(stop);
+			if(result != SatSolver.Result.SATISFIABLE)
+			{
+				finished = result == SatSolver.Result.UNSATISFIABLE;
+				return false;
+			}
+			
+			//read the solution, building the clause which rules it out
+			int[] blocking = new int[candidates.length];
+			int length = 0;
+			for(int square = 0; square < candidates.length; square++)
+			{
+				if(puzzle.get(square) != 0) continue;
+				for(int value = 1; value <= gridSize; value++)
+				{
+					int variable = variables[square * gridSize + value - 1];
+					if(variable != -1 && solver.isTrue(variable))
+					{
+						solution.set(square, value);
+						blocking[length++] = SatSolver.negated(variable);
+					}
+				}
+			}
+			if(!solver.addClause(Arrays.copyOf(blocking, length))) finished = true;
+			return true;
+		}
+		
+		/**
+		 * takes the given values out of the candidates of the squares they see
+		 * 
+		 * @return	false if the grid has a value out of range, a repeated value, or a square or unit which
+		 * 			can't be filled
+		 */
+		private boolean findCandidates()
+		{
+			long all = (1L << gridSize) - 1;
+			for(int square = 0; square < candidates.length; square++)
+			{
+				int value = puzzle.get(square);
+				if(value < 0 || value > gridSize) return false;
+				candidates[square] = value == 0 ? all : 1L << (value - 1);
+			}
+			
+			for(int[] unit : units)
+			{
+				long placed = 0;
+				for(int square : unit)
+				{
+					int value = puzzle.get(square);
+					if(value == 0) continue;
+					if((placed & 1L << (value - 1)) != 0) return false;
+					placed |= 1L << (value - 1);
+				}
+				for(int square : unit)
+				{
+					if(puzzle.get(square) == 0) candidates[square] &= ~placed;
+				}
+			}
+			
+			for(int square = 0; square < candidates.length; square++)
+			{
+				if(candidates[square] == 0) return false;
+			}
+			
+			//every value missing from a unit as large as the grid needs somewhere to go
+			for(int[] unit : units)
+			{
+				if(unit.length != gridSize) continue;
+				long possible = 0;
+				for(int square : unit) possible |= candidates[square];
+				if(possible != all) return false;
+			}
+			return true;
+		}
+		
+		/**
+		 * adds the clauses of the grid to the solver, or only counts the extra variables they need if there
+		 * is no solver yet
+		 * 
+		 * @return	false if the clauses contradict each other
+		 */
+		private boolean addClauses()
+		{
+			int[] literals = new int[gridSize];
+			boolean satisfiable = true;
+			
+			//each empty square has exactly one value
+			for(int square = 0; square < candidates.length; square++)
+			{
+				if(puzzle.get(square) != 0) continue;
+				int count = 0;
+				for(int value = 1; value <= gridSize; value++)
+				{
+					int variable = variables[square * gridSize + value - 1];
+					if(variable != -1) literals[count++] = SatSolver.literal(variable);
+				}
+				satisfiable &= exactlyOne(literals, count, true);
+			}
+			
+			//each value is in each unit once, or at most once for a smaller region
+			for(int[] unit : units)
+			{
+				for(int value = 1; value <= gridSize; value++)
+				{
+					int count = 0;
+					for(int square : unit)
+					{
+						int variable = variables[square * gridSize + value - 1];
+						if(variable != -1) literals[count++] = SatSolver.literal(variable);
+					}
+					
+					//a value already given in the unit has no variables left in it
+					if(count > 0) satisfiable &= exactlyOne(literals, count, unit.length == gridSize);
+				}
+			}
+			return satisfiable;
+		}
+		
+		/**
+		 * adds the clauses for at most one of a group of literals being true, and at least one if asked
+		 * 
+		 * @param literals		the literals, at the start of the array
+		 * @param count			the number of literals
+		 * @param atLeastOne	whether one of them must be true
+		 * 
+		 * @return				false if the clauses contradict each other
+		 */
+		private boolean exactlyOne(int[] literals, int count, boolean atLeastOne)
+		{
+			if(count > PAIRWISE_LIMIT)
+			{
+				//sequential encoding, chain[i] is true if any of the first i + 1 literals is
+				int chain = variableCount;
+				variableCount += count - 1;
+				if(solver == null) return true;
+				
+				boolean satisfiable = solver.addClause(literals[0] ^ 1, SatSolver.literal(chain));
+				for(int i = 1; i < count - 1; i++)
+				{
+					satisfiable &= solver.addClause(literals[i] ^ 1, SatSolver.literal(chain + i));
+					satisfiable &= solver.addClause(SatSolver.negated(chain + i - 1), SatSolver.literal(chain + i));
+					satisfiable &= solver.addClause(literals[i] ^ 1, SatSolver.negated(chain + i - 1));
+				}
+				satisfiable &= solver.addClause(literals[count - 1] ^ 1, SatSolver.negated(chain + count - 2));
+				if(atLeastOne) satisfiable &= solver.addClause(Arrays.copyOf(literals, count));
+				return satisfiable;
+			}
+			
+			if(solver == null) return true;
+			
+			boolean satisfiable = true;
+			for(int i = 0; i < count; i++)
+			{
+				for(int j = i + 1; j < count; j++) satisfiable &= solver.addClause(literals[i] ^ 1, literals[j] ^ 1);
+			}
+			if(atLeastOne) satisfiable &= solver.addClause(Arrays.copyOf(literals, count));
+			return satisfiable;
+		}
+		
+		/**
+		 * lists the squares of every row, column, sub-grid and extra region
+		 * 
+		 * @param subgridWidth	the width of the sub-grids
+		 * @param subgridHeight	the height of the sub-grids
+		 * 
+		 * @return				the units
+		 * 
+		 * @throws IllegalArgumentException	if an extra region has a square outside the grid
+		 */
+		private int[][] units(int subgridWidth, int subgridHeight)
+		{
+			int[][] units = new int[3 * gridSize + regions.length][];
+			for(int i = 0; i < gridSize; i++)
+			{
+				units[i] = new int[gridSize];
+				units[gridSize + i] = new int[gridSize];
+				units[2 * gridSize + i] = new int[gridSize];
+				
+				//the sub-grids are numbered across then down
+				int top = (i / (gridSize / subgridWidth)) * subgridHeight;
+				int left = (i % (gridSize / subgridWidth)) * subgridWidth;
+				for(int j = 0; j < gridSize; j++)
+				{
+					units[i][j] = i * gridSize + j;
+					units[gridSize + i][j] = j * gridSize + i;
+					units[2 * gridSize + i][j] = (top + j / subgridWidth) * gridSize + left + j % subgridWidth;
+				}
+			}
+			
+			for(int i = 0; i < regions.length; i++)
+			{
+				for(int square : regions[i])
+				{
+					if(square < 0 || square >= gridSize * gridSize)
+					{
+						throw new IllegalArgumentException("Region " + i + " has square " + square + ", outside a " + gridSize + "x" + gridSize + " grid");
+					}
+				}
+				units[3 * gridSize + i] = regions[i];
+			}
+			return units;
+		}
+	}
+}
\ No newline at end of file
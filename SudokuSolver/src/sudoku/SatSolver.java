@@ -0,0 +1,801 @@
+package sudoku;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A conflict-driven clause-learning SAT solver, used by SatEngine.
+ * 
+ * Variables are numbered from 0, and literals are 2 * variable for the variable being true and
+ * 2 * variable + 1 for it being false, so a literal's negation is literal ^ 1. Clauses of two literals are
+ * kept as implication lists, since the one-of constraints of a sudoku are almost all pairs. Longer clauses
+ * are watched by their first two literals.
+ * 
+ * The search learns the first unique implication point clause of each conflict, picks variables by VSIDS
+ * activity, reuses the last value each variable had, restarts on the Luby sequence and throws away the
+ * learnt clauses of least use at restarts. Clauses can be added between searches, so a caller can block a
+ * solution and search again for the next one.
+ * 
+ * A solver is not thread safe
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class SatSolver
+{
+	/**
+	 * the outcome of a search
+	 */
+	enum Result
+	{
+		SATISFIABLE,	//a model was found, read with isTrue()
+		UNSATISFIABLE,	//there are no more models
+		STOPPED			//the search was asked to stop first
+	}
+	
+	private final static int NO_REASON = -1;			//the reason of a decision, or of a variable set by a unit clause
+	private final static int BINARY_CONFLICT = -2;		//returned by propagate() for a conflict of two literals
+	private final static int NO_CONFLICT = -3;			//returned by propagate() when there is no conflict
+	private final static int RESTART_UNIT = 100;		//conflicts in one unit of the Luby sequence
+	private final static double ACTIVITY_DECAY = 0.95;	//the fraction of its activity a variable keeps at each conflict
+	
+	/*
+	 * variables and the value of each literal, 1 true, -1 false and 0 unassigned
+	 */
+	private final int variableCount;
+	private final byte[] values;
+	private final int[] levels;		//the decision level each variable was set at
+	private final int[] reasons;	//the clause which set each variable, -2 - the other literal for a pair, or NO_REASON
+	private final boolean[] phases;	//the last value of each variable, tried first when it is next decided
+	
+	/*
+	 * the assigned literals in order, split into decision levels
+	 */
+	private final int[] trail;
+	private int trailSize;
+	private int[] levelStarts = new int[16];	//the trail size when each decision level was started
+	private int level;							//the current decision level
+	private int propagated;						//the number of trail literals propagated so far
+	
+	/*
+	 * clauses. implications[literal] are the literals made true by literal being true, one for each pair
+	 * clause. watches[literal] are the long clauses with literal as their first or second literal
+	 */
+	private final int[][] implications;
+	private final int[] implicationCounts;
+	private final int[][] watches;
+	private final int[] watchCounts;
+	private int[][] clauses = new int[64][];
+	private int clauseCount;
+	private int problemClauseCount;			//the clauses at the start of clauses which were added, the rest are learnt
+	private int[] glue = new int[64];		//the number of decision levels in each learnt clause when it was learnt
+	private int learntLimit;				//the number of learnt clauses kept before the least useful are thrown away
+	private boolean unsatisfiable;			//set once the clauses contradict each other with nothing decided
+	private final int[] binaryConflict = new int[2];	//the two literals of a pair clause found false by propagate()
+	
+	/*
+	 * variable activities for choosing decisions, kept in a heap with the most active first
+	 */
+	private final double[] activities;
+	private double activityIncrement = 1;
+	private final int[] heap;
+	private final int[] heapPositions;	//the position of each variable in the heap, -1 if it isn't in it
+	private int heapSize;
+	
+	/*
+	 * conflict analysis scratch space
+	 */
+	private final boolean[] seen;
+	private int[] learnt = new int[16];
+	private int learntLength;			//the length of the clause left in learnt by analyze()
+	private final int[] levelStamps;	//the conflict each decision level was last counted for, for the glue of a clause
+	private int stamp;
+	
+	private final boolean[] model;	//the values of the variables in the last model found
+	
+	/**
+	 * Constructor for a new solver, with no clauses
+	 * 
+	 * @param variableCount	the number of variables
+	 */
+	SatSolver(int variableCount)
+	{
+		this.variableCount = variableCount;
+		values = new byte[2 * variableCount];
+		levels = new int[variableCount];
+		reasons = new int[variableCount];
+		phases = new boolean[variableCount];
+		trail = new int[variableCount];
+		implications = new int[2 * variableCount][];
+		implicationCounts = new int[2 * variableCount];
+		watches = new int[2 * variableCount][];
+		watchCounts = new int[2 * variableCount];
+		activities = new double[variableCount];
+		heap = new int[variableCount];
+		heapPositions = new int[variableCount];
+		seen = new boolean[variableCount];
+		levelStamps = new int[variableCount + 1];
+		model = new boolean[variableCount];
+		
+		for(int variable = 0; variable < variableCount; variable++)
+		{
+			heap[variable] = variable;
+			heapPositions[variable] = variable;
+		}
+		heapSize = variableCount;
+	}
+	
+	/**
+	 * @param variable	the variable
+	 * 
+	 * @return			the literal of the variable being true
+	 */
+	static int literal(int variable)
+	{
+		return 2 * variable;
+	}
+	
+	/**
+	 * @param variable	the variable
+	 * 
+	 * @return			the literal of the variable being false
+	 */
+	static int negated(int variable)
+	{
+		return 2 * variable + 1;
+	}
+	
+	/**
+	 * adds a clause, which at least one of its literals must satisfy. literals already false are left out,
+	 * and a clause already satisfied isn't added. the literals may be reordered
+	 * 
+	 * @param literals	the literals of the clause, kept by the solver if there are more than two
+	 * 
+	 * @return			false if the clauses now contradict each other
+	 */
+	boolean addClause(int... literals)
+	{
+		if(unsatisfiable) return false;
+		backtrack(0);
+		
+		//take out the literals already false, and skip the clause if one is true
+		int length = 0;
+		for(int literal : literals)
+		{
+			if(values[literal] > 0) return true;
+			if(values[literal] == 0) literals[length++] = literal;
+		}
+		
+		if(length == 0)
+		{
+			unsatisfiable = true;
+		}
+		else if(length == 1)
+		{
+			assign(literals[0], NO_REASON);
+			if(propagate() != NO_CONFLICT) unsatisfiable = true;
+		}
+		else if(length == 2)
+		{
+			addImplication(literals[0] ^ 1, literals[1]);
+			addImplication(literals[1] ^ 1, literals[0]);
+		}
+		else
+		{
+			//added clauses are kept before the learnt ones, so the first learnt clause moves to the end
+			int[] clause = length == literals.length ? literals : Arrays.copyOf(literals, length);
+			int index = addLongClause(clause);
+			if(index != problemClauseCount)
+			{
+				int[] moved = clauses[problemClauseCount];
+				renumber(clause[0], clause[1], index, -1);
+				renumber(moved[0], moved[1], problemClauseCount, index);
+				renumber(clause[0], clause[1], -1, problemClauseCount);
+				clauses[index] = moved;
+				clauses[problemClauseCount] = clause;
+				glue[index] = glue[problemClauseCount];
+			}
+			problemClauseCount++;
+		}
+		learntLimit = problemClauseCount / 3 + 2000;
+		
+		return !unsatisfiable;
+	}
+	
+	/**
+	 * searches for a model of the clauses
+	 * 
+	 * @param stop	checked at every decision, the search stops once it returns true
+	 * 
+	 * @return		whether a model was found
+	 */
+	Result solve(BooleanSupplier stop)
+	{
+		if(unsatisfiable) return Result.UNSATISFIABLE;
+		
+		long conflicts = 0;
+		long restartAt = RESTART_UNIT * luby(0);
+		int restarts = 0;
+		while(true)
+		{
+			int conflict = propagate();
+			if(conflict != NO_CONFLICT)
+			{
+				conflicts++;
+				if(level == 0)
+				{
+					unsatisfiable = true;
+					return Result.UNSATISFIABLE;
+				}
+				
+				int backtrackLevel = analyze(conflict);
+				backtrack(backtrackLevel);
+				learn();
+				decayActivities();
+				continue;
+			}
+			
+			//restart, throwing away the learnt clauses of least use if there are too many
+			if(conflicts >= restartAt)
+			{
+				restartAt = conflicts + RESTART_UNIT * luby(restarts++);
+				backtrack(0);
+				if(clauseCount - problemClauseCount > learntLimit)
+				{
+					reduceLearnt();
+					learntLimit += learntLimit / 10;
+				}
+			}
+			
+			if(stop.getAsBoolean())
+			{
+				backtrack(0);
+				return Result.STOPPED;
+			}
+			
+			//decide the most active variable not yet assigned, a model if there are none
+			int variable = nextVariable();
+			if(variable == -1)
+			{
+				for(int v = 0; v < variableCount; v++) model[v] = values[literal(v)] > 0;
+				backtrack(0);
+				return Result.SATISFIABLE;
+			}
+			newLevel();
+			assign(phases[variable] ? literal(variable) : negated(variable), NO_REASON);
+		}
+	}
+	
+	/**
+	 * @param variable	the variable
+	 * 
+	 * @return			its value in the last model found
+	 */
+	boolean isTrue(int variable)
+	{
+		return model[variable];
+	}
+	
+	/**
+	 * propagates the literals on the trail which haven't been yet, setting every literal a clause leaves no
+	 * choice about
+	 * 
+	 * @return	the long clause which is false, BINARY_CONFLICT if a pair clause is false, or NO_CONFLICT
+	 */
+	private int propagate()
+	{
+		while(propagated < trailSize)
+		{
+			int trueLiteral = trail[propagated++];
+			int falseLiteral = trueLiteral ^ 1;
+			
+			//pair clauses
+			int[] implied = implications[trueLiteral];
+			for(int i = implicationCounts[trueLiteral] - 1; i >= 0; i--)
+			{
+				int literal = implied[i];
+				if(values[literal] > 0) continue;
+				if(values[literal] < 0)
+				{
+					binaryConflict[0] = literal;
+					binaryConflict[1] = falseLiteral;
+					return BINARY_CONFLICT;
+				}
+				assign(literal, -2 - falseLiteral);
+			}
+			
+			//long clauses, each either finds another literal to watch or has its other watched literal set
+			int[] watching = watches[falseLiteral];
+			int count = watchCounts[falseLiteral];
+			int kept = 0;
+			for(int i = 0; i < count; i++)
+			{
+				int index = watching[i];
+				int[] clause = clauses[index];
+				
+				//keep the false literal second
+				if(clause[0] == falseLiteral)
+				{
+					clause[0] = clause[1];
+					clause[1] = falseLiteral;
+				}
+				
+				if(values[clause[0]] > 0)
+				{
+					watching[kept++] = index;
+					continue;
+				}
+				
+				int other = 2;
+				while(other < clause.length && values[clause[other]] < 0) other++;
+				if(other < clause.length)
+				{
+					clause[1] = clause[other];
+					clause[other] = falseLiteral;
+					addWatch(clause[1], index);
+					continue;
+				}
+				
+				watching[kept++] = index;
+				if(values[clause[0]] < 0)
+				{
+					//keep the rest of the watches and stop
+					while(++i < count) watching[kept++] = watching[i];
+					watchCounts[falseLiteral] = kept;
+					return index;
+				}
+				assign(clause[0], index);
+			}
+			watchCounts[falseLiteral] = kept;
+		}
+		return NO_CONFLICT;
+	}
+	
+	/**
+	 * finds the first unique implication point clause of a conflict, leaving it in learnt
+	 * 
+	 * @param conflict	the clause found false by propagate()
+	 * 
+	 * @return			the decision level to go back to, where the clause sets its first literal
+	 */
+	private int analyze(int conflict)
+	{
+		int length = 1;	//the first literal is filled in at the end
+		int pending = 0;	//literals of the current level not yet resolved away
+		int literal = -1;	//the literal being resolved on, -1 for the conflict clause
+		int reason = conflict;
+		int index = trailSize - 1;
+		
+		while(true)
+		{
+			//the literals of the reason, other than the one it set
+			int[] clause;
+			int start, end;
+			if(literal == -1 && reason == BINARY_CONFLICT)	//only the conflict, a reason of -2 is a pair with literal 0
+			{
+				clause = binaryConflict;
+				start = 0;
+				end = 2;
+			}
+			else if(reason >= 0)
+			{
+				clause = clauses[reason];
+				start = literal == -1 ? 0 : 1;
+				end = clause.length;
+			}
+			else
+			{
+				binaryConflict[0] = -2 - reason;
+				clause = binaryConflict;
+				start = 0;
+				end = 1;
+			}
+			
+			for(int i = start; i < end; i++)
+			{
+				int variable = clause[i] >> 1;
+				if(seen[variable] || levels[variable] == 0) continue;
+				
+				seen[variable] = true;
+				bumpVariable(variable);
+				if(levels[variable] == level)
+				{
+					pending++;
+				}
+				else
+				{
+					if(length == learnt.length) learnt = Arrays.copyOf(learnt, 2 * length);
+					learnt[length++] = clause[i];
+				}
+			}
+			
+			//the latest literal on the trail taking part is resolved on next
+			while(!seen[trail[index] >> 1]) index--;
+			literal = trail[index--];
+			seen[literal >> 1] = false;
+			reason = reasons[literal >> 1];
+			if(--pending == 0) break;
+		}
+		learnt[0] = literal ^ 1;
+		
+		//leave out literals implied by the others, moving them past the end so they can still be unmarked
+		int kept = 1;
+		for(int i = 1; i < length; i++)
+		{
+			if(isImplied(learnt[i])) continue;
+			int swap = learnt[kept];
+			learnt[kept++] = learnt[i];
+			learnt[i] = swap;
+		}
+		for(int i = 1; i < length; i++) seen[learnt[i] >> 1] = false;
+		length = kept;
+		learntLength = length;
+		
+		//the second literal is the one set latest, so it is watched and the clause goes back to its level
+		int backtrackLevel = 0;
+		for(int i = 1; i < length; i++)
+		{
+			if(levels[learnt[i] >> 1] > backtrackLevel)
+			{
+				backtrackLevel = levels[learnt[i] >> 1];
+				int swap = learnt[1];
+				learnt[1] = learnt[i];
+				learnt[i] = swap;
+			}
+		}
+		return backtrackLevel;
+	}
+	
+	/**
+	 * checks whether a literal of a learnt clause can be left out, because every other literal of its reason
+	 * is in the clause already or was set before any decision
+	 * 
+	 * @param literal	the literal
+	 * 
+	 * @return			true if it can be left out
+	 */
+	private boolean isImplied(int literal)
+	{
+		int reason = reasons[literal >> 1];
+		if(reason == NO_REASON) return false;
+		if(reason < 0)
+		{
+			int variable = (-2 - reason) >> 1;
+			return seen[variable] || levels[variable] == 0;
+		}
+		
+		int[] clause = clauses[reason];
+		for(int i = 1; i < clause.length; i++)
+		{
+			int variable = clause[i] >> 1;
+			if(!seen[variable] && levels[variable] > 0) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * adds the clause left by analyze(), after backtracking to the level where it sets its first literal
+	 */
+	private void learn()
+	{
+		int length = learntLength;
+		if(length == 1)
+		{
+			assign(learnt[0], NO_REASON);
+		}
+		else if(length == 2)
+		{
+			addImplication(learnt[0] ^ 1, learnt[1]);
+			addImplication(learnt[1] ^ 1, learnt[0]);
+			assign(learnt[0], -2 - learnt[1]);
+		}
+		else
+		{
+			int index = addLongClause(Arrays.copyOf(learnt, length));
+			
+			//the glue is the number of decision levels in the clause, the fewer the more useful it tends to be
+			stamp++;
+			int levelCount = 0;
+			for(int i = 0; i < length; i++)
+			{
+				int literalLevel = levels[learnt[i] >> 1];
+				if(levelStamps[literalLevel] != stamp)
+				{
+					levelStamps[literalLevel] = stamp;
+					levelCount++;
+				}
+			}
+			glue[index] = levelCount;
+			assign(learnt[0], index);
+		}
+	}
+	
+	/**
+	 * throws away about half of the learnt clauses, those with the most glue, always keeping those of two levels
+	 * or less. only called with nothing decided, so no clause is the reason for a literal which can still be analyzed
+	 */
+	private void reduceLearnt()
+	{
+		int learntCount = clauseCount - problemClauseCount;
+		int[] sorted = Arrays.copyOfRange(glue, problemClauseCount, clauseCount);
+		Arrays.sort(sorted);
+		int limit = sorted[learntCount / 2];	//clauses with more glue than this are thrown away, and some with this much
+		int removable = learntCount / 2;		//the number still to throw away
+		
+		int kept = problemClauseCount;
+		for(int index = problemClauseCount; index < clauseCount; index++)
+		{
+			if(glue[index] <= 2 || glue[index] < limit || (glue[index] == limit && removable == 0))
+			{
+				clauses[kept] = clauses[index];
+				glue[kept++] = glue[index];
+			}
+			else
+			{
+				removable--;
+			}
+		}
+		Arrays.fill(clauses, kept, clauseCount, null);
+		clauseCount = kept;
+		
+		//watch what is left again, and forget the reasons of literals set before any decision
+		Arrays.fill(watchCounts, 0);
+		for(int index = 0; index < clauseCount; index++)
+		{
+			addWatch(clauses[index][0], index);
+			addWatch(clauses[index][1], index);
+		}
+		for(int i = 0; i < trailSize; i++) reasons[trail[i] >> 1] = NO_REASON;
+	}
+	
+	/**
+	 * adds a clause of three or more literals, watching its first two
+	 * 
+	 * @param clause	the literals
+	 * 
+	 * @return			the index of the clause
+	 */
+	private int addLongClause(int[] clause)
+	{
+		if(clauseCount == clauses.length)
+		{
+			clauses = Arrays.copyOf(clauses, 2 * clauseCount);
+			glue = Arrays.copyOf(glue, 2 * clauseCount);
+		}
+		clauses[clauseCount] = clause;
+		addWatch(clause[0], clauseCount);
+		addWatch(clause[1], clauseCount);
+		return clauseCount++;
+	}
+	
+	/**
+	 * changes the index a clause is watched by
+	 * 
+	 * @param first		the first literal of the clause
+	 * @param second	the second literal of the clause
+	 * @param from		the index it is watched by
+	 * @param to		the index to watch it by instead
+	 */
+	private void renumber(int first, int second, int from, int to)
+	{
+		for(int literal : new int[] {first, second})
+		{
+			int[] watching = watches[literal];
+			for(int i = 0; i < watchCounts[literal]; i++)
+			{
+				if(watching[i] == from)
+				{
+					watching[i] = to;
+					break;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param literal	a literal of a long clause
+	 * @param index		the clause, to be looked at when the literal is false
+	 */
+	private void addWatch(int literal, int index)
+	{
+		int count = watchCounts[literal];
+		if(watches[literal] == null) watches[literal] = new int[4];
+		else if(count == watches[literal].length) watches[literal] = Arrays.copyOf(watches[literal], 2 * count);
+		watches[literal][count] = index;
+		watchCounts[literal] = count + 1;
+	}
+	
+	/**
+	 * @param from	a literal
+	 * @param to	a literal which must be true whenever from is
+	 */
+	private void addImplication(int from, int to)
+	{
+		int count = implicationCounts[from];
+		if(implications[from] == null) implications[from] = new int[4];
+		else if(count == implications[from].length) implications[from] = Arrays.copyOf(implications[from], 2 * count);
+		implications[from][count] = to;
+		implicationCounts[from] = count + 1;
+	}
+	
+	/**
+	 * makes a literal true at the current decision level
+	 * 
+	 * @param literal	the literal
+	 * @param reason	the clause which set it, -2 - the other literal of a pair clause, or NO_REASON
+	 */
+	private void assign(int literal, int reason)
+	{
+		int variable = literal >> 1;
+		values[literal] = 1;
+		values[literal ^ 1] = -1;
+		levels[variable] = level;
+		reasons[variable] = reason;
+		trail[trailSize++] = literal;
+	}
+	
+	/**
+	 * starts a new decision level
+	 */
+	private void newLevel()
+	{
+		if(++level == levelStarts.length) levelStarts = Arrays.copyOf(levelStarts, 2 * level);
+		levelStarts[level] = trailSize;
+	}
+	
+	/**
+	 * unassigns every literal set after a decision level, remembering their values
+	 * 
+	 * @param target	the decision level to go back to
+	 */
+	private void backtrack(int target)
+	{
+		if(level <= target) return;
+		
+		int start = levelStarts[target + 1];
+		for(int i = trailSize - 1; i >= start; i--)
+		{
+			int literal = trail[i];
+			int variable = literal >> 1;
+			values[literal] = 0;
+			values[literal ^ 1] = 0;
+			phases[variable] = (literal & 1) == 0;
+			if(heapPositions[variable] == -1) heapInsert(variable);
+		}
+		trailSize = start;
+		propagated = start;
+		level = target;
+	}
+	
+	/**
+	 * @return	the most active variable not yet assigned, -1 if they all are
+	 */
+	private int nextVariable()
+	{
+		while(heapSize > 0)
+		{
+			int variable = heapRemoveFirst();
+			if(values[literal(variable)] == 0) return variable;
+		}
+		return -1;
+	}
+	
+	/**
+	 * makes a variable more likely to be decided next, for taking part in a conflict
+	 * 
+	 * @param variable	the variable
+	 */
+	private void bumpVariable(int variable)
+	{
+		activities[variable] += activityIncrement;
+		if(activities[variable] > 1e100)
+		{
+			//scale every activity down before they overflow
+			for(int v = 0; v < variableCount; v++) activities[v] *= 1e-100;
+			activityIncrement *= 1e-100;
+		}
+		if(heapPositions[variable] != -1) heapUp(heapPositions[variable]);
+	}
+	
+	/**
+	 * makes every earlier bump worth less than the ones to come
+	 */
+	private void decayActivities()
+	{
+		activityIncrement /= ACTIVITY_DECAY;
+	}
+	
+	/**
+	 * @param variable	a variable not in the heap
+	 */
+	private void heapInsert(int variable)
+	{
+		heap[heapSize] = variable;
+		heapPositions[variable] = heapSize;
+		heapUp(heapSize++);
+	}
+	
+	/**
+	 * @return	the most active variable, taken out of the heap
+	 */
+	private int heapRemoveFirst()
+	{
+		int first = heap[0];
+		heapPositions[first] = -1;
+		if(--heapSize > 0)
+		{
+			heap[0] = heap[heapSize];
+			heapPositions[heap[0]] = 0;
+			heapDown(0);
+		}
+		return first;
+	}
+	
+	/**
+	 * @param position	a position in the heap whose variable may be more active than its parent's
+	 */
+	private void heapUp(int position)
+	{
+		int variable = heap[position];
+		while(position > 0)
+		{
+			int parent = (position - 1) >> 1;
+			if(activities[heap[parent]] >= activities[variable]) break;
+			heap[position] = heap[parent];
+			heapPositions[heap[position]] = position;
+			position = parent;
+		}
+		heap[position] = variable;
+		heapPositions[variable] = position;
+	}
+	
+	/**
+	 * @param position	a position in the heap whose variable may be less active than its children
+	 */
+	private void heapDown(int position)
+	{
+		int variable = heap[position];
+		while(true)
+		{
+			int child = 2 * position + 1;
+			if(child >= heapSize) break;
+			if(child + 1 < heapSize && activities[heap[child + 1]] > activities[heap[child]]) child++;
+			if(activities[heap[child]] <= activities[variable]) break;
+			heap[position] = heap[child];
+			heapPositions[heap[position]] = position;
+			position = child;
+		}
+		heap[position] = variable;
+		heapPositions[variable] = position;
+	}
+	
+	/**
+	 * the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ..., which spaces restarts further apart over time
+	 * while still restarting often
+	 * 
+	 * @param i	the position in the sequence, from 0
+	 * 
+	 * @return	the value there
+	 */
+	private static long luby(int i)
+	{
+		//find the smallest complete subsequence, of length 2^k - 1, that i falls in
+		long size = 1;
+		int power = 0;
+		while(size < i + 1)
+		{
+			power++;
+			size = 2 * size + 1;
+		}
+		
+		//then the subsequence within it, until i is at its end
+		long position = i;
+		while(size - 1 != position)
+		{
+			size = (size - 1) >> 1;
+			power--;
+			position %= size;
+		}
+		return 1L << power;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,267 @@
+package sudoku;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide metrics of the searches made by the backtracking solver: totals of the counts in SearchStats,
+ * and histograms of the wall time and the nodes visited per search. Each search is also emitted as a
+ * sudoku.Solve flight recorder event, see SolveEvent.
+ * 
+ * Metrics are off unless the program is run with -Dsudoku.metrics=true. The switch is a constant, so with
+ * metrics off the JIT compiles the counting out of the solver altogether. Only whole searches of a Grid are
+ * measured, not the pieces ParallelSolver hands out or the steps of a SolutionIterator.
+ * 
+ * All methods are thread safe.
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public final class SearchMetrics
+{
+	final static boolean ENABLED = Boolean.getBoolean("sudoku.metrics");	//read once, so the checks fold away
+	
+	/*
+	 * totals over every search
+	 */
+	private final static LongAdder solves = new LongAdder();
+	private final static LongAdder nodes = new LongAdder();
+	private final static LongAdder backtracks = new LongAdder();
+	private final static LongAdder candidateChecks = new LongAdder();
+	private final static LongAdder solutions = new LongAdder();
+	private final static LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+	
+	private final static Histogram latency = new Histogram();		//nanoseconds per search
+	private final static Histogram nodeCounts = new Histogram();	//nodes per search
+	
+	private final static ThreadLocal<SearchStats> lastSolve = new ThreadLocal<SearchStats>();	//the last search on each thread
+	
+	private SearchMetrics()
+	{
+		//only static methods
+	}
+	
+	/**
+	 * adds a finished search to the totals and histograms
+	 * 
+	 * @param stats	the search's counts
+	 */
+	static void record(SearchStats stats)
+	{
+		solves.increment();
+		nodes.add(stats.nodes);
+		backtracks.add(stats.backtracks);
+		candidateChecks.add(stats.candidateChecks);
+		solutions.add(stats.solutions);
+		maxDepth.accumulate(stats.maxDepth);
+		latency.record(stats.nanos);
+		nodeCounts.record(stats.nodes);
+		lastSolve.set(stats.copy());
+	}
+	
+	/**
+	 * @return	true if the program was run with -Dsudoku.metrics=true
+	 */
+	public static boolean isEnabled()
+	{
+		return ENABLED;
+	}
+	
+	/**
+	 * the counts of the last search made on the calling thread. the backtracking engine searches on the thread
+	 * which calls it, so this is the search of the last call
+	 * 
+	 * @return	the counts, or null if metrics are off or this thread hasn't searched
+	 */
+	public static SearchStats lastSolve()
+	{
+		return lastSolve.get();
+	}
+	
+	/**
+	 * @return	the number of searches measured
+	 */
+	public static long getSolves()
+	{
+		return solves.sum();
+	}
+	
+	/**
+	 * @return	the total nodes visited
+	 */
+	public static long getNodes()
+	{
+		return nodes.sum();
+	}
+	
+	/**
+	 * @return	the total backtracks
+	 */
+	public static long getBacktracks()
+	{
+		return backtracks.sum();
+	}
+	
+	/**
+	 * @return	the total candidate checks
+	 */
+	public static long getCandidateChecks()
+	{
+		return candidateChecks.sum();
+	}
+	
+	/**
+	 * @return	the total solutions found
+	 */
+	public static long getSolutions()
+	{
+		return solutions.sum();
+	}
+	
+	/**
+	 * @return	the deepest any search went
+	 */
+	public static long getMaxDepth()
+	{
+		return maxDepth.get();
+	}
+	
+	/**
+	 * @return	the histogram of wall time per search, in nanoseconds
+	 */
+	public static Histogram getLatency()
+	{
+		return latency;
+	}
+	
+	/**
+	 * @return	the histogram of nodes visited per search
+	 */
+	public static Histogram getNodeCounts()
+	{
+		return nodeCounts;
+	}
+	
+	/**
+	 * zeroes every total and histogram
+	 */
+	public static void reset()
+	{
+		solves.reset();
+		nodes.reset();
+		backtracks.reset();
+		candidateChecks.reset();
+		solutions.reset();
+		maxDepth.reset();
+		latency.reset();
+		nodeCounts.reset();
+	}
+	
+	/**
+	 * @return	the totals and histograms on a few lines, for printing
+	 */
+	public static String summary()
+	{
+		return getSolves() + " searches, " + getNodes() + " nodes, " + getBacktracks() + " backtracks, " + getCandidateChecks()
+				+ " candidate checks, " + getSolutions() + " solutions, max depth " + getMaxDepth() + "\n"
+				+ "time (ns): " + latency + "\n"
+				+ "nodes: " + nodeCounts;
+	}
+	
+	/**
+	 * A histogram of non-negative values, with a bucket for each power of two. bucket 0 holds 0 and bucket n holds
+	 * the values from 2^(n-1) up to 2^n - 1, so percentiles are given to within a factor of two
+	 */
+	public static final class Histogram
+	{
+		private final static int BUCKETS = 64;
+		
+		private final LongAdder[] buckets = new LongAdder[BUCKETS];
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+		
+		Histogram()
+		{
+			for(int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+		}
+		
+		/**
+		 * @param value	the value to add, negative values are counted as 0
+		 */
+		void record(long value)
+		{
+			value = Math.max(value, 0);
+			buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+			max.accumulate(value);
+		}
+		
+		/**
+		 * zeroes every bucket
+		 */
+		void reset()
+		{
+			for(LongAdder bucket : buckets) bucket.reset();
+			max.reset();
+		}
+		
+		/**
+		 * @return	the number of values recorded
+		 */
+		public long getCount()
+		{
+			long count = 0;
+			for(LongAdder bucket : buckets) count += bucket.sum();
+			return count;
+		}
+		
+		/**
+		 * @return	the largest value recorded
+		 */
+		public long getMax()
+		{
+			return max.get();
+		}
+		
+		/**
+		 * @param bucket	the bucket's index
+		 * 
+		 * @return			the number of values in the bucket
+		 */
+		public long getBucket(int bucket)
+		{
+			return buckets[bucket].sum();
+		}
+		
+		/**
+		 * finds an upper bound of a percentile
+		 * 
+		 * @param percent	the percentile, from 0 to 100
+		 * 
+		 * @return			the top of the bucket the percentile falls in, at most the largest value, 0 if nothing has been recorded
+		 */
+		public long percentile(double percent)
+		{
+			long[] counts = new long[BUCKETS];
+			long count = 0;
+			for(int i = 0; i < BUCKETS; i++)
+			{
+				counts[i] = buckets[i].sum();
+				count += counts[i];
+			}
+			
+			long rank = (long)Math.ceil(count * percent / 100);
+			long seen = 0;
+			for(int i = 0; i < BUCKETS; i++)
+			{
+				seen += counts[i];
+				if(seen >= rank && seen > 0) return Math.min(i == 0 ? 0 : (1L << i) - 1, getMax());
+			}
+			return getMax();
+		}
+		
+		public String toString()
+		{
+			return "count " + getCount() + ", p50 <= " + percentile(50) + ", p90 <= " + percentile(90) + ", p99 <= " + percentile(99)
+					+ ", max " + getMax();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+package sudoku;
+
+/**
+ * How much work one search did, counted by the backtracking solver while SearchMetrics is enabled.
+ * 
+ * A node is a point in the search tree, where the forced values are filled in and a square is branched on.
+ * A backtrack is a node or branch found to be impossible, so the search had to go back up. A candidate check
+ * is a value tried in a square, whether by a branch or by filling in a forced value, and the depth is the
+ * number of branches taken to reach a node
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public final class SearchStats
+{
+	/*
+	 * the counts, updated in place by the solver
+	 */
+	long nodes;
+	long backtracks;
+	long candidateChecks;
+	int maxDepth;
+	long solutions;
+	long nanos;				//wall time of the search
+	
+	private long start;		//System.nanoTime() when the search started
+	private SolveEvent event;	//the flight recorder event of the search, committed when it finishes
+	
+	/**
+	 * zeroes the counts and starts the clock, at the start of a search
+	 */
+	void start()
+	{
+		nodes = 0;
+		backtracks = 0;
+		candidateChecks = 0;
+		maxDepth = 0;
+		solutions = 0;
+		nanos = 0;
+		
+		event = SolveEvent.start();
+		start = System.nanoTime();
+	}
+	
+	/**
+	 * stops the clock at the end of a search, and adds the search to the process-wide metrics
+	 * 
+	 * @param solutionCount	the number of solutions the search found
+	 */
+	void finish(long solutionCount)
+	{
+		nanos = System.nanoTime() - start;
+		solutions = solutionCount;
+		
+		event.finish(this);
+		event = null;
+		
+		SearchMetrics.record(this);
+	}
+	
+	/**
+	 * @return	a copy of the counts, which the solver won't change
+	 */
+	SearchStats copy()
+	{
+		SearchStats copy = new SearchStats();
+		copy.nodes = nodes;
+		copy.backtracks = backtracks;
+		copy.candidateChecks = candidateChecks;
+		copy.maxDepth = maxDepth;
+		copy.solutions = solutions;
+		copy.nanos = nanos;
+		return copy;
+	}
+	
+	/**
+	 * @return	the number of nodes of the search tree visited
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+	
+	/**
+	 * @return	the number of times the search went back up after finding a node or branch impossible
+	 */
+	public long getBacktracks()
+	{
+		return backtracks;
+	}
+	
+	/**
+	 * @return	the number of values tried in a square
+	 */
+	public long getCandidateChecks()
+	{
+		return candidateChecks;
+	}
+	
+	/**
+	 * @return	the deepest the search went, in branches taken
+	 */
+	public int getMaxDepth()
+	{
+		return maxDepth;
+	}
+	
+	/**
+	 * @return	the number of solutions found
+	 */
+	public long getSolutions()
+	{
+		return solutions;
+	}
+	
+	/**
+	 * @return	the wall time of the search in nanoseconds
+	 */
+	public long getNanos()
+	{
+		return nanos;
+	}
+	
+	public String toString()
+	{
+		return nodes + " nodes, " + backtracks + " backtracks, " + candidateChecks + " candidate checks, max depth " + maxDepth
+				+ ", " + solutions + " solutions in " + nanos / 1000 + " us";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,360 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A SudokuEngine which remembers the solutions of the puzzles it has seen, in front of another engine.
+ * 
+ * Puzzles are looked up by their minlex form, see CanonicalForm, so a relabelled, transposed or reordered
+ * copy of a puzzle already solved is a hit, and its solution is the remembered one transformed back. Each entry
+ * keeps whether the form has no solutions, one, or several, along with a solution packed as in SolutionStore.
+ * Counting and solving a puzzle with at most one solution is answered from the cache, as is checking that a
+ * puzzle is unique, while a puzzle with several solutions is still searched by the engine when more than two
+ * are asked for. A puzzle not in the cache is searched once, counting up to two solutions on the way to
+ * answering the caller.
+ * 
+ * The least recently used entries are evicted once there are more than a set number, or they take more than
+ * a set number of bytes. A puzzle whose form can't be found in reasonable time, such as a nearly empty or a
+ * large one, bypasses the cache and goes straight to the engine. The cache is thread safe, and the engine
+ * is called with no lock held.
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public final class SolutionCache implements SudokuEngine
+{
+	private final static int MAX_STATES = 1 << 14;		//partial transforms to keep before giving up on a form
+	private final static int ENTRY_OVERHEAD = 128;		//bytes of each entry besides its squares, map entry and headers included
+	
+	private final SudokuEngine engine;	//solves the puzzles not in the cache
+	private final int maxEntries;		//the most entries kept
+	private final long maxBytes;		//the most bytes the entries are estimated to take
+	
+	private final LinkedHashMap<Grid, Entry> entries = new LinkedHashMap<Grid, Entry>(16, 0.75f, true);	//in order of last use
+	private long bytes;					//the estimated bytes of the entries, guarded by entries
+	
+	/*
+	 * Statistics
+	 */
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder bypasses = new LongAdder();
+	
+	/**
+	 * Constructor for SolutionCache
+	 * 
+	 * @param engine		the engine which solves puzzles not in the cache
+	 * @param maxEntries	the most puzzles to remember
+	 * @param maxBytes		the most memory the remembered puzzles should take, estimated
+	 */
+	public SolutionCache(SudokuEngine engine, int maxEntries, long maxBytes)
+	{
+		if(maxEntries < 0 || maxBytes < 0) throw new IllegalArgumentException("Cache limits can't be negative");
+		
+		this.engine = engine;
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+	
+	public void solve(Grid puzzle, SolutionCollector collector)
+	{
+		CanonicalForm form = CanonicalForm.of(puzzle, MAX_STATES);
+		if(form == null)
+		{
+			bypasses.increment();
+			engine.solve(puzzle, collector);
+			return;
+		}
+		
+		Entry entry = find(form.getForm());
+		if(entry == null)
+		{
+			//one search answers the collector and counts up to two solutions on the way. if the collector
+			//stopped it before that was known, the puzzle is left out of the cache
+			Grid solution = new Grid(puzzle.getSubgridWidth(), puzzle.getSubgridHeight());
+			Recorder recorder = new Recorder(solution, collector);
+			engine.solve(puzzle, recorder);
+			int solutions = Math.min(recorder.found.get(), 2);
+			if(solutions == 2 || !recorder.isStopped()) store(form, solutions, solution);
+		}
+		else if(entry.solutions > 1) engine.solve(puzzle, collector);
+		else if(entry.solutions == 1 && !collector.isDone()) collector.add(form.fromForm(entry.getSolution(puzzle)));
+	}
+	
+	/**
+	 * a miss searches for at least two solutions, so the entry is always complete
+	 */
+	@Override
+	public List<Grid> solve(Grid puzzle, int maxSolutions)
+	{
+		if(maxSolutions <= 0) return new ArrayList<Grid>();
+		
+		CanonicalForm form = CanonicalForm.of(puzzle, MAX_STATES);
+		if(form == null)
+		{
+			bypasses.increment();
+			return engine.solve(puzzle, maxSolutions);
+		}
+		
+		Entry entry = find(form.getForm());
+		if(entry == null)
+		{
+			List<Grid> solutions = engine.solve(puzzle, Math.max(maxSolutions, 2));
+			store(form, Math.min(solutions.size(), 2), solutions.isEmpty() ? null : solutions.get(0));
+			return solutions.size() > maxSolutions ? new ArrayList<Grid>(solutions.subList(0, maxSolutions)) : solutions;
+		}
+		
+		//the entry only keeps one solution
+		if(entry.solutions > 1 && maxSolutions > 1) return engine.solve(puzzle, maxSolutions);
+		
+		List<Grid> solutions = new ArrayList<Grid>();
+		if(entry.solutions > 0) solutions.add(form.fromForm(entry.getSolution(puzzle)));
+		return solutions;
+	}
+	
+	public long count(Grid puzzle, long maxSolutions, Grid firstSolution)
+	{
+		if(maxSolutions <= 0) return 0;
+		
+		CanonicalForm form = CanonicalForm.of(puzzle, MAX_STATES);
+		if(form == null)
+		{
+			bypasses.increment();
+			return engine.count(puzzle, maxSolutions, firstSolution);
+		}
+		
+		Entry entry = find(form.getForm());
+		if(entry == null)
+		{
+			//counting to at least two fills the entry, and the count asked for needs no second search
+			Grid solution = new Grid(puzzle.getSubgridWidth(), puzzle.getSubgridHeight());
+			long found = engine.count(puzzle, Math.max(maxSolutions, 2), solution);
+			store(form, (int)Math.min(found, 2), solution);
+			if(found > 0 && firstSolution != null) firstSolution.copyFrom(solution);
+			return Math.min(found, maxSolutions);
+		}
+		
+		//the entry only knows of up to two solutions
+		if(entry.solutions > 1 && maxSolutions > 2) return engine.count(puzzle, maxSolutions, firstSolution);
+		
+		if(entry.solutions > 0 && firstSolution != null) firstSolution.copyFrom(form.fromForm(entry.getSolution(puzzle)));
+		return Math.min(entry.solutions, maxSolutions);
+	}
+	
+	/**
+	 * finds the entry for a minlex form, counting a hit or a miss
+	 * 
+	 * @param key	the form
+	 * 
+	 * @return		the entry, or null if the form isn't in the cache
+	 */
+	private Entry find(Grid key)
+	{
+		synchronized(entries)
+		{
+			Entry entry = entries.get(key);
+			if(entry != null)
+			{
+				hits.increment();
+				return entry;
+			}
+		}
+		misses.increment();
+		return null;
+	}
+	
+	/**
+	 * adds the entry for a puzzle which has been searched, evicting the least recently used entries if the
+	 * cache is now too large. two threads missing on the same puzzle may both solve and store it
+	 * 
+	 * @param form		the puzzle's minlex form
+	 * @param solutions	the number of solutions found, up to 2
+	 * @param solution	the first solution of the puzzle, ignored if there are none
+	 */
+	private void store(CanonicalForm form, int solutions, Grid solution)
+	{
+		Grid key = form.getForm();
+		Entry entry = new Entry(solutions, solutions > 0 ? form.toForm(solution) : null, key.getSize() * key.getSize());
+		
+		synchronized(entries)
+		{
+			Entry previous = entries.put(key, entry);
+			if(previous != null) bytes -= previous.size;
+			bytes += entry.size;
+			
+			//evict from the least recently used end
+			Iterator<Entry> eldest = entries.values().iterator();
+			while(eldest.hasNext() && (entries.size() > maxEntries || bytes > maxBytes))
+			{
+				bytes -= eldest.next().size;
+				eldest.remove();
+				evictions.increment();
+			}
+		}
+	}
+	
+	/**
+	 * forgets every puzzle, leaving the statistics as they are
+	 */
+	public void clear()
+	{
+		synchronized(entries)
+		{
+			entries.clear();
+			bytes = 0;
+		}
+	}
+	
+	/**
+	 * @return	the number of puzzles remembered
+	 */
+	public int size()
+	{
+		synchronized(entries)
+		{
+			return entries.size();
+		}
+	}
+	
+	/**
+	 * @return	the estimated memory the remembered puzzles take, in bytes
+	 */
+	public long getBytes()
+	{
+		synchronized(entries)
+		{
+			return bytes;
+		}
+	}
+	
+	/**
+	 * @return	the number of lookups which found the puzzle, or an equivalent one, remembered
+	 */
+	public long getHits()
+	{
+		return hits.sum();
+	}
+	
+	/**
+	 * @return	the number of lookups which had to solve the puzzle
+	 */
+	public long getMisses()
+	{
+		return misses.sum();
+	}
+	
+	/**
+	 * @return	the number of puzzles forgotten to keep within the limits
+	 */
+	public long getEvictions()
+	{
+		return evictions.sum();
+	}
+	
+	/**
+	 * @return	the number of puzzles solved without the cache, because their minlex form couldn't be found
+	 */
+	public long getBypasses()
+	{
+		return bypasses.sum();
+	}
+	
+	public String toString()
+	{
+		return "hits " + getHits() + ", misses " + getMisses() + ", evictions " + getEvictions() + ", bypasses " + getBypasses()
+				+ ", " + size() + " entries, " + getBytes() + " bytes";
+	}
+	
+	/**
+	 * passes solutions on to another collector, counting them and keeping the first. the engine may call it
+	 * from several threads at once
+	 */
+	private static class Recorder implements SolutionCollector
+	{
+		private final Grid firstSolution;			//the grid the first solution is copied into
+		private final SolutionCollector collector;	//the collector solutions are passed to
+		private final AtomicInteger found = new AtomicInteger();	//the number found so far
+		private volatile boolean stopped;			//set once the collector has asked for no more solutions
+		
+		Recorder(Grid firstSolution, SolutionCollector collector)
+		{
+			this.firstSolution = firstSolution;
+			this.collector = collector;
+		}
+		
+		public boolean add(Grid solution)
+		{
+			if(found.incrementAndGet() == 1) firstSolution.copyFrom(solution);
+			if(!collector.add(solution)) stopped = true;
+			return !stopped;
+		}
+		
+		public boolean isDone()
+		{
+			return stopped || collector.isDone();
+		}
+		
+		/**
+		 * @return	true if the collector ended the search, so it may not have found every solution
+		 */
+		boolean isStopped()
+		{
+			return stopped || collector.isDone();
+		}
+	}
+	
+	/**
+	 * what is known about the solutions of a minlex form
+	 */
+	private static class Entry
+	{
+		private final int solutions;	//the number of solutions, 2 meaning two or more
+		private final byte[] packed;	//the first solution found, transformed to the form and packed, or null if there is none
+		private final int size;			//the estimated bytes of the entry and its key
+		
+		/**
+		 * Constructor for Entry
+		 * 
+		 * @param solutions		the number of solutions, up to 2
+		 * @param solution		a solution of the form, or null if there is none
+		 * @param squareCount	the number of grid-squares in the form, which is the key
+		 */
+		Entry(int solutions, Grid solution, int squareCount)
+		{
+			this.solutions = solutions;
+			if(solution == null) packed = null;
+			else
+			{
+				int bitsPerSquare = SolutionStore.bitsPerSquare(solution.getSize());
+				int[] values = new int[squareCount];
+				for(int square = 0; square < squareCount; square++) values[square] = solution.get(square);
+				
+				packed = new byte[(squareCount * bitsPerSquare + 7) / 8];
+				SolutionStore.pack(values, squareCount, bitsPerSquare, packed, 0);
+			}
+			size = ENTRY_OVERHEAD + squareCount + (packed == null ? 0 : packed.length);
+		}
+		
+		/**
+		 * @param puzzle	a puzzle the same shape as the form
+		 * 
+		 * @return			the solution, unpacked into a new grid
+		 */
+		Grid getSolution(Grid puzzle)
+		{
+			int squareCount = puzzle.getSize() * puzzle.getSize();
+			int[] values = new int[squareCount];
+			SolutionStore.unpack(packed, 0, squareCount, SolutionStore.bitsPerSquare(puzzle.getSize()), values);
+			
+			Grid solution = new Grid(puzzle.getSubgridWidth(), puzzle.getSubgridHeight());
+			for(int square = 0; square < squareCount; square++) solution.set(square, values[square]);
+			return solution;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+package sudoku;
+
+/**
+ * Receives the solutions found by a solver, and decides when the search should stop.
+ * 
+ * isDone is checked at every step of the search, so a collector shared between several searches
+ * can stop all of them as soon as it has enough solutions. it is also how a search running on another
+ * thread can be cancelled, or its progress counted.
+ * 
+ * The parallel engine calls add and isDone from several threads at once, so a collector passed to it
+ * must be thread safe
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public interface SolutionCollector
+{
+	/**
+	 * called with each solution as it is found
+	 * 
+	 * @param solution	the solved grid, which the collector may keep
+	 * 
+	 * @return			true to keep searching for more solutions
+	 */
+	boolean add(Grid solution);
+	
+	/**
+	 * checks whether the search should stop
+	 * 
+	 * @return	true once no more solutions are wanted
+	 */
+	boolean isDone();
+}
\ No newline at end of file
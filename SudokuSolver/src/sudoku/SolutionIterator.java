@@ -0,0 +1,120 @@
+package sudoku;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the solutions of a grid, finding each one only when it is asked for.
+ * 
+ * The search keeps its place between solutions, so getting the next solution takes only the work needed to
+ * reach it and there is no limit on how many can be fetched. The solutions come in the same order as
+ * BacktrackingSolver.solve() finds them.
+ * 
+ * An iterator is used by one thread at a time, but cancel() and getSteps() can be called from any thread.
+ * Iterators are independent of each other and of any SudokuEngine, so several can run at once
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public class SolutionIterator implements Iterator<Grid>
+{
+	private final static int STEPS_PER_SLICE = 1024;	//nodes searched between checks for cancellation
+	
+	private final BacktrackingSolver solver;	//holds the state of the search between solutions
+	private boolean ready;						//true if a solution has been found but not yet returned
+	private boolean finished;					//true once every solution has been found
+	private volatile boolean cancelled;			//set by cancel(), possibly from another thread
+	private volatile long steps;				//nodes searched so far, updated once per slice
+	
+	/**
+	 * Constructor for a new iterator over the solutions of a grid
+	 * 
+	 * @param grid	the grid to be solved. it is copied, so may be changed afterwards
+	 */
+	public SolutionIterator(Grid grid)
+	{
+		solver = new BacktrackingSolver(grid.getSubgridWidth(), grid.getSubgridHeight());
+		finished = !solver.start(grid);
+	}
+	
+	/**
+	 * checks whether there is another solution, searching for it if it hasn't been found yet. this may take
+	 * as long as the search needs to find it
+	 * 
+	 * @return	true if next() will return a solution, false once every solution has been returned or the search is cancelled
+	 */
+	public boolean hasNext()
+	{
+		while(!ready && !finished)
+		{
+			if(cancelled)
+			{
+				finished = true;
+				break;
+			}
+			
+			int result = solver.resume(STEPS_PER_SLICE);
+			steps = solver.getSteps();
+			
+			if(result == BacktrackingSolver.SOLUTION_FOUND) ready = true;
+			else if(result == BacktrackingSolver.SEARCH_FINISHED) finished = true;
+		}
+		return ready;
+	}
+	
+	/**
+	 * finds the next solution
+	 * 
+	 * @return	a new copy of the solved grid
+	 */
+	public Grid next()
+	{
+		if(!hasNext()) throw new NoSuchElementException();
+		
+		ready = false;
+		return solver.getSolution();
+	}
+	
+	/**
+	 * stops the search. a solution already found is still returned, after that hasNext() returns false
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+	
+	/**
+	 * the number of nodes searched so far, may lag the search by up to STEPS_PER_SLICE
+	 * 
+	 * @return	the number of steps taken
+	 */
+	public long getSteps()
+	{
+		return steps;
+	}
+	
+	/**
+	 * a spliterator over the remaining solutions. the search itself runs on one thread, splitting only hands
+	 * out batches of solutions it has already found
+	 * 
+	 * @return	the spliterator, which shares this iterator's search
+	 */
+	public Spliterator<Grid> spliterator()
+	{
+		return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+	
+	/**
+	 * a stream of the remaining solutions, so for example stream().limit(100) finds the first 100
+	 * 
+	 * @return	the sequential stream, which shares this iterator's search
+	 */
+	public Stream<Grid> stream()
+	{
+		return StreamSupport.stream(spliterator(), false);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+package sudoku;
+
+import java.util.Arrays;
+
+/**
+ * Keeps any number of solved grids of one size packed into a single array.
+ * 
+ * Each grid-square takes just enough bits for the largest value, 4 for a 9x9 grid, and each solution is
+ * rounded up to a whole number of bytes, so a 9x9 solution takes 41 bytes. Solutions are not separate
+ * objects, so storing millions of them costs the garbage collector nothing.
+ * 
+ * Not thread safe, even for reading, since packing and unpacking share a working array
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+class SolutionStore
+{
+	private final static int INITIAL_CAPACITY = 16;	//solutions room is made for at first
+	
+	/*
+	 * Grid Properties
+	 */
+	private final int gridSize;			//number of rows, columns and values in the grid
+	private final int squareCount;		//total number of grid-squares
+	
+	/*
+	 * packing of each solution
+	 */
+	private final int bitsPerSquare;		//enough bits for the largest value
+	private final int bytesPerSolution;		//bits of every square, rounded up to a whole byte
+	
+	private byte[] packed = new byte[0];	//every solution, one after another
+	private int count;						//number of solutions stored
+	private final int[] scratch;			//one value per grid-square, used while packing and unpacking
+	
+	/**
+	 * Constructor for a new, empty solution store
+	 * 
+	 * @param gridSize	the number of rows, columns and values in the grids to be stored
+	 */
+	SolutionStore(int gridSize)
+	{
+		this.gridSize = gridSize;
+		this.squareCount = gridSize * gridSize;
+		this.bitsPerSquare = bitsPerSquare(gridSize);
+		this.bytesPerSolution = (squareCount * bitsPerSquare + 7) / 8;
+		this.scratch = new int[squareCount];
+	}
+	
+	/**
+	 * @return	the number of solutions stored
+	 */
+	int size()
+	{
+		return count;
+	}
+	
+	/**
+	 * @return	the number of bytes each solution takes up
+	 */
+	int getBytesPerSolution()
+	{
+		return bytesPerSolution;
+	}
+	
+	/**
+	 * removes every solution, keeping the space they used for the next ones
+	 */
+	void clear()
+	{
+		count = 0;
+	}
+	
+	/**
+	 * adds a grid to the end of the store
+	 * 
+	 * @param grid	the grid to add
+	 */
+	void add(Grid grid)
+	{
+		for(int square = 0; square < squareCount; square++) scratch[square] = grid.get(square);
+		add(scratch);
+	}
+	
+	/**
+	 * adds a grid, given as one value per grid-square, to the end of the store. used by the solvers to
+	 * store their working values directly
+	 * 
+	 * @param values	the value of each grid-square, numbered row * size + column
+	 */
+	void add(int[] values)
+	{
+		pack(values, squareCount, bitsPerSquare, packed, reserve());
+	}
+	
+	/**
+	 * copies a stored solution into a grid, without allocating
+	 * 
+	 * @param index	the number of the solution, in the order they were added
+	 * @param grid	the grid to copy it into
+	 */
+	void get(int index, Grid grid)
+	{
+		get(index, scratch);
+		for(int square = 0; square < squareCount; square++) grid.set(square, scratch[square]);
+	}
+	
+	/**
+	 * unpacks a stored solution, one value per grid-square
+	 * 
+	 * @param index		the number of the solution, in the order they were added
+	 * @param values	the array to unpack it into, numbered row * size + column
+	 */
+	void get(int index, int[] values)
+	{
+		if(index < 0 || index >= count) throw new IndexOutOfBoundsException("Solution " + index + " of " + count);
+		
+		unpack(packed, index * bytesPerSolution, squareCount, bitsPerSquare, values);
+	}
+	
+	/**
+	 * the number of bits each grid-square is packed into, enough for the largest value
+	 * 
+	 * @param gridSize	the number of rows, columns and values in the grid
+	 * 
+	 * @return			the number of bits per square, 4 for a 9x9 grid
+	 */
+	static int bitsPerSquare(int gridSize)
+	{
+		return 32 - Integer.numberOfLeadingZeros(gridSize);
+	}
+	
+	/**
+	 * packs the values of a grid into bytes, the first square in the lowest bits of the first byte. the values
+	 * must fit in bitsPerSquare bits. shared with PuzzleArchive, so solutions are packed the same way on disk
+	 * 
+	 * @param values		the value of each grid-square, numbered row * size + column
+	 * @param squareCount	the number of grid-squares
+	 * @param bitsPerSquare	the number of bits each square is packed into
+	 * @param packed		the bytes to pack into
+	 * @param position		where the packed grid starts in packed
+	 */
+	static void pack(int[] values, int squareCount, int bitsPerSquare, byte[] packed, int position)
+	{
+		int buffer = 0;		//bits waiting to be written
+		int buffered = 0;	//number of bits waiting
+		
+		for(int square = 0; square < squareCount; square++)
+		{
+			buffer |= values[square] << buffered;
+			buffered += bitsPerSquare;
+			
+			//write out each full byte
+			for(; buffered >= 8; buffered -= 8, buffer >>>= 8) packed[position++] = (byte)buffer;
+		}
+		if(buffered > 0) packed[position] = (byte)buffer;
+	}
+	
+	/**
+	 * unpacks the values of a grid packed by pack()
+	 * 
+	 * @param packed		the packed bytes
+	 * @param position		where the packed grid starts in packed
+	 * @param squareCount	the number of grid-squares
+	 * @param bitsPerSquare	the number of bits each square is packed into
+	 * @param values		the array to unpack into, numbered row * size + column
+	 */
+	static void unpack(byte[] packed, int position, int squareCount, int bitsPerSquare, int[] values)
+	{
+		int squareMask = (1 << bitsPerSquare) - 1;	//the bits of one square
+		int buffer = 0;		//bits read but not yet used
+		int buffered = 0;	//number of bits read but not yet used
+		
+		for(int square = 0; square < squareCount; square++)
+		{
+			for(; buffered < bitsPerSquare; buffered += 8) buffer |= (packed[position++] & 0xFF) << buffered;
+			
+			values[square] = buffer & squareMask;
+			buffer >>>= bitsPerSquare;
+			buffered -= bitsPerSquare;
+		}
+	}
+	
+	/**
+	 * makes room for one more solution, growing the array by half when it is full
+	 * 
+	 * @return	the position in the array the new solution starts at
+	 */
+	private int reserve()
+	{
+		long needed = (long)(count + 1) * bytesPerSolution;
+		if(needed > Integer.MAX_VALUE - 8) throw new IllegalStateException("Solution store is full");
+		
+		if(needed > packed.length)
+		{
+			long grown = Math.max(needed, Math.max((long)INITIAL_CAPACITY * bytesPerSolution, packed.length + (packed.length >> 1)));
+			packed = Arrays.copyOf(packed, (int)Math.min(grown, Integer.MAX_VALUE - 8));
+		}
+		return count++ * bytesPerSolution;
+	}
+}
\ No newline at end of file
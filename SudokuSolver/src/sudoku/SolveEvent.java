@@ -0,0 +1,71 @@
+package sudoku;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The Java Flight Recorder event of one search by the backtracking solver, emitted while SearchMetrics is
+ * enabled and a recording has sudoku.Solve turned on. The event's duration is the search's wall time
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+@Name("sudoku.Solve")
+@Label("Sudoku Solve")
+@Category("Sudoku")
+@Description("One search of the backtracking solver")
+class SolveEvent extends Event
+{
+	@Label("Nodes")
+	@Description("Nodes of the search tree visited")
+	long nodes;
+	
+	@Label("Backtracks")
+	@Description("Nodes or branches found impossible")
+	long backtracks;
+	
+	@Label("Candidate Checks")
+	@Description("Values tried in a square")
+	long candidateChecks;
+	
+	@Label("Max Depth")
+	@Description("Deepest number of branches taken")
+	int maxDepth;
+	
+	@Label("Solutions")
+	long solutions;
+	
+	/**
+	 * starts timing a new event
+	 * 
+	 * @return	the event
+	 */
+	static SolveEvent start()
+	{
+		SolveEvent event = new SolveEvent();
+		event.begin();
+		return event;
+	}
+	
+	/**
+	 * stops timing the event and commits it with the counts of a finished search, if a recording wants it
+	 * 
+	 * @param stats	the search's counts
+	 */
+	void finish(SearchStats stats)
+	{
+		end();
+		if(shouldCommit())
+		{
+			nodes = stats.nodes;
+			backtracks = stats.backtracks;
+			candidateChecks = stats.candidateChecks;
+			maxDepth = stats.maxDepth;
+			solutions = stats.solutions;
+			commit();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,226 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The puzzles waiting to be solved for SudokuServer, and the threads which solve them.
+ * 
+ * Each thread takes every job waiting, up to a set number, in one go, then solves them one after another.
+ * While requests are few each job is picked up on its own as soon as it arrives, and as they pile up they are
+ * picked up in batches, so a busy server spends less time handing puzzles over and waking threads. The jobs
+ * of a request with many puzzles are spread over all the threads.
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+final class SolveQueue
+{
+	private final SudokuEngine engine;		//solves the puzzles, shared by every thread
+	private final int batchSize;			//the most jobs a thread takes at once
+	private final LinkedBlockingQueue<Job> jobs = new LinkedBlockingQueue<Job>();
+	private final Thread[] threads;
+	
+	private final LongAdder batches = new LongAdder();	//the number of times a thread has taken jobs
+	
+	/**
+	 * Constructor for SolveQueue, which starts the threads
+	 * 
+	 * @param engine		the engine puzzles are solved with
+	 * @param threadCount	the number of threads to solve on
+	 * @param batchSize		the most jobs a thread takes at once
+	 */
+	SolveQueue(SudokuEngine engine, int threadCount, int batchSize)
+	{
+		this.engine = engine;
+		this.batchSize = batchSize;
+		
+		threads = new Thread[threadCount];
+		for(int i = 0; i < threadCount; i++)
+		{
+			threads[i] = new Thread(this::run, "sudoku-solver-" + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+	}
+	
+	/**
+	 * adds a job to the end of the queue
+	 * 
+	 * @param job	the job
+	 */
+	void submit(Job job)
+	{
+		jobs.add(job);
+	}
+	
+	/**
+	 * @return	the number of jobs waiting
+	 */
+	int size()
+	{
+		return jobs.size();
+	}
+	
+	/**
+	 * @return	the number of batches taken by the threads so far
+	 */
+	long getBatches()
+	{
+		return batches.sum();
+	}
+	
+	/**
+	 * stops the threads, leaving any jobs still waiting unsolved
+	 */
+	void close()
+	{
+		for(Thread thread : threads) thread.interrupt();
+	}
+	
+	/**
+	 * takes and solves jobs until the queue is closed
+	 */
+	private void run()
+	{
+		List<Job> batch = new ArrayList<Job>(batchSize);
+		try
+		{
+			while(true)
+			{
+				batch.add(jobs.take());
+				jobs.drainTo(batch, batchSize - 1);
+				batches.increment();
+				
+				for(Job job : batch) job.solve(engine);
+				batch.clear();
+			}
+		}
+		catch(InterruptedException e)
+		{
+			//closed
+		}
+	}
+	
+	/*
+	 * One puzzle of a request, with the limits it is solved within and, once done, its result
+	 */
+	static class Job
+	{
+		private final Grid puzzle;				//the puzzle, null if the request's line wasn't one
+		private final long limit;				//the number of solutions to stop counting at
+		private final int maxSolutions;			//the most solutions to keep
+		private final long deadline;			//the System.nanoTime() by which solving must stop
+		private final CountDownLatch finished;	//counted down once the job is done, shared by the request
+		
+		/*
+		 * the result, safe to read once done is set
+		 */
+		private final List<Grid> solutions = new ArrayList<Grid>();
+		private long count;				//the number of solutions found
+		private boolean timedOut;		//whether the deadline passed before counting finished
+		private volatile boolean done;
+		
+		/**
+		 * Constructor for Job
+		 * 
+		 * @param puzzle		the puzzle, null if the line wasn't one
+		 * @param limit			the number of solutions to stop counting at
+		 * @param maxSolutions	the most solutions to keep
+		 * @param deadline		the System.nanoTime() by which solving must stop
+		 * @param finished		counted down once the job is done
+		 */
+		Job(Grid puzzle, long limit, int maxSolutions, long deadline, CountDownLatch finished)
+		{
+			this.puzzle = puzzle;
+			this.limit = limit;
+			this.maxSolutions = maxSolutions;
+			this.deadline = deadline;
+			this.finished = finished;
+		}
+		
+		/**
+		 * solves the puzzle, unless it is invalid or its deadline has already passed
+		 * 
+		 * @param engine	the engine to solve with
+		 */
+		void solve(SudokuEngine engine)
+		{
+			try
+			{
+				if(System.nanoTime() - deadline > 0) timedOut = true;
+				else if(isValid()) engine.solve(puzzle, new Collector());
+			}
+			finally
+			{
+				done = true;
+				finished.countDown();
+			}
+		}
+		
+		/**
+		 * @return	true if the line was a puzzle with no value repeated in a row, column or sub-grid
+		 */
+		boolean isValid()
+		{
+			return puzzle != null && puzzle.isValid();
+		}
+		
+		/**
+		 * @return	true once the job has been solved, or given up on
+		 */
+		boolean isDone()
+		{
+			return done;
+		}
+		
+		/**
+		 * @return	true if the deadline passed before counting finished
+		 */
+		boolean isTimedOut()
+		{
+			return timedOut;
+		}
+		
+		/**
+		 * @return	the number of solutions found, at most the limit
+		 */
+		long getCount()
+		{
+			return count;
+		}
+		
+		/**
+		 * @return	the solutions kept, the first found first
+		 */
+		List<Grid> getSolutions()
+		{
+			return solutions;
+		}
+		
+		/**
+		 * counts solutions up to the limit, keeping the first few, and stops the search at the deadline. the
+		 * clock is only read every so many steps, as isDone is called at every step
+		 */
+		private class Collector implements SolutionCollector
+		{
+			private int steps;	//the number of times isDone has been called
+			
+			public boolean add(Grid solution)
+			{
+				if(count++ < maxSolutions) solutions.add(solution);
+				return count < limit;
+			}
+			
+			public boolean isDone()
+			{
+				if(count >= limit) return true;
+				if((++steps & 0xFF) == 0 && System.nanoTime() - deadline > 0) timedOut = true;
+				return timedOut;
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,569 @@
+package sudoku;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Headless program to solve puzzles in bulk. Reads one puzzle per line from a file or standard input
+ * and writes one result per line, in the same order, to a file or standard output.
+ *
+ * Each puzzle is a line with one character per square, read left to right, top to bottom, so 81
+ * characters for the default 9x9 grid. 1 to 9 are clues and 0 or . are empty squares. Larger grids
+ * continue with letters, A for 10 up to Z for 35 then a for 36 onwards, so a 16x16 grid uses 1-9 and A-G.
+ * Blank lines and lines starting with # are skipped.
+ *
+ * Each result line is the first solution (or the puzzle itself if there isn't one), the number of
+ * solutions found and a status, separated by commas. Counting stops at the limit, so with the default
+ * limit of 2 a count of 2 means the puzzle has more than one solution.
+ *
+ * With --rate, each puzzle with a unique solution also gets the difficulty score and hardest technique
+ * from DifficultyRater, such as 4.2,xy-wing, on the end of its line.
+ *
+ * Grids of 25x25 and larger are solved with the SAT engine rather than by backtracking, whose run time on
+ * them is heavy tailed.
+ *
+ * The input is cut into chunks of whole lines which are solved in parallel by a work stealing pool,
+ * each thread with its own solver. Results are written in input order, and only a fixed number of
+ * chunks are read ahead of the output so memory use stays bounded however large the input is.
+ *
+ * Never touches AWT, so it can be run on a headless server:
+ * 	java sudoku.SudokuBatch [--subgrid WxH] [--limit N] [--rate] [--threads N] [--window N] [input file|-] [output file|-]
+ *
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public class SudokuBatch
+{
+	/*
+	 * Grid Properties, the shape of the sub-grids unless --subgrid is given
+	 */
+	private final static int DEFAULT_SUBGRID_WIDTH = 3;		//width of the sub-grids
+	private final static int DEFAULT_SUBGRID_HEIGHT = 3;	//height of the sub-grids
+
+	/*
+	 * the characters used for the values 1 upwards, which also limits the largest grid
+	 */
+	final static String SYMBOLS = "123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+	/*
+	 * the number of solutions counted per puzzle unless --limit is given. 2 is enough to tell
+	 * whether a puzzle's solution is unique
+	 */
+	private final static int DEFAULT_LIMIT = 2;
+
+	/*
+	 * size of the buffers used for reading and writing, and of the chunks of input handed to each task.
+	 * a chunk holds several hundred puzzles so the cost of scheduling it is small next to solving it
+	 */
+	private final static int BUFFER_SIZE = 1 << 16;
+	private final static int CHUNK_SIZE = 1 << 15;
+
+	/*
+	 * the number of chunks allowed in flight per thread unless --window is given
+	 */
+	private final static int DEFAULT_WINDOW_PER_THREAD = 4;
+
+	/*
+	 * the possible statuses of a puzzle, as written at the end of a result line
+	 */
+	private final static byte[] UNIQUE = status("unique");			//exactly one solution
+	private final static byte[] SOLVED = status("solved");			//at least one solution, uniqueness not checked since the limit is 1
+	private final static byte[] MULTIPLE = status("multiple");		//more than one solution
+	private final static byte[] UNSOLVABLE = status("unsolvable");	//no solutions
+	private final static byte[] INVALID = status("invalid");		//malformed line, or a value repeated in a row, column or sub-grid
+
+	/*
+	 * the ratings written after the status with --rate, for each technique then for a puzzle with no empty squares
+	 */
+	private final static byte[][] RATINGS = ratings();
+	private final static byte[] NOTHING_NEEDED = ",0.0,none".getBytes(StandardCharsets.US_ASCII);
+
+	/*
+	 * settings and progress of the run
+	 */
+	private final ForkJoinPool pool;			//the threads puzzles are solved on
+	private final ThreadLocal<Worker> workers;	//the solving state of each thread
+	private final int window;					//the most chunks read ahead of the output
+	private long puzzleCount = 0;				//puzzles written so far
+
+	/**
+	 * The main method. Reads the arguments and solves every puzzle in the input
+	 *
+	 * @param args	the command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		int subgridWidth = DEFAULT_SUBGRID_WIDTH;
+		int subgridHeight = DEFAULT_SUBGRID_HEIGHT;
+		int limit = DEFAULT_LIMIT;
+		boolean rate = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int window = 0;	//0 until given, then defaults to a multiple of the threads
+		String inputPath = "-";
+		String outputPath = "-";
+		int positional = 0;	//number of file arguments read so far
+
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("--subgrid") && i + 1 < args.length)
+			{
+				//the width and height of the sub-grids, such as 4x4 for a 16x16 grid
+				String[] shape = args[++i].split("x");
+				if(shape.length != 2) usage("--subgrid must be a width and height such as 4x4");
+				subgridWidth = positiveInteger(shape[0], "--subgrid");
+				subgridHeight = positiveInteger(shape[1], "--subgrid");
+				if(subgridWidth * subgridHeight > SYMBOLS.length()) usage("--subgrid makes a grid larger than " + SYMBOLS.length() + "x" + SYMBOLS.length());
+			}
+			else if(args[i].equals("--limit") && i + 1 < args.length)
+			{
+				limit = positiveInteger(args[++i], "--limit");
+			}
+			else if(args[i].equals("--rate"))
+			{
+				rate = true;
+			}
+			else if(args[i].equals("--threads") && i + 1 < args.length)
+			{
+				threads = positiveInteger(args[++i], "--threads");
+			}
+			else if(args[i].equals("--window") && i + 1 < args.length)
+			{
+				window = positiveInteger(args[++i], "--window");
+			}
+			else if(args[i].startsWith("--") || positional == 2)
+			{
+				usage("Unexpected argument " + args[i]);
+			}
+			else if(positional++ == 0)
+			{
+				inputPath = args[i];
+			}
+			else
+			{
+				outputPath = args[i];
+			}
+		}
+		if(window == 0) window = threads * DEFAULT_WINDOW_PER_THREAD;
+
+		//only puzzles known to have one solution are rated
+		if(rate && limit == 1) usage("--rate needs a --limit of at least 2");
+
+		SudokuBatch batch = new SudokuBatch(subgridWidth, subgridHeight, limit, rate, threads, window);
+		long start = System.nanoTime();
+
+		try(InputStream input = inputPath.equals("-") ? System.in : new FileInputStream(inputPath);
+			OutputStream output = new BufferedOutputStream(outputPath.equals("-") ? System.out : new FileOutputStream(outputPath), BUFFER_SIZE))
+		{
+			batch.run(input, output);
+		}
+		catch(IOException e)
+		{
+			System.err.println("SudokuBatch: " + e.getMessage());
+			System.exit(1);
+		}
+		finally
+		{
+			batch.pool.shutdownNow();
+		}
+
+		//report throughput on standard error so it doesn't mix with the results
+		long elapsed = Math.max(1, System.nanoTime() - start);
+		System.err.printf("%d puzzles in %.1f ms (%.0f puzzles/s) on %d threads%n", batch.puzzleCount, elapsed / 1e6, batch.puzzleCount * 1e9 / elapsed, threads);
+		if(SearchMetrics.isEnabled()) System.err.println(SearchMetrics.summary());
+	}
+
+	/**
+	 * reads the value of a numeric option, exiting if it isn't a positive integer
+	 *
+	 * @param value		the text of the value
+	 * @param option	the name of the option, for the error message
+	 *
+	 * @return			the value
+	 */
+	private static int positiveInteger(String value, String option)
+	{
+		try
+		{
+			int number = Integer.parseInt(value);
+			if(number > 0) return number;
+		}
+		catch(NumberFormatException e)
+		{
+			//fall through to the usage message
+		}
+		usage(option + " must be a positive integer");
+		return 0;
+	}
+
+	/**
+	 * prints how to use the program and exits
+	 *
+	 * @param message	the reason the arguments were rejected
+	 */
+	private static void usage(String message)
+	{
+		System.err.println(message);
+		System.err.println("Usage: java sudoku.SudokuBatch [--subgrid WxH] [--limit N] [--rate] [--threads N] [--window N] [input file|-] [output file|-]");
+		System.exit(2);
+	}
+
+	/**
+	 * Constructor for a new batch solver
+	 *
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * @param limit			the most solutions to count per puzzle
+	 * @param rate			true to rate the difficulty of each puzzle with a unique solution
+	 * @param threads		the number of threads to solve on
+	 * @param window		the most chunks of input to read ahead of the output
+	 */
+	SudokuBatch(int subgridWidth, int subgridHeight, int limit, boolean rate, int threads, int window)
+	{
+		this.pool = new ForkJoinPool(threads);
+		this.workers = ThreadLocal.withInitial(() -> new Worker(subgridWidth, subgridHeight, limit, rate));
+		this.window = window;
+	}
+
+	/**
+	 * reads puzzles from the input until it runs out, writing a result line for each. lines are copied
+	 * straight from the read buffer into chunks, so no strings are made for the puzzles
+	 *
+	 * @param input		where the puzzles are read from
+	 * @param output	where the results are written to
+	 *
+	 * @throws IOException	if reading or writing fails
+	 */
+	void run(InputStream input, OutputStream output) throws IOException
+	{
+		ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();	//chunks in flight, oldest first
+		byte[] buffer = new byte[BUFFER_SIZE];
+		byte[] chunk = new byte[CHUNK_SIZE];
+		int chunkLength = 0;	//number of bytes in the chunk
+		int lineStart = 0;		//where the unfinished line in the chunk starts
+		int read;
+
+		while((read = input.read(buffer)) != -1)
+		{
+			for(int i = 0; i < read; i++)
+			{
+				//if the chunk is full, hand over the lines that are finished
+				if(chunkLength == chunk.length)
+				{
+					if(lineStart == 0)
+					{
+						//a single line fills the whole chunk, make room for it
+						chunk = Arrays.copyOf(chunk, chunk.length * 2);
+					}
+					else
+					{
+						submit(new Chunk(chunk, lineStart), pending, output);
+
+						//carry the unfinished line over to a new chunk
+						byte[] next = new byte[CHUNK_SIZE];
+						chunkLength -= lineStart;
+						System.arraycopy(chunk, lineStart, next, 0, chunkLength);
+						chunk = next;
+						lineStart = 0;
+					}
+				}
+
+				chunk[chunkLength++] = buffer[i];
+				if(buffer[i] == '\n') lineStart = chunkLength;
+			}
+		}
+
+		//the last line may not end with a new line
+		if(chunkLength > 0) submit(new Chunk(chunk, chunkLength), pending, output);
+
+		//write out everything still in flight
+		while(!pending.isEmpty()) write(pending.poll(), output);
+		output.flush();
+	}
+
+	/**
+	 * starts solving a chunk, first making room by writing out the oldest chunk if the window is full
+	 *
+	 * @param chunk		the chunk to solve
+	 * @param pending	the chunks in flight, oldest first
+	 * @param output	where the results are written to
+	 *
+	 * @throws IOException	if writing fails
+	 */
+	private void submit(Chunk chunk, ArrayDeque<Future<Chunk>> pending, OutputStream output) throws IOException
+	{
+		if(pending.size() >= window) write(pending.poll(), output);
+		pending.add(pool.submit(chunk));
+	}
+
+	/**
+	 * waits for a chunk to be solved and writes its results
+	 *
+	 * @param future	the chunk being solved
+	 * @param output	where the results are written to
+	 *
+	 * @throws IOException	if writing fails or solving is interrupted
+	 */
+	private void write(Future<Chunk> future, OutputStream output) throws IOException
+	{
+		try
+		{
+			Chunk chunk = future.get();
+			chunk.results.writeTo(output);
+			puzzleCount += chunk.puzzleCount;
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while solving");
+		}
+		catch(ExecutionException e)
+		{
+			if(e.getCause() instanceof IOException) throw (IOException)e.getCause();
+			throw new IllegalStateException("Solving failed", e.getCause());
+		}
+	}
+
+	/**
+	 * builds the bytes written for a status
+	 *
+	 * @param name	the name of the status
+	 *
+	 * @return		the name after a comma
+	 */
+	private static byte[] status(String name)
+	{
+		return ("," + name).getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * builds the bytes written for the rating of a puzzle needing each technique
+	 *
+	 * @return	the score and name of each technique after commas, indexed by ordinal
+	 */
+	private static byte[][] ratings()
+	{
+		DifficultyRater.Technique[] techniques = DifficultyRater.Technique.values();
+		byte[][] ratings = new byte[techniques.length][];
+		for(DifficultyRater.Technique technique : techniques)
+		{
+			ratings[technique.ordinal()] = ("," + technique.getScore() + "," + technique.getName()).getBytes(StandardCharsets.US_ASCII);
+		}
+		return ratings;
+	}
+
+	/*
+	 * A run of whole input lines, solved as a single task
+	 */
+	private class Chunk implements Callable<Chunk>
+	{
+		private final byte[] lines;				//the input lines
+		private final int length;				//the number of bytes of lines used
+		private ByteArrayOutputStream results;	//a result line for each puzzle, filled in by call()
+		private int puzzleCount;				//the number of puzzles in the chunk, filled in by call()
+
+		/**
+		 * Constructor for a new chunk
+		 *
+		 * @param lines		the input lines
+		 * @param length	the number of bytes of lines used
+		 */
+		Chunk(byte[] lines, int length)
+		{
+			this.lines = lines;
+			this.length = length;
+		}
+
+		/**
+		 * solves each puzzle in the chunk using the current thread's worker
+		 *
+		 * @return	this chunk, with its results filled in
+		 *
+		 * @throws IOException	never in practice, results are written to memory
+		 */
+		public Chunk call() throws IOException
+		{
+			Worker worker = workers.get();
+			results = new ByteArrayOutputStream(length + length / 4);
+
+			int start = 0;
+			for(int i = 0; i <= length; i++)
+			{
+				if(i == length || lines[i] == '\n')
+				{
+					if(worker.processLine(lines, start, i, results)) puzzleCount++;
+					start = i + 1;
+				}
+			}
+			return this;
+		}
+	}
+
+	/*
+	 * The solving state of one thread, reused for every puzzle it solves
+	 */
+	private static class Worker
+	{
+		private final int gridSize;		//number of rows, columns and values in the grid
+		private final int squareCount;	//number of characters in a puzzle line
+		private final SudokuEngine solver;	//backtracking below AutomaticEngine.SAT_GRID_SIZE, SAT from there
+		private final Grid grid;
+		private final Grid solution;	//the first solution of the current puzzle
+		private final byte[] result;
+		private final byte[] digits = new byte[12];	//room for a comma and any int
+		private final int limit;
+		private final boolean rate;		//whether puzzles with a unique solution are rated
+
+		/**
+		 * Constructor for a new worker
+		 *
+		 * @param subgridWidth	the width of the sub-grids
+		 * @param subgridHeight	the height of the sub-grids
+		 * @param limit			the most solutions to count per puzzle
+		 * @param rate			true to rate the difficulty of each puzzle with a unique solution
+		 */
+		Worker(int subgridWidth, int subgridHeight, int limit, boolean rate)
+		{
+			this.gridSize = subgridWidth * subgridHeight;
+			this.squareCount = gridSize * gridSize;
+			this.solver = gridSize >= AutomaticEngine.SAT_GRID_SIZE ? SudokuEngine.sat() : SudokuEngine.backtracking();
+			this.grid = new Grid(subgridWidth, subgridHeight);
+			this.solution = new Grid(subgridWidth, subgridHeight);
+			this.result = new byte[squareCount];
+			this.limit = limit;
+			this.rate = rate;
+		}
+
+		/**
+		 * solves the puzzle on one line and writes its result
+		 *
+		 * @param line		the characters of the input
+		 * @param start		the index of the first character of the line
+		 * @param end		the index after the last character of the line
+		 * @param output	where the result is written to
+		 *
+		 * @return			false if the line was blank or a comment
+		 *
+		 * @throws IOException	if writing fails
+		 */
+		boolean processLine(byte[] line, int start, int end, OutputStream output) throws IOException
+		{
+			//ignore surrounding whitespace, including the \r of windows line endings
+			while(start < end && line[start] <= ' ') start++;
+			while(end > start && line[end - 1] <= ' ') end--;
+
+			//skip blank lines and comments
+			if(start == end || line[start] == '#') return false;
+
+			if(!parse(line, start, end))
+			{
+				output.write(line, start, end - start);
+				writeStatus(output, 0, INVALID, null);
+				return true;
+			}
+
+			//count without building a grid per solution, only the first is copied out
+			int count = (int)solver.count(grid, limit, solution);
+
+			//a grid with no solutions may have broken the rules to begin with
+			if(count == 0 && !solver.isValid(grid))
+			{
+				output.write(line, start, end - start);
+				writeStatus(output, 0, INVALID, null);
+				return true;
+			}
+
+			//write the first solution, or the puzzle if there isn't one
+			Grid shown = count > 0 ? solution : grid;
+			for(int square = 0; square < squareCount; square++)
+			{
+				int value = shown.get(square);
+				result[square] = (byte)(value == 0 ? '0' : SYMBOLS.charAt(value - 1));
+			}
+			output.write(result);
+
+			if(count == 0) writeStatus(output, count, UNSOLVABLE, null);
+			else if(count > 1) writeStatus(output, count, MULTIPLE, null);
+			else if(limit == 1) writeStatus(output, count, SOLVED, null);
+			else writeStatus(output, count, UNIQUE, rate ? rating() : null);
+			return true;
+		}
+
+		/**
+		 * reads a puzzle line into grid
+		 *
+		 * @param line		the characters of the input
+		 * @param start		the index of the first character of the puzzle
+		 * @param end		the index after the last character of the puzzle
+		 *
+		 * @return			false if the line is the wrong length or contains an unexpected character
+		 */
+		private boolean parse(byte[] line, int start, int end)
+		{
+			if(end - start != squareCount) return false;
+
+			for(int square = 0; square < squareCount; square++)
+			{
+				int value = PuzzleLoader.valueOf(line[start + square]);
+
+				//not a symbol, or a symbol past the end of the grid's values
+				if(value < 0 || value > gridSize) return false;
+
+				grid.set(square, value);
+			}
+
+			return true;
+		}
+
+		/**
+		 * rates the puzzle in grid, which has a unique solution
+		 *
+		 * @return	the bytes written for its rating
+		 */
+		private byte[] rating()
+		{
+			DifficultyRater.Technique hardest = DifficultyRater.rate(grid).getHardest();
+			return hardest == null ? NOTHING_NEEDED : RATINGS[hardest.ordinal()];
+		}
+
+		/**
+		 * writes the count, status and rating which finish a result line
+		 *
+		 * @param output	where the result is written to
+		 * @param count		the number of solutions found
+		 * @param status	the status of the puzzle
+		 * @param rating	the rating of the puzzle, or null if it isn't rated
+		 *
+		 * @throws IOException	if writing fails
+		 */
+		private void writeStatus(OutputStream output, int count, byte[] status, byte[] rating) throws IOException
+		{
+			//write the digits of the count backwards from the end of the buffer
+			int start = digits.length;
+			do
+			{
+				digits[--start] = (byte)('0' + count % 10);
+				count /= 10;
+			}
+			while(count > 0);
+			digits[--start] = ',';
+
+			output.write(digits, start, digits.length - start);
+			output.write(status);
+			if(rating != null) output.write(rating);
+			output.write('\n');
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The public solving API, which any front end or batch job can use without the Swing frame.
+ * 
+ * An engine solves grids of any shape up to 63x63, and is thread safe, so one engine can be shared by
+ * any number of threads and asked to solve any number of grids at once. The grids given to an engine are
+ * never kept or changed, and every solution returned is a new grid. Nothing here uses AWT, so it runs on a
+ * headless server.
+ * 
+ * For fetching solutions one at a time with no limit, see SolutionIterator
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public interface SudokuEngine
+{
+	/**
+	 * @return	an engine using backtracking search with constraint propagation, the fastest engine for a single thread on grids up to
+	 * 			16x16
+	 */
+	static SudokuEngine backtracking()
+	{
+		return new BacktrackingEngine();
+	}
+	
+	/**
+	 * @return	an engine using the backtracking engine for grids up to 16x16 and the SAT engine for 25x25 and
+	 * 			larger, where backtracking can take minutes on grids SAT solves in under a second
+	 */
+	static SudokuEngine automatic()
+	{
+		return new AutomaticEngine();
+	}
+	
+	/**
+	 * @return	an engine using Knuth's Algorithm X with Dancing Links
+	 */
+	static SudokuEngine dancingLinks()
+	{
+		return new DancingLinksEngine();
+	}
+	
+	/**
+	 * @return	an engine splitting each search over the threads of the common fork/join pool
+	 */
+	static SudokuEngine parallel()
+	{
+		return parallel(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * @param pool	the threads to solve on
+	 * 
+	 * @return		an engine splitting each search over the threads of the given pool
+	 */
+	static SudokuEngine parallel(ForkJoinPool pool)
+	{
+		return new ParallelEngine(pool);
+	}
+	
+	/**
+	 * @return	an engine encoding the grid as a boolean formula for a clause learning SAT solver, the fastest
+	 * 			engine for large and very hard grids
+	 */
+	static SudokuEngine sat()
+	{
+		return new SatEngine(new int[0][]);
+	}
+	
+	/**
+	 * an engine for variants which add regions to the rows, columns and sub-grids, such as the diagonals of
+	 * X-sudoku or the windows of windoku. only this engine knows about the regions, so its solutions and
+	 * isValid() can differ from the other engines for the same grid
+	 * 
+	 * @param regions	groups of different grid squares, each numbered row * size + column, whose values must all
+	 * 					be different. a group of as many squares as the grid has rows must hold every value
+	 * 
+	 * @return			an engine solving with a clause learning SAT solver
+	 */
+	static SudokuEngine sat(int[]... regions)
+	{
+		return new SatEngine(regions);
+	}
+	
+	/**
+	 * solves the given grid, passing each solution found to a collector until it asks for the search to stop.
+	 * isDone is checked at every step, so a collector can cancel the search from another thread
+	 * 
+	 * @param puzzle	the grid to be solved, 0 for an empty grid square
+	 * @param collector	receives the solutions, from several threads at once for the parallel engine
+	 * 
+	 * @throws IllegalArgumentException	if the engine can't solve grids of the puzzle's shape
+	 */
+	void solve(Grid puzzle, SolutionCollector collector);
+	
+	/**
+	 * solves the given grid, finding up to a set number of solutions
+	 * 
+	 * @param puzzle		the grid to be solved, 0 for an empty grid square
+	 * @param maxSolutions	the most solutions to find
+	 * 
+	 * @return				the solutions found, empty if the grid is invalid or unsolvable
+	 */
+	default List<Grid> solve(Grid puzzle, int maxSolutions)
+	{
+		List<Grid> solutions = new ArrayList<Grid>();
+		if(maxSolutions > 0) solve(puzzle, new ListCollector(solutions, maxSolutions));
+		return solutions;
+	}
+	
+	/**
+	 * solves the given grid
+	 * 
+	 * @param puzzle	the grid to be solved, 0 for an empty grid square
+	 * 
+	 * @return			the first solution found, or null if the grid is invalid or unsolvable
+	 */
+	default Grid solve(Grid puzzle)
+	{
+		List<Grid> solutions = solve(puzzle, 1);
+		return solutions.isEmpty() ? null : solutions.get(0);
+	}
+	
+	/**
+	 * counts the solutions of the given grid, stopping as soon as a set number have been found
+	 * 
+	 * @param puzzle		the grid to be solved, 0 for an empty grid square
+	 * @param maxSolutions	the number of solutions to stop counting at
+	 * 
+	 * @return				the number of solutions found, at most maxSolutions. 0 if the grid is invalid or unsolvable
+	 */
+	default long count(Grid puzzle, long maxSolutions)
+	{
+		return count(puzzle, maxSolutions, null);
+	}
+	
+	/**
+	 * counts the solutions of the given grid, stopping as soon as a set number have been found, and copies
+	 * the first solution found into a grid supplied by the caller
+	 * 
+	 * @param puzzle		the grid to be solved, 0 for an empty grid square
+	 * @param maxSolutions	the number of solutions to stop counting at
+	 * @param firstSolution	the grid the first solution is copied into, may be null. left unchanged if there are no solutions
+	 * 
+	 * @return				the number of solutions found, at most maxSolutions. 0 if the grid is invalid or unsolvable
+	 */
+	long count(Grid puzzle, long maxSolutions, Grid firstSolution);
+	
+	/**
+	 * checks whether the given grid has exactly one solution, the search stops as soon as a second is found
+	 * 
+	 * @param puzzle	the grid to be checked
+	 * 
+	 * @return			true if the grid has one solution, false if it has none, several, or is invalid
+	 */
+	default boolean isUnique(Grid puzzle)
+	{
+		return count(puzzle, 2) == 1;
+	}
+	
+	/**
+	 * checks that no value in the grid is out of range or repeated in a row, column or sub-grid. this doesn't
+	 * search, so a valid grid may still be unsolvable
+	 * 
+	 * @param puzzle	the grid to be checked
+	 * 
+	 * @return			the validity of the grid
+	 */
+	default boolean isValid(Grid puzzle)
+	{
+		return puzzle.isValid();
+	}
+}
\ No newline at end of file
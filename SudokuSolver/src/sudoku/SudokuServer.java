@@ -0,0 +1,585 @@
+package sudoku;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Headless program serving the solver over HTTP, using the server built into the JDK.
+ * 
+ * GET or POST /solve solves one or many puzzles. Puzzles are lines of the request body, in the format of
+ * SudokuBatch, or puzzle parameters of the query string. Other parameters, all optional:
+ * 	subgrid=WxH		the shape of the sub-grids, 3x3 if not given
+ * 	limit=N			the number of solutions to stop counting at, 2 if not given, enough to tell uniqueness
+ * 	solutions=N		the number of solutions to return for each puzzle, 1 if not given
+ * 	deadline=MS		how long the whole request may take, the server's deadline if not given
+ * 	format=text		one line per puzzle as SudokuBatch writes them, instead of JSON
+ * The limit, solutions and deadline are capped by the server's settings, as is the number of puzzles.
+ * 
+ * Each JSON result gives the puzzle's status, whether it is valid, the number of solutions found, whether the
+ * deadline cut counting short, and the solutions themselves. The statuses are those of SudokuBatch, and
+ * timeout for a puzzle the deadline passed on before two solutions were found, so a puzzle known to have
+ * several is still multiple. A count cut short is only as far as it got.
+ * 
+ * GET /stats gives the number of requests, puzzles, batches and timeouts so far, the cache's statistics, and
+ * the search metrics if they are enabled, see SearchMetrics.
+ * 
+ * Requests are handled on a fixed pool of threads, which hand each puzzle to a SolveQueue and wait. The
+ * queue's threads pick up puzzles in batches as they pile up, so many small requests at once are solved
+ * together, while a request with many puzzles is solved on all the threads at once.
+ * 
+ * Never touches AWT, so it can be run on a headless server:
+ * 	java sudoku.SudokuServer [--port N] [--threads N] [--handlers N] [--batch N] [--deadline MS]
+ * 		[--max-limit N] [--max-solutions N] [--max-puzzles N] [--cache N] [--cache-memory MB]
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public class SudokuServer
+{
+	/*
+	 * settings used unless given on the command line
+	 */
+	private final static int DEFAULT_PORT = 8080;
+	private final static int DEFAULT_HANDLERS = 64;			//threads handling requests, most of their time spent waiting
+	private final static int DEFAULT_BATCH = 64;			//the most puzzles a solving thread takes at once
+	private final static int DEFAULT_DEADLINE = 10000;		//milliseconds a request may take
+	private final static int DEFAULT_MAX_LIMIT = 1000000;	//the most solutions a request can ask to count
+	private final static int DEFAULT_MAX_SOLUTIONS = 100;	//the most solutions a request can ask to see
+	private final static int DEFAULT_MAX_PUZZLES = 10000;	//the most puzzles in one request
+	private final static int DEFAULT_CACHE_MEMORY = 64;		//megabytes the cache may take, if there is one
+	
+	/*
+	 * defaults of a request's parameters
+	 */
+	private final static int DEFAULT_LIMIT = 2;
+	private final static int DEFAULT_SOLUTIONS = 1;
+	
+	private final static int BACKLOG = 1024;	//connections waiting to be accepted
+	
+	/*
+	 * the statuses of a puzzle besides those of SudokuBatch, and the HTTP statuses used
+	 */
+	private final static String TIMEOUT = "timeout";
+	private final static int OK = 200;
+	private final static int BAD_REQUEST = 400;
+	private final static int NOT_FOUND = 404;
+	private final static int METHOD_NOT_ALLOWED = 405;
+	private final static int TOO_LARGE = 413;
+	
+	/*
+	 * limits on requests
+	 */
+	private final long maxDeadline;		//nanoseconds
+	private final int maxLimit;
+	private final int maxSolutions;
+	private final int maxPuzzles;
+	
+	private final SolutionCache cache;	//null if there isn't one
+	private final SolveQueue queue;
+	private final ExecutorService handlers;
+	private final HttpServer server;
+	
+	/*
+	 * Statistics
+	 */
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder puzzles = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+	
+	/**
+	 * The main method. Reads the arguments and serves until the process is stopped
+	 * 
+	 * @param args	the command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		int port = DEFAULT_PORT;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int handlers = DEFAULT_HANDLERS;
+		int batch = DEFAULT_BATCH;
+		int deadline = DEFAULT_DEADLINE;
+		int maxLimit = DEFAULT_MAX_LIMIT;
+		int maxSolutions = DEFAULT_MAX_SOLUTIONS;
+		int maxPuzzles = DEFAULT_MAX_PUZZLES;
+		int cacheEntries = 0;	//0 for no cache
+		int cacheMemory = DEFAULT_CACHE_MEMORY;
+		
+		for(int i = 0; i < args.length; i++)
+		{
+			if(i + 1 == args.length || !args[i].startsWith("--")) usage("Unexpected argument " + args[i]);
+			
+			String option = args[i];
+			int value = positiveInteger(args[++i], option);
+			if(option.equals("--port")) port = value;
+			else if(option.equals("--threads")) threads = value;
+			else if(option.equals("--handlers")) handlers = value;
+			else if(option.equals("--batch")) batch = value;
+			else if(option.equals("--deadline")) deadline = value;
+			else if(option.equals("--max-limit")) maxLimit = value;
+			else if(option.equals("--max-solutions")) maxSolutions = value;
+			else if(option.equals("--max-puzzles")) maxPuzzles = value;
+			else if(option.equals("--cache")) cacheEntries = value;
+			else if(option.equals("--cache-memory")) cacheMemory = value;
+			else usage("Unexpected argument " + option);
+		}
+		
+		try
+		{
+			SudokuServer server = new SudokuServer(port, threads, handlers, batch, deadline, maxLimit, maxSolutions, maxPuzzles, cacheEntries, (long)cacheMemory << 20);
+			Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+			System.err.println("Serving on port " + port + " with " + threads + " solving threads");
+		}
+		catch(IOException e)
+		{
+			System.err.println("SudokuServer: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * reads the value of a numeric option, exiting if it isn't a positive integer
+	 * 
+	 * @param value		the text of the value
+	 * @param option	the name of the option, for the error message
+	 * 
+	 * @return			the value
+	 */
+	private static int positiveInteger(String value, String option)
+	{
+		try
+		{
+			int number = Integer.parseInt(value);
+			if(number > 0) return number;
+		}
+		catch(NumberFormatException e)
+		{
+			//fall through to the usage message
+		}
+		usage(option + " must be a positive integer");
+		return 0;
+	}
+	
+	/**
+	 * prints how to use the program and exits
+	 * 
+	 * @param message	the reason the arguments were rejected
+	 */
+	private static void usage(String message)
+	{
+		System.err.println(message);
+		System.err.println("Usage: java sudoku.SudokuServer [--port N] [--threads N] [--handlers N] [--batch N] [--deadline MS]");
+		System.err.println("	[--max-limit N] [--max-solutions N] [--max-puzzles N] [--cache N] [--cache-memory MB]");
+		System.exit(2);
+	}
+	
+	/**
+	 * Constructor for a new server, which starts serving straight away
+	 * 
+	 * @param port			the port to listen on
+	 * @param threads		the number of threads to solve on
+	 * @param handlerCount	the number of threads to handle requests on
+	 * @param batch			the most puzzles a solving thread takes at once
+	 * @param deadline		the most milliseconds a request may take
+	 * @param maxLimit		the most solutions a request can ask to count
+	 * @param maxSolutions	the most solutions a request can ask to see
+	 * @param maxPuzzles	the most puzzles in one request
+	 * @param cacheEntries	the most puzzles to cache, 0 for no cache
+	 * @param cacheBytes	the most memory the cache may take
+	 * 
+	 * @throws IOException	if the port can't be listened on
+	 */
+	SudokuServer(int port, int threads, int handlerCount, int batch, int deadline, int maxLimit, int maxSolutions, int maxPuzzles, int cacheEntries, long cacheBytes) throws IOException
+	{
+		this.maxDeadline = TimeUnit.MILLISECONDS.toNanos(deadline);
+		this.maxLimit = maxLimit;
+		this.maxSolutions = maxSolutions;
+		this.maxPuzzles = maxPuzzles;
+		
+		SudokuEngine engine = SudokuEngine.automatic();
+		this.cache = cacheEntries > 0 ? new SolutionCache(engine, cacheEntries, cacheBytes) : null;
+		this.queue = new SolveQueue(cache != null ? cache : engine, threads, batch);
+		
+		//platform threads, as virtual threads would need a newer Java than the build targets
+		this.handlers = Executors.newFixedThreadPool(handlerCount);
+		this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+		server.createContext("/solve", this::solve);
+		server.createContext("/stats", this::stats);
+		server.setExecutor(handlers);
+		server.start();
+	}
+	
+	/**
+	 * stops serving, giving requests being handled a second to finish
+	 */
+	void stop()
+	{
+		server.stop(1);
+		handlers.shutdownNow();
+		queue.close();
+	}
+	
+	/**
+	 * handles a request to solve puzzles
+	 * 
+	 * @param exchange	the request and its response
+	 * 
+	 * @throws IOException	if the response can't be sent
+	 */
+	private void solve(HttpExchange exchange) throws IOException
+	{
+		long start = System.nanoTime();
+		try
+		{
+			String method = exchange.getRequestMethod();
+			if(!method.equals("GET") && !method.equals("POST"))
+			{
+				send(exchange, METHOD_NOT_ALLOWED, "Use GET or POST\n");
+				return;
+			}
+			if(!exchange.getRequestURI().getPath().equals("/solve"))
+			{
+				send(exchange, NOT_FOUND, "Not found\n");
+				return;
+			}
+			
+			//the parameters, each checked against the server's limits
+			Map<String, List<String>> parameters = parameters(exchange.getRequestURI().getRawQuery());
+			String[] shape = parameter(parameters, "subgrid", "3x3").split("x");
+			if(shape.length != 2) throw new IllegalArgumentException("subgrid must be a width and height such as 4x4");
+			int subgridWidth = number(shape[0], "subgrid", SudokuBatch.SYMBOLS.length());
+			int subgridHeight = number(shape[1], "subgrid", SudokuBatch.SYMBOLS.length() / subgridWidth);
+			int solutions = number(parameter(parameters, "solutions", String.valueOf(DEFAULT_SOLUTIONS)), "solutions", maxSolutions);
+			int limit = Math.max(solutions, number(parameter(parameters, "limit", String.valueOf(DEFAULT_LIMIT)), "limit", maxLimit));
+			long deadline = TimeUnit.MILLISECONDS.toNanos(number(parameter(parameters, "deadline", String.valueOf(Integer.MAX_VALUE)), "deadline", Integer.MAX_VALUE));
+			deadline = start + Math.min(deadline, maxDeadline);
+			boolean text = parameter(parameters, "format", "json").equals("text");
+			
+			//the puzzles, from the query string then the body
+			List<String> lines = new ArrayList<String>(parameters.getOrDefault("puzzle", new ArrayList<String>()));
+			int squareCount = subgridWidth * subgridHeight * subgridWidth * subgridHeight;
+			if(!readLines(exchange.getRequestBody(), (long)(maxPuzzles - lines.size() + 1) * (squareCount + 2), lines) || lines.size() > maxPuzzles)
+			{
+				send(exchange, TOO_LARGE, "At most " + maxPuzzles + " puzzles can be sent at once\n");
+				return;
+			}
+			
+			//hand every puzzle over, then wait for them all or the deadline
+			CountDownLatch finished = new CountDownLatch(lines.size());
+			List<SolveQueue.Job> jobs = new ArrayList<SolveQueue.Job>(lines.size());
+			for(String line : lines)
+			{
+				SolveQueue.Job job = new SolveQueue.Job(parse(line, subgridWidth, subgridHeight), limit, solutions, deadline, finished);
+				jobs.add(job);
+				queue.submit(job);
+			}
+			finished.await(Math.max(0, deadline - System.nanoTime()) + TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.NANOSECONDS);
+			
+			requests.increment();
+			puzzles.add(jobs.size());
+			send(exchange, OK, text ? formatText(lines, jobs, limit) : formatJson(jobs, limit));
+		}
+		catch(IllegalArgumentException e)
+		{
+			send(exchange, BAD_REQUEST, e.getMessage() + "\n");
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			exchange.close();
+		}
+	}
+	
+	/**
+	 * handles a request for the server's statistics
+	 * 
+	 * @param exchange	the request and its response
+	 * 
+	 * @throws IOException	if the response can't be sent
+	 */
+	private void stats(HttpExchange exchange) throws IOException
+	{
+		StringBuilder json = new StringBuilder();
+		json.append("{\"requests\":").append(requests.sum());
+		json.append(",\"puzzles\":").append(puzzles.sum());
+		json.append(",\"batches\":").append(queue.getBatches());
+		json.append(",\"timeouts\":").append(timeouts.sum());
+		json.append(",\"queued\":").append(queue.size());
+		if(cache != null)
+		{
+			json.append(",\"cache\":{\"hits\":").append(cache.getHits());
+			json.append(",\"misses\":").append(cache.getMisses());
+			json.append(",\"evictions\":").append(cache.getEvictions());
+			json.append(",\"bypasses\":").append(cache.getBypasses());
+			json.append(",\"entries\":").append(cache.size());
+			json.append(",\"bytes\":").append(cache.getBytes()).append('}');
+		}
+		if(SearchMetrics.isEnabled())
+		{
+			json.append(",\"search\":{\"solves\":").append(SearchMetrics.getSolves());
+			json.append(",\"nodes\":").append(SearchMetrics.getNodes());
+			json.append(",\"backtracks\":").append(SearchMetrics.getBacktracks());
+			json.append(",\"candidateChecks\":").append(SearchMetrics.getCandidateChecks());
+			json.append(",\"maxDepth\":").append(SearchMetrics.getMaxDepth());
+			json.append(",\"latencyNanos\":").append(histogram(SearchMetrics.getLatency()));
+			json.append(",\"nodesPerSolve\":").append(histogram(SearchMetrics.getNodeCounts())).append('}');
+		}
+		json.append("}\n");
+		send(exchange, OK, json.toString());
+	}
+	
+	/**
+	 * @param histogram	a histogram of SearchMetrics
+	 * 
+	 * @return			the histogram's count, a few percentiles and its largest value, as a JSON object
+	 */
+	private static String histogram(SearchMetrics.Histogram histogram)
+	{
+		return "{\"count\":" + histogram.getCount() + ",\"p50\":" + histogram.percentile(50) + ",\"p90\":" + histogram.percentile(90)
+				+ ",\"p99\":" + histogram.percentile(99) + ",\"max\":" + histogram.getMax() + "}";
+	}
+	
+	/**
+	 * builds the JSON response to a request to solve puzzles
+	 * 
+	 * @param jobs	the jobs of the request, one per puzzle
+	 * @param limit	the number of solutions counting stopped at
+	 * 
+	 * @return		the response
+	 */
+	private String formatJson(List<SolveQueue.Job> jobs, long limit)
+	{
+		StringBuilder json = new StringBuilder("{\"results\":[");
+		for(int i = 0; i < jobs.size(); i++)
+		{
+			SolveQueue.Job job = jobs.get(i);
+			boolean done = job.isDone();
+			
+			if(i > 0) json.append(',');
+			json.append("\n{\"status\":\"").append(status(job, limit)).append('"');
+			json.append(",\"valid\":").append(job.isValid());
+			json.append(",\"count\":").append(done ? job.getCount() : 0);
+			json.append(",\"timedOut\":").append(!done || job.isTimedOut());
+			json.append(",\"solutions\":[");
+			for(int solution = 0; done && solution < job.getSolutions().size(); solution++)
+			{
+				if(solution > 0) json.append(',');
+				json.append('"').append(format(job.getSolutions().get(solution))).append('"');
+			}
+			json.append("]}");
+		}
+		return json.append("\n]}\n").toString();
+	}
+	
+	/**
+	 * builds the plain text response to a request to solve puzzles, a line per puzzle as SudokuBatch writes
+	 * them: the first solution or the puzzle, the count and the status
+	 * 
+	 * @param lines	the puzzles as they were sent
+	 * @param jobs	the jobs of the request, one per puzzle
+	 * @param limit	the number of solutions counting stopped at
+	 * 
+	 * @return		the response
+	 */
+	private String formatText(List<String> lines, List<SolveQueue.Job> jobs, long limit)
+	{
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < jobs.size(); i++)
+		{
+			SolveQueue.Job job = jobs.get(i);
+			boolean solved = job.isDone() && !job.getSolutions().isEmpty();
+			
+			text.append(solved ? format(job.getSolutions().get(0)) : lines.get(i));
+			text.append(',').append(job.isDone() ? job.getCount() : 0);
+			text.append(',').append(status(job, limit)).append('\n');
+		}
+		return text.toString();
+	}
+	
+	/**
+	 * works out the status of a puzzle, as SudokuBatch does, counting it if it timed out
+	 * 
+	 * @param job	the puzzle's job
+	 * @param limit	the number of solutions counting stopped at
+	 * 
+	 * @return		the status
+	 */
+	private String status(SolveQueue.Job job, long limit)
+	{
+		if(!job.isDone() || job.isTimedOut())
+		{
+			//two solutions are enough to know there are several, however far counting got
+			if(job.isDone() && job.getCount() > 1) return "multiple";
+			
+			timeouts.increment();
+			return TIMEOUT;
+		}
+		if(!job.isValid()) return "invalid";
+		if(job.getCount() == 0) return "unsolvable";
+		if(job.getCount() > 1) return "multiple";
+		return limit == 1 ? "solved" : "unique";
+	}
+	
+	/**
+	 * reads the lines of a request body which hold puzzles, skipping blank lines and comments as SudokuBatch does
+	 * 
+	 * @param body		the request body
+	 * @param maxBytes	the most bytes to read
+	 * @param lines		the list the lines are added to
+	 * 
+	 * @return			false if the body is longer than maxBytes
+	 * 
+	 * @throws IOException	if reading fails
+	 */
+	private static boolean readLines(InputStream body, long maxBytes, List<String> lines) throws IOException
+	{
+		byte[] bytes = body.readNBytes((int)Math.min(maxBytes + 1, Integer.MAX_VALUE - 8));
+		if(bytes.length > maxBytes) return false;
+		
+		for(String line : new String(bytes, StandardCharsets.US_ASCII).split("\n"))
+		{
+			line = line.trim();
+			if(!line.isEmpty() && line.charAt(0) != '#') lines.add(line);
+		}
+		return true;
+	}
+	
+	/**
+	 * reads a puzzle line into a new grid
+	 * 
+	 * @param line			the puzzle, a character per square
+	 * @param subgridWidth	the width of the sub-grids
+	 * @param subgridHeight	the height of the sub-grids
+	 * 
+	 * @return				the grid, or null if the line is the wrong length or contains an unexpected character
+	 */
+	private static Grid parse(String line, int subgridWidth, int subgridHeight)
+	{
+		int gridSize = subgridWidth * subgridHeight;
+		if(line.length() != gridSize * gridSize) return null;
+		
+		Grid grid = new Grid(subgridWidth, subgridHeight);
+		for(int square = 0; square < line.length(); square++)
+		{
+			char character = line.charAt(square);
+			int value = character < 0x80 ? PuzzleLoader.valueOf((byte)character) : -1;
+			if(value < 0 || value > gridSize) return null;
+			
+			grid.set(square, value);
+		}
+		return grid;
+	}
+	
+	/**
+	 * @param grid	a grid
+	 * 
+	 * @return		the grid as a puzzle line
+	 */
+	private static String format(Grid grid)
+	{
+		char[] line = new char[grid.getSize() * grid.getSize()];
+		for(int square = 0; square < line.length; square++)
+		{
+			int value = grid.get(square);
+			line[square] = value == 0 ? '0' : SudokuBatch.SYMBOLS.charAt(value - 1);
+		}
+		return new String(line);
+	}
+	
+	/**
+	 * splits a query string into its parameters
+	 * 
+	 * @param query	the raw query string, may be null
+	 * 
+	 * @return		the values of each parameter, in order
+	 */
+	private static Map<String, List<String>> parameters(String query)
+	{
+		Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+		if(query == null) return parameters;
+		
+		for(String pair : query.split("&"))
+		{
+			if(pair.isEmpty()) continue;
+			
+			int equals = pair.indexOf('=');
+			String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+			String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+			parameters.computeIfAbsent(name, key -> new ArrayList<String>()).add(value);
+		}
+		return parameters;
+	}
+	
+	/**
+	 * @param parameters	the parameters of a request
+	 * @param name			the name of a parameter
+	 * @param otherwise		the value if the parameter isn't given
+	 * 
+	 * @return				the parameter's last value
+	 */
+	private static String parameter(Map<String, List<String>> parameters, String name, String otherwise)
+	{
+		List<String> values = parameters.get(name);
+		return values == null ? otherwise : values.get(values.size() - 1);
+	}
+	
+	/**
+	 * reads the value of a numeric parameter
+	 * 
+	 * @param value	the text of the value
+	 * @param name	the name of the parameter, for the error message
+	 * @param max	the largest value allowed, larger values being cut down to it
+	 * 
+	 * @return		the value
+	 * 
+	 * @throws IllegalArgumentException	if the value isn't a positive integer
+	 */
+	private static int number(String value, String name, int max)
+	{
+		try
+		{
+			long number = Long.parseLong(value);
+			if(number > 0) return (int)Math.min(number, max);
+		}
+		catch(NumberFormatException e)
+		{
+			//fall through to the error
+		}
+		throw new IllegalArgumentException(name + " must be a positive integer");
+	}
+	
+	/**
+	 * sends a response and closes the exchange
+	 * 
+	 * @param exchange	the request and its response
+	 * @param status	the HTTP status
+	 * @param body		the body, JSON if it starts with a brace and plain text otherwise
+	 * 
+	 * @throws IOException	if sending fails
+	 */
+	private static void send(HttpExchange exchange, int status, String body) throws IOException
+	{
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", body.startsWith("{") ? "application/json" : "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try(OutputStream output = exchange.getResponseBody())
+		{
+			output.write(bytes);
+		}
+	}
+}
\ No newline at end of file
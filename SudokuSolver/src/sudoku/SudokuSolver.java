@@ -0,0 +1,837 @@
+package sudoku;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Program to allow the user to enter a Sudoku grid and have it solved
+ *
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public class SudokuSolver extends JFrame{
+	
+	/*
+	 * Constants defining the size of the frame
+	 */
+	private final static int FRAME_WIDTH = 400;
+	private final static int FRAME_HEIGHT = 480;
+	
+	/*
+	 * find the resolution of the screen (compatible with multi-monitor set-ups)
+	 */
+	private static GraphicsDevice gd = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+	private final static int SCREEN_WIDTH = gd.getDisplayMode().getWidth();
+	private final static int SCREEN_HEIGHT = gd.getDisplayMode().getHeight();
+	
+	/*
+	 * Calculate frame x position and y position to centre the frame on screen
+	 */
+	private final static int FRAME_X_POS = (SCREEN_WIDTH - FRAME_WIDTH) / 2;
+	private final static int FRAME_Y_POS = (SCREEN_HEIGHT - FRAME_HEIGHT) / 2;
+	
+	/*
+	 * Storing the title of the frame
+	 */
+	private final static String TITLE = "Sudoku Solver";
+	
+	/*
+	 * the grid shapes which can be chosen, as the width and height of their sub-grids
+	 */
+	private final static int[][] SHAPES = {{2, 2}, {3, 2}, {3, 3}, {4, 3}, {4, 4}, {5, 5}, {6, 6}};
+	private final static int DEFAULT_SHAPE = 2;	//9x9
+	
+	/*
+	 * extra space around the grid for the buttons, used to size the frame for larger grids
+	 */
+	private final static int CONTROLS_WIDTH = 40;
+	private final static int CONTROLS_HEIGHT = 200;
+	
+	/*
+	 * Grid Properties, changed by choosing a grid size or loading a file of a different size
+	 */
+	private int subgridWidth = SHAPES[DEFAULT_SHAPE][0];	//width of the sub-grids
+	private int subgridHeight = SHAPES[DEFAULT_SHAPE][1];	//height of the sub-grids
+	private int gridWidth = subgridWidth * subgridHeight;	//number of columns in the sudoku grid
+	
+	/*
+	 * file choosers/ for saving/loading grids
+	 */
+	private static JFileChooser fileChooser;
+	
+	/*
+	 * variables for storing information relating to the grid and it's solutions
+	 */
+	private Grid shownSolution = new Grid(subgridWidth, subgridHeight);	//a stored grid unpacked to be displayed
+	private SolutionStore solutions = new SolutionStore(gridWidth);	//packed grids. 0 is the unsolved grid
+	private static final int MAX_SOLUTIONS = 10;	//maximum number of solutions found by the engines which can't be paused
+	private int currentSolution = 0;	//the current solution being displayed by the program
+	private SolutionIterator solutionIterator;	//finds each further solution when next is pressed, null unless using the backtracking engine
+	
+	/*
+	 * names of the available solving engines, in the order they appear in the engine chooser
+	 */
+	private final static String BACKTRACKING_ENGINE = "Backtracking";
+	private final static String DANCING_LINKS_ENGINE = "Dancing Links";
+	private final static String PARALLEL_ENGINE = "Parallel Search";
+	private final static String SAT_ENGINE = "SAT";
+	
+	/*
+	 * the engines which can't be paused, shared by every search. the backtracking engine is used through a
+	 * SolutionIterator instead, so it can be paused between solutions
+	 */
+	private final SudokuEngine dancingLinksEngine = SudokuEngine.dancingLinks();
+	private final SudokuEngine parallelEngine = SudokuEngine.parallel();
+	private final SudokuEngine satEngine = SudokuEngine.sat();
+	
+	/*
+	 * the search running in the background, null when not solving
+	 */
+	private SolveWorker solveWorker;
+	private final static int PROGRESS_INTERVAL = 200;	//milliseconds between updates of the progress counter
+	
+	/*
+	 * GUI elements
+	 */
+	private JButton solveButton, cancelButton, clearButton, nextButton, backButton, resetButton, saveButton, loadButton;
+	private JTextField solutionNumber;
+	private JComboBox<String> engineChooser;
+	private JComboBox<String> sizeChooser;
+	private JLabel progressLabel;
+	private GridPanel gridPanel;
+	
+	/**
+	 * The main method. Instantiates the frame and creates the GUI
+	 */
+	public static void main(String[] args) 
+	{		
+		//create a new instance of the frame
+		SudokuSolver frame = new SudokuSolver();
+	}
+	/**
+	 * Constructor for a new sudoku solver
+	 * intialises an instance with default values
+	 */
+	SudokuSolver()
+	{
+		this(FRAME_WIDTH, FRAME_HEIGHT, FRAME_X_POS, FRAME_Y_POS, TITLE);
+	}
+	
+	/**
+	 * Constructor for a new sudoku solver
+	 * 
+	 * @param xSize	the width of the frame
+	 * @param ySize	the height of the frame
+	 * @param xPos	the distance from the left of the screen
+	 * @param yPos	the distance from the top of the screen
+	 * @param title	the title of the frame
+	 */
+	SudokuSolver(int xSize, int ySize, int xPos, int yPos, String title)
+	{
+		setSize(xSize, ySize);	//set the size of the window
+		setLocation(xPos, yPos);//set the location of the window on the screen
+		setTitle(title);		//give the window a title
+		setResizable(false);	//disallow the user from resizing the window
+		setDefaultCloseOperation(EXIT_ON_CLOSE);	//make sure the program exits appropriately
+		
+		//set UI style to conform to windows
+		try 
+		{
+			UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+		} catch (ClassNotFoundException | InstantiationException | IllegalAccessException| UnsupportedLookAndFeelException e) 
+		{
+			e.printStackTrace();
+		}
+		
+		createGUI();	//use helper method to create the GUI
+		
+		setVisible(true);	//allow the user to see the GUI
+		
+		gridPanel.selectFirst();	//set focus to first square
+	}
+	
+	/**
+	 * Helper method to help create the GUI in the frame.
+	 * constructs all buttons, text fields and listeners required
+	 */
+	private void createGUI()
+	{
+		//create a container to add the elements to
+		Container window = getContentPane();
+		//give it a flow layout
+		window.setLayout(new FlowLayout());
+		
+		/*
+		 * initialise the solve button
+		 */
+		solveButton = new JButton("Solve");						//create the button
+		solveButton.setFont(new Font("ARIAL", Font.PLAIN, 18));	//set an appropriate font
+		solveButton.addActionListener(new SolveListener());		//attach the appropriate listener
+		window.add(solveButton);								//add the button to the GUI
+		
+		/*
+		 * initialise the cancel button, stops a search which is taking too long
+		 */
+		cancelButton = new JButton("Cancel");					//create the button
+		cancelButton.setFont(new Font("ARIAL", Font.PLAIN, 18));	//set an appropriate font
+		cancelButton.addActionListener(new CancelListener());	//attach the appropriate listener
+		cancelButton.setEnabled(false);							//disable by default
+		window.add(cancelButton);								//add the button to the GUI
+		
+		/*
+		 * initialise the clear button
+		 */
+		clearButton = new JButton("Clear Grid");				//create the button
+		clearButton.setFont(new Font("ARIAL", Font.PLAIN, 18));	//set an appropriate font
+		clearButton.addActionListener(new ClearListener());		//attach the appropriate listener
+		window.add(clearButton);								//add the button to the GUI
+		
+		/*
+		 * initialise the clear button
+		 */
+		resetButton = new JButton("Reset");						//create the button
+		resetButton.setFont(new Font("ARIAL", Font.PLAIN, 18));	//set an appropriate font
+		resetButton.addActionListener(new ResetListener());		//attach the appropriate listener
+		resetButton.setEnabled(false);							//disable by default
+		window.add(resetButton);								//add the button to the GUI
+		
+		/*
+		 * initialise the engine chooser, allows the user to pick which algorithm solves the grid
+		 */
+		engineChooser = new JComboBox<String>(new String[] {BACKTRACKING_ENGINE, DANCING_LINKS_ENGINE, PARALLEL_ENGINE, SAT_ENGINE});	//create the chooser
+		engineChooser.setFont(new Font("ARIAL", Font.PLAIN, 18));	//set an appropriate font
+		window.add(engineChooser);									//add the chooser to the GUI
+		
+		/*
+		 * initialise the size chooser, changing the size clears the grid
+		 */
+		String[] sizes = new String[SHAPES.length];
+		for(int i = 0; i < SHAPES.length; i++)
+		{
+			int size = SHAPES[i][0] * SHAPES[i][1];
+			sizes[i] = size + "x" + size;
+		}
+		sizeChooser = new JComboBox<String>(sizes);					//create the chooser
+		sizeChooser.setFont(new Font("ARIAL", Font.PLAIN, 18));		//set an appropriate font
+		sizeChooser.setSelectedIndex(DEFAULT_SHAPE);				//start with a standard grid
+		sizeChooser.addActionListener(new SizeListener());			//attach the appropriate listener
+		window.add(sizeChooser);									//add the chooser to the GUI
+		
+		/*
+		 * Create the grid to allow entering of a grid, painted as a single component
+		 */
+		gridPanel = new GridPanel(subgridWidth, subgridHeight);
+		
+		//add the input grid to the GUI
+		window.add(gridPanel);
+		
+		/*
+		 * save button for saving a grid to a file
+		 * saves the current state of the grid
+		 */
+		saveButton = new JButton("Save");
+		saveButton.setFont(new Font("ARIAL", Font.PLAIN, 18));	//set an appropriate font
+		saveButton.addActionListener(new SaveListener());
+		window.add(saveButton);
+		
+		/*
+		 * initialise the back button, allows the user to cycle through valid solutions in
+		 * combination with the next button
+		 */
+		backButton = new JButton("<<");						//create the button
+		backButton.setFont(new Font("ARIAL", Font.PLAIN, 18));	//set an appropriate font
+		backButton.addActionListener(new BackListener());	//attach the appropriate listener
+		backButton.setEnabled(false);						//disable button by default
+		window.add(backButton);								//add the button to the GUI
+		
+		/*
+		 * text box to hold the number of the solution being displayed
+		 */
+		solutionNumber = new JTextField(2);							//Initialise the text box
+		solutionNumber.setFont(new Font("ARIAL", Font.BOLD, 20));	//set an appropriate font
+		solutionNumber.setBackground(Color.WHITE);					//set the background colour
+		solutionNumber.setForeground(Color.BLACK);					//set the text colour
+		solutionNumber.setText("0");								//place in a default value
+		solutionNumber.setBorder(BorderFactory.createMatteBorder(1, 1, 1, 1, Color.BLACK));	//apply black border
+		solutionNumber.setHorizontalAlignment(JTextField.CENTER);	//centres the text
+		solutionNumber.setEditable(false);							//disallow the user from editing this box
+		window.add(solutionNumber);									//add to the GUI
+		
+		/*
+		 * initialise the next button, allows the user to cycle through valid solutions in
+		 * combination with the back button
+		 */
+		nextButton = new JButton(">>");						//create the button
+		nextButton.setFont(new Font("ARIAL", Font.PLAIN, 18));	//set an appropriate font
+		nextButton.addActionListener(new NextListener());	//attach the appropriate listener
+		nextButton.setEnabled(false);						//disable button by default
+		window.add(nextButton);								//add the button to the GUI
+		
+		/*
+		 * load button for loading a grid from a file
+		 */
+		loadButton = new JButton("Load");
+		loadButton.setFont(new Font("ARIAL", Font.PLAIN, 18));	//set an appropriate font
+		loadButton.addActionListener(new LoadListener());
+		window.add(loadButton);
+		
+		/*
+		 * label showing the progress of the search, updated while solving
+		 */
+		progressLabel = new JLabel(" ");							//Initialise the label
+		progressLabel.setFont(new Font("ARIAL", Font.PLAIN, 14));	//set an appropriate font
+		window.add(progressLabel);									//add to the GUI
+	}
+	
+	/**
+	 * changes the shape of the grid, emptying it, resizing the frame to fit it and choosing the default engine
+	 * for its size
+	 * 
+	 * @param shape	the index of the new shape in SHAPES
+	 */
+	private void setShape(int shape)
+	{
+		subgridWidth = SHAPES[shape][0];
+		subgridHeight = SHAPES[shape][1];
+		gridWidth = subgridWidth * subgridHeight;
+		
+		gridPanel.setShape(subgridWidth, subgridHeight);
+		shownSolution = new Grid(subgridWidth, subgridHeight);
+		
+		//backtracking can take minutes on grids of 25x25 and up which the SAT engine solves in under a second
+		engineChooser.setSelectedItem(gridWidth >= AutomaticEngine.SAT_GRID_SIZE ? SAT_ENGINE : BACKTRACKING_ENGINE);
+		
+		//grow the frame if the grid no longer fits, but never shrink it below its default size
+		Dimension area = gridPanel.getPreferredSize();
+		setSize(Math.max(FRAME_WIDTH, area.width + CONTROLS_WIDTH), Math.max(FRAME_HEIGHT, area.height + CONTROLS_HEIGHT));
+		validate();
+	}
+	
+	/**
+	 * finds the shape of grid with a given number of rows
+	 * 
+	 * @param size	the number of rows in the grid
+	 * 
+	 * @return		the index of the shape in SHAPES, -1 if there is none that size
+	 */
+	private int shapeOfSize(int size)
+	{
+		for(int i = 0; i < SHAPES.length; i++)
+		{
+			if(SHAPES[i][0] * SHAPES[i][1] == size) return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Method to check if the current displayed grid is valid. the grid is invalid if any value
+	 * is repeated in a row, column or sub-grid
+	 * 
+	 * @return	validity of the current grid
+	 */
+	private boolean checkGrid()
+	{
+		return !gridPanel.hasConflicts();
+	}
+	
+	/**
+	 * method to display one of the stored grids, solution 0 being the unsolved grid
+	 * 
+	 * @param index	the number of the solution to be displayed
+	 */
+	private void displaySolution(int index)
+	{
+		//unpack it without allocating, only the squares which change are repainted
+		solutions.get(index, shownSolution);
+		gridPanel.display(shownSolution);
+	}
+	
+	/*
+	 * All required listener objects for the classes
+	 */
+	class SolveListener implements ActionListener
+	{			
+		public void actionPerformed(ActionEvent event)
+		{
+			//if the grid is invalid, do nothing. the squares breaking the rules are already coloured
+			if(!checkGrid()) return;
+			Grid grid = gridPanel.getGrid();
+			
+			//start a new list of solutions with the unsolved grid as the first item
+			solutions = new SolutionStore(gridWidth);
+			solutions.add(grid);
+			
+			//disable the set grid and solve buttons while solving
+			solveButton.setEnabled(false);
+			gridPanel.setEditable(false);
+			
+			//enables the back and next buttons, next shows solutions as they are found
+			backButton.setEnabled(true);
+			nextButton.setEnabled(true);
+			
+			//take the current grid and solve it with the chosen engine, in the background. the backtracking
+			//search can be paused, so it only looks for the first solution and the next button asks for more
+			String engine = (String)engineChooser.getSelectedItem();
+			if(BACKTRACKING_ENGINE.equals(engine))
+			{
+				solutionIterator = new SolutionIterator(grid);
+				startSearch(new SolveWorker(solutionIterator));
+			}
+			else
+			{
+				solutionIterator = null;
+				SudokuEngine chosen = DANCING_LINKS_ENGINE.equals(engine) ? dancingLinksEngine
+						: SAT_ENGINE.equals(engine) ? satEngine : parallelEngine;
+				startSearch(new SolveWorker(grid, chosen));
+			}
+		}
+	}
+	
+	/**
+	 * starts a search in the background, and disables everything which would change the grid until it has stopped
+	 * 
+	 * @param worker	the search to run
+	 */
+	private void startSearch(SolveWorker worker)
+	{
+		//the grid can't be cleared, reset or replaced until the search has stopped
+		clearButton.setEnabled(false);
+		resetButton.setEnabled(false);
+		loadButton.setEnabled(false);
+		engineChooser.setEnabled(false);
+		sizeChooser.setEnabled(false);
+		
+		//the search can be cancelled
+		cancelButton.setEnabled(true);
+		
+		solveWorker = worker;
+		solveWorker.execute();
+	}
+	
+	/*
+	 * listener for the cancel button, stops the search. solutions already found are kept
+	 */
+	class CancelListener implements ActionListener
+	{
+		public void actionPerformed(ActionEvent event)
+		{
+			if(solveWorker != null) solveWorker.cancel(false);
+			if(solutionIterator != null) solutionIterator.cancel();
+		}
+	}
+	
+	/*
+	 * solves a grid on a background thread so the window stays responsive. each solution is passed to the
+	 * event thread as soon as it is found, and the number of steps taken so far is shown every PROGRESS_INTERVAL.
+	 * 
+	 * a worker either runs one of the engines until it has found MAX_SOLUTIONS, or takes a single solution from
+	 * a solution iterator, whose search is kept for the next worker
+	 */
+	class SolveWorker extends SwingWorker<Void, Grid>
+	{
+		private final Grid puzzle;					//the grid being solved, a copy the event thread never changes
+		private final SudokuEngine engine;			//the engine solving it
+		private final SolutionIterator iterator;	//the search to take the next solution from, null when running an engine
+		private boolean exhausted;					//set if the iterator turned out to have no more solutions
+		
+		/*
+		 * progress of the search. these are updated by the solving threads and read by the event thread
+		 */
+		private final LongAdder nodes = new LongAdder();				//steps taken by the search
+		private final AtomicInteger found = new AtomicInteger();		//solutions found
+		private final Timer progressTimer;								//shows the progress while solving
+		private final SolutionCollector collector = new WorkerCollector();	//receives solutions from the solver
+		
+		SolveWorker(Grid puzzle, SudokuEngine engine)
+		{
+			this(puzzle, engine, null);
+		}
+		
+		SolveWorker(SolutionIterator iterator)
+		{
+			this(null, null, iterator);
+		}
+		
+		private SolveWorker(Grid puzzle, SudokuEngine engine, SolutionIterator iterator)
+		{
+			this.puzzle = puzzle;
+			this.engine = engine;
+			this.iterator = iterator;
+			
+			progressTimer = new Timer(PROGRESS_INTERVAL, new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event)
+				{
+					showProgress("Solving");
+				}
+			});
+			progressTimer.start();
+		}
+		
+		@Override
+		protected Void doInBackground()
+		{
+			if(iterator != null)
+			{
+				//carry on the search from the last solution, just far enough to find one more
+				if(iterator.hasNext()) publish(iterator.next());
+				else exhausted = true;
+			}
+			else
+			{
+				engine.solve(puzzle, collector);
+			}
+			return null;
+		}
+		
+		/*
+		 * passes solutions to the event thread, and stops the search once cancelled or enough have been found.
+		 * called by the solver, possibly from several threads at once
+		 */
+		private class WorkerCollector implements SolutionCollector
+		{
+			public boolean add(Grid solution)
+			{
+				//claim a place for the solution, another thread may have taken the last one
+				int count = found.incrementAndGet();
+				if(count > MAX_SOLUTIONS) return false;
+				
+				publish(solution);
+				return count < MAX_SOLUTIONS;
+			}
+			
+			//the solver checks this once per step, so it also counts the steps
+			public boolean isDone()
+			{
+				nodes.increment();
+				return isCancelled() || found.get() >= MAX_SOLUTIONS;
+			}
+		}
+		
+		/*
+		 * runs on the event thread with the solutions published since it was last called
+		 */
+		@Override
+		protected void process(List<Grid> chunks)
+		{
+			//ignore anything arriving after the search was cancelled and the grid reset
+			if(solveWorker != this) return;
+			
+			for(Grid solution : chunks) solutions.add(solution);
+			
+			//show the first solution straight away, or the solution the next button asked for
+			if(currentSolution == 0 || iterator != null)
+			{
+				currentSolution = solutions.size() - (iterator != null ? 1 : chunks.size());
+				displaySolution(currentSolution);	//display the new solution
+				solutionNumber.setText(Integer.toString(currentSolution));	//update the current solution text box
+			}
+		}
+		
+		/*
+		 * runs on the event thread once the search has finished or been cancelled
+		 */
+		@Override
+		protected void done()
+		{
+			progressTimer.stop();
+			solveWorker = null;
+			
+			//an iterator with more solutions is paused until next is pressed
+			if(isCancelled()) showProgress("Cancelled");
+			else if(iterator != null && !exhausted) showProgress("Paused");
+			else showProgress("Finished");
+			
+			//once cancelled or out of solutions, the next button only browses the solutions already found
+			if(iterator != null && (isCancelled() || exhausted)) solutionIterator = null;
+			
+			//report anything which went wrong in the solver
+			if(!isCancelled())
+			{
+				try
+				{
+					get();
+				}
+				catch(Exception e)
+				{
+					e.printStackTrace();
+				}
+			}
+			
+			//the search has stopped, so the grid can be reset or replaced again
+			cancelButton.setEnabled(false);
+			resetButton.setEnabled(true);
+			clearButton.setEnabled(true);
+			loadButton.setEnabled(true);
+			engineChooser.setEnabled(true);
+			sizeChooser.setEnabled(true);
+		}
+		
+		/**
+		 * updates the progress label with the number of steps and solutions so far
+		 * 
+		 * @param state	what the search is doing
+		 */
+		private void showProgress(String state)
+		{
+			long steps = iterator != null ? iterator.getSteps() : nodes.sum();
+			progressLabel.setText(state + ": " + steps + " steps, " + (solutions.size() - 1) + " solutions");
+		}
+	}
+	
+	/*
+	 * listener for the size chooser, changes the shape of the grid and clears it
+	 */
+	class SizeListener implements ActionListener
+	{
+		public void actionPerformed(ActionEvent event)
+		{
+			int shape = sizeChooser.getSelectedIndex();
+			
+			//the chooser also fires when the current size is chosen again
+			if(SHAPES[shape][0] == subgridWidth && SHAPES[shape][1] == subgridHeight) return;
+			
+			setShape(shape);
+			clearButton.doClick();
+		}
+	}
+	
+	/*
+	 * Listener for the clear button. this resets the display grid and all internal variables to
+	 * default values. also disables the solve button until a new valid starting grid is entered
+	 */
+	class ClearListener implements ActionListener
+	{
+		public void actionPerformed(ActionEvent event)
+		{
+			//reinitialises the solutions list as an empty list, with no search to find more
+			solutions = new SolutionStore(gridWidth);
+			solutionIterator = null;
+			
+			//enables the set grid button to allow the user to enter a grid
+			gridPanel.setEditable(true);
+			
+			//displays a new empty grid
+			gridPanel.clear();
+			
+			//re-enable the solve button
+			solveButton.setEnabled(true);
+			
+			//disables the reset button to since unsolved grid has been cleared
+			resetButton.setEnabled(false);
+			
+			//sets the current solution to 0 and updates the appropriate text box
+			currentSolution = 0;
+			solutionNumber.setText(Integer.toString(currentSolution));
+			
+			//disables the back and next buttons
+			backButton.setEnabled(false);
+			nextButton.setEnabled(false);
+			
+			//set focus to the first square
+			gridPanel.selectFirst();
+		}
+	}
+	
+	class ResetListener implements ActionListener
+	{
+		public void actionPerformed(ActionEvent event)
+		{
+			//display the unsolved grid
+			displaySolution(0);
+			
+			//reinitialises the solutions list as an empty list, with no search to find more
+			solutions = new SolutionStore(gridWidth);
+			solutionIterator = null;
+
+			//re-enable the solve button
+			solveButton.setEnabled(true);
+			
+			//disables the reset button
+			resetButton.setEnabled(false);
+			
+			//enables the set grid button to allow the user to enter a grid
+			gridPanel.setEditable(true);
+			
+			//sets the current solution to 0 and updates the appropriate text box
+			currentSolution = 0;
+			solutionNumber.setText(Integer.toString(currentSolution));
+			
+			//disables the back and next buttons
+			backButton.setEnabled(false);
+			nextButton.setEnabled(false);
+			
+			//set focus to the first square
+			gridPanel.selectFirst();
+		}
+	}
+	
+	/*
+	 * listener for the back button, displays the previous solution
+	 */
+	class BackListener implements ActionListener
+	{
+		public void actionPerformed(ActionEvent event)
+		{
+			//if we aren't already on solution 0
+			if(currentSolution > 0)
+			{
+				//decrease curentSolution by 1
+				currentSolution--;
+				//display the new grid
+				displaySolution(currentSolution);
+				//update the solution text box
+				solutionNumber.setText(Integer.toString(currentSolution));
+			}
+		}
+	}
+	
+	/*
+	 * listener for the next button. displays the next solution
+	 */
+	class NextListener implements ActionListener
+	{
+		public void actionPerformed(ActionEvent event)
+		{
+			//if we aren't already at the last solution
+			if(currentSolution < solutions.size()-1)
+			{
+				//add 1 to the currentSolution
+				currentSolution++;
+				//display the new solution
+				displaySolution(currentSolution);
+				//update the solution text box
+				solutionNumber.setText(Integer.toString(currentSolution));
+			}
+			//otherwise if the search can find more, look for the next one. it is shown once found
+			else if(solutionIterator != null && solveWorker == null)
+			{
+				startSearch(new SolveWorker(solutionIterator));
+			}
+		}
+	}
+	
+	/*
+	 * listener for the save button
+	 */
+	class SaveListener implements ActionListener
+	{
+		public void actionPerformed(ActionEvent event)
+		{
+			if(!checkGrid()) return;	//if grid is invalid, do nothing
+			Grid grid = gridPanel.getGrid();
+			
+			/*
+			 * initialise the file chooser
+			 */
+			fileChooser = new JFileChooser();
+			//set directory to default
+			fileChooser.setCurrentDirectory(null);
+			//set file chooser title
+			fileChooser.setDialogTitle("Save");
+			//disallow the user from selecting "all files"
+			fileChooser.setAcceptAllFileFilterUsed(false);
+			//set a file filter for CSV files
+			fileChooser.setFileFilter(new FileNameExtensionFilter("Comma Seperated Value Files", "csv"));
+			
+			//if a file path was selected
+			if(fileChooser.showSaveDialog(saveButton) != JFileChooser.APPROVE_OPTION) return;
+			//store that file path as a string
+			String filePath = "" + fileChooser.getSelectedFile();
+			
+			//check if it ends in .csv
+			if(!filePath.substring(filePath.length()-4, filePath.length()).equals(".csv"))
+			{
+				//if it doesn't, add the extension
+				filePath = filePath + ".csv";
+			}
+			
+			//write the grid to the file, overwriting any existing file
+			try(PuzzleCsv.Writer csvWriter = PuzzleCsv.writer(new File(filePath).toPath()))
+			{
+				csvWriter.write(grid);
+			} 
+			catch (IOException e) //if an exception was thrown
+			{
+				JOptionPane.showMessageDialog(null, "An unexpected IO error occurred");
+			}				
+		}
+	}
+	
+	/*
+	 * listener for the load button
+	 * clears the grid then enters values from a file
+	 */
+	class LoadListener implements ActionListener
+	{
+		public void actionPerformed(ActionEvent event)
+		{
+			//clear the program
+			clearButton.doClick();
+			
+			//initialise the file chooser
+			fileChooser = new JFileChooser();
+			//set it's default directory
+			fileChooser.setCurrentDirectory(null);
+			//give the file chooser a title
+			fileChooser.setDialogTitle("Load");
+			//disallow the user from selecting "all files"
+			fileChooser.setAcceptAllFileFilterUsed(false);
+			//filter for CSV files only
+			fileChooser.setFileFilter(new FileNameExtensionFilter("Comma Seperated Value Files", "csv"));				
+			
+			//if a file was chosen
+			if(fileChooser.showOpenDialog(loadButton) == JFileChooser.APPROVE_OPTION)
+			{
+				//grab the file
+				Path fileToLoad = fileChooser.getSelectedFile().toPath();
+				
+				try 	//try the following code
+				{
+					//the length of the first row gives the size of the grid, if there is no grid that size
+					//file is invalid
+					int shape = shapeOfSize(PuzzleCsv.gridSize(fileToLoad));
+					if(shape == -1)
+					{
+						//alert the user
+						JOptionPane.showMessageDialog(null, "Invalid file. File contained incorrect number of data entries.");
+						return;
+					}						
+					
+					//change to the size of grid in the file, this does nothing if it's already that size
+					sizeChooser.setSelectedIndex(shape);
+					
+					//read the first grid in the file, checking each row as it is read
+					Grid puzzle = new Grid(subgridWidth, subgridHeight);
+					try(PuzzleCsv.Reader csvReader = PuzzleCsv.reader(fileToLoad, subgridWidth, subgridHeight))
+					{
+						if(!csvReader.read(puzzle)) return;
+					}
+					
+					//put it in the squares and set focus to the first square
+					gridPanel.display(puzzle);
+					gridPanel.selectFirst();
+				} 
+				catch (NoSuchFileException e) //if the file couldn't be found
+				{
+					//alert the user
+					JOptionPane.showMessageDialog(null, "File not Found");
+				}
+				catch (IOException e) //if the file couldn't be read or wasn't valid
+				{
+					//alert the user
+					JOptionPane.showMessageDialog(null, "Invalid file. " + e.getMessage());
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package sudoku;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line, always adding the GC profiler so the allocation rate
+ * and bytes allocated per puzzle are reported with every result. for example
+ * 
+ * 	java -jar benchmarks.jar SolverBenchmark -p corpus=hardest -p engine=backtracking
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+public class BenchmarkMain
+{
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException
+	{
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		
+		//listing or help options don't run anything, so leave them to JMH
+		if(commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+				|| commandLine.shouldListProfilers() || commandLine.shouldListResultFormats())
+		{
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		
+		Options options = new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
\ No newline at end of file
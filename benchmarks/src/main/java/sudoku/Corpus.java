@@ -0,0 +1,93 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the bundled puzzle corpora used by the benchmarks.
+ * 
+ * Each corpus is a resource in /corpora with one 9x9 puzzle per line, 81 characters with 0 or . for
+ * empty squares, the same format SudokuBatch reads
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+final class Corpus
+{
+	private final static int SUBGRID_SIZE = 3;
+	private final static int GRID_SIZE = SUBGRID_SIZE * SUBGRID_SIZE;
+	
+	/**
+	 * the names of the bundled corpora, also used as the values of the benchmarks' corpus parameter
+	 */
+	final static String EASY = "easy";					//newspaper puzzles, solved by singles alone
+	final static String SPARSE = "sparse";				//distinct minimal puzzles with 17 to 22 clues, the fewest that could be found
+	final static String HARDEST = "hardest";			//well known hard puzzles and the slowest of many random minimal puzzles
+	final static String UNSOLVABLE = "unsolvable";		//valid grids with no solution, so the whole search has to be exhausted
+	final static String MANY_SOLUTIONS = "many";		//puzzles with clues removed, so they have many solutions
+	
+	private Corpus()
+	{
+	}
+	
+	/**
+	 * reads every puzzle of a corpus
+	 * 
+	 * @param name	the name of the corpus
+	 * 
+	 * @return		the puzzles, 0 for an empty grid square
+	 * 
+	 * @throws IOException	if the corpus can't be read or a line isn't a puzzle
+	 */
+	static Grid[] load(String name) throws IOException
+	{
+		InputStream in = Corpus.class.getResourceAsStream("/corpora/" + name + ".txt");
+		if(in == null) throw new IOException("No corpus called " + name);
+		
+		List<Grid> puzzles = new ArrayList<Grid>();
+		try(BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII)))
+		{
+			String line;
+			while((line = reader.readLine()) != null)
+			{
+				if(line.isEmpty()) continue;
+				puzzles.add(parse(line, name, puzzles.size() + 1));
+			}
+		}
+		
+		if(puzzles.isEmpty()) throw new IOException("Corpus " + name + " is empty");
+		return puzzles.toArray(new Grid[0]);
+	}
+	
+	/**
+	 * turns one line of a corpus into a grid
+	 * 
+	 * @param line		the line
+	 * @param name		the name of the corpus, for the error message
+	 * @param number	the number of the line, for the error message
+	 * 
+	 * @return			the grid
+	 * 
+	 * @throws IOException	if the line isn't a puzzle
+	 */
+	private static Grid parse(String line, String name, int number) throws IOException
+	{
+		if(line.length() != GRID_SIZE * GRID_SIZE) throw new IOException(name + " line " + number + " is not " + GRID_SIZE * GRID_SIZE + " characters long");
+		
+		Grid grid = new Grid(SUBGRID_SIZE, SUBGRID_SIZE);
+		for(int square = 0; square < GRID_SIZE * GRID_SIZE; square++)
+		{
+			char symbol = line.charAt(square);
+			if(symbol == '.' || symbol == '0') continue;
+			if(symbol < '1' || symbol > '9') throw new IOException(name + " line " + number + " has an unexpected '" + symbol + "'");
+			
+			grid.set(square, symbol - '0');
+		}
+		return grid;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package sudoku;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of going through many solutions of a puzzle, comparing the ways the backtracking
+ * solver can hand them over.
+ * 
+ * Every operation finds up to LIMIT solutions of the next puzzle of the many solution corpus. count only
+ * counts them, store packs them into a SolutionStore, list builds a Grid for each and iterator fetches
+ * them one at a time from a SolutionIterator. run through BenchmarkMain the bytes allocated per puzzle are
+ * reported alongside
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EnumerationBenchmark
+{
+	private final static int SUBGRID_SIZE = 3;	//the corpora are all 9x9
+	private final static int LIMIT = 1000;		//solutions to find for each puzzle
+	
+	/*
+	 * ways of collecting the solutions
+	 */
+	final static String COUNT = "count";
+	final static String STORE = "store";
+	final static String LIST = "list";
+	final static String ITERATOR = "iterator";
+	
+	@Param({COUNT, STORE, LIST, ITERATOR})
+	public String collector;
+	
+	private Grid[] puzzles;			//the corpus being solved
+	private int next;				//index of the next puzzle to solve
+	
+	private BacktrackingSolver solver;
+	private SolutionStore store;
+	private final List<Grid> solutions = new ArrayList<Grid>();
+	
+	@Setup
+	public void setUp() throws IOException
+	{
+		puzzles = Corpus.load(Corpus.MANY_SOLUTIONS);
+		next = 0;
+		
+		solver = new BacktrackingSolver(SUBGRID_SIZE, SUBGRID_SIZE);
+		store = new SolutionStore(SUBGRID_SIZE * SUBGRID_SIZE);
+	}
+	
+	/**
+	 * puzzles gone through per second
+	 * 
+	 * @return	the number of solutions found, returned so the work can't be optimised away
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public long throughput()
+	{
+		int puzzle = next;
+		next = next + 1 == puzzles.length ? 0 : next + 1;
+		
+		switch(collector)
+		{
+			case COUNT:
+				return solver.count(puzzles[puzzle], LIMIT);
+			
+			case STORE:
+				store.clear();
+				return solver.solve(puzzles[puzzle], store, LIMIT);
+			
+			case LIST:
+				solutions.clear();
+				return solver.solve(puzzles[puzzle], solutions, LIMIT);
+			
+			case ITERATOR:
+				long found = 0;
+				SolutionIterator iterator = new SolutionIterator(puzzles[puzzle]);
+				while(found < LIMIT && iterator.hasNext())
+				{
+					iterator.next();
+					found++;
+				}
+				return found;
+			
+			default:
+				throw new IllegalArgumentException("Unknown collector " + collector);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package sudoku;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast each engine solves the puzzles of each corpus, through the public SudokuEngine API.
+ * 
+ * Every operation counts the solutions of the next puzzle of the corpus, looking for up to two, which is what
+ * telling whether a puzzle is unique takes and what SudokuBatch does by default. throughput gives the
+ * puzzles solved per second, latency gives the distribution of the time per puzzle, p50 and p99 among it,
+ * and run through BenchmarkMain each also reports the bytes allocated per puzzle
+ * 
+ * @author Andrew Dunbar
+ * @version 14 Feb 2020
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SolverBenchmark
+{
+	private final static int SUBGRID_SIZE = 3;	//the corpora are all 9x9
+	private final static int LIMIT = 2;			//solutions to look for, enough to tell whether a puzzle is unique
+	
+	/*
+	 * names of the engines which can be benchmarked
+	 */
+	final static String BACKTRACKING = "backtracking";
+	final static String DANCING_LINKS = "dancing-links";
+	final static String PARALLEL = "parallel";
+	final static String SAT = "sat";
+	
+	@Param({Corpus.EASY, Corpus.SPARSE, Corpus.HARDEST, Corpus.UNSOLVABLE, Corpus.MANY_SOLUTIONS})
+	public String corpus;
+	
+	@Param({BACKTRACKING, DANCING_LINKS, PARALLEL, SAT})
+	public String engine;
+	
+	private Grid[] puzzles;			//the corpus being solved
+	private int next;				//index of the next puzzle to solve
+	
+	private SudokuEngine solver;	//the chosen engine
+	private Grid solution;			//where the first solution of each puzzle is copied
+	
+	@Setup
+	public void setUp() throws IOException
+	{
+		puzzles = Corpus.load(corpus);
+		next = 0;
+		
+		solver = create(engine);
+		solution = new Grid(SUBGRID_SIZE, SUBGRID_SIZE);
+	}
+	
+	/**
+	 * @param name	the name of an engine
+	 * 
+	 * @return		a new engine of that kind
+	 */
+	private static SudokuEngine create(String name)
+	{
+		switch(name)
+		{
+			case BACKTRACKING:
+				return SudokuEngine.backtracking();
+			
+			case DANCING_LINKS:
+				return SudokuEngine.dancingLinks();
+			
+			case PARALLEL:
+				return SudokuEngine.parallel();
+			
+			case SAT:
+				return SudokuEngine.sat();
+			
+			default:
+				throw new IllegalArgumentException("Unknown engine " + name);
+		}
+	}
+	
+	/**
+	 * puzzles solved per second
+	 * 
+	 * @return	the number of solutions found, returned so the work can't be optimised away
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public long throughput()
+	{
+		return solveNext();
+	}
+	
+	/**
+	 * the time taken by each puzzle, sampled to give percentiles
+	 * 
+	 * @return	the number of solutions found, returned so the work can't be optimised away
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public long latency()
+	{
+		return solveNext();
+	}
+	
+	/**
+	 * solves the next puzzle of the corpus with the chosen engine, going back to the start after the last one
+	 * 
+	 * @return	the number of solutions found
+	 */
+	private long solveNext()
+	{
+		Grid puzzle = puzzles[next];
+		next = next + 1 == puzzles.length ? 0 : next + 1;
+		
+		return solver.count(puzzle, LIMIT, solution);
+	}
+}
\ No newline at end of file